@@ -0,0 +1,64 @@
+package com.baseflow.geolocator;
+
+import android.location.Location;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.baseflow.geolocator.location.BackgroundLocationUpdates;
+import com.baseflow.geolocator.location.LocationMapper;
+import com.baseflow.geolocator.location.PositionChangedCallback;
+
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.EventChannel;
+
+/**
+ * Streams positions received through {@link BackgroundLocationUpdates} to the Dart side while an
+ * engine is listening.
+ */
+class BackgroundUpdatesHandlerImpl implements EventChannel.StreamHandler {
+
+  private static final String TAG = "BackgroundUpdates";
+
+  @Nullable private EventChannel channel;
+  @Nullable private PositionChangedCallback listener;
+
+  void startListening(BinaryMessenger messenger) {
+    if (channel != null) {
+      Log.w(TAG, "Setting a event call handler before the last was disposed.");
+      stopListening();
+    }
+    channel =
+        new EventChannel(messenger, "flutter.baseflow.com/geolocator_background_updates_android");
+    channel.setStreamHandler(this);
+  }
+
+  void stopListening() {
+    if (channel == null) {
+      return;
+    }
+
+    disposeListener();
+    channel.setStreamHandler(null);
+    channel = null;
+  }
+
+  @Override
+  public void onListen(Object arguments, EventChannel.EventSink events) {
+    disposeListener();
+    listener = (Location location) -> events.success(LocationMapper.toHashMap(location));
+    BackgroundLocationUpdates.addListener(listener);
+  }
+
+  @Override
+  public void onCancel(Object arguments) {
+    disposeListener();
+  }
+
+  private void disposeListener() {
+    if (listener != null) {
+      BackgroundLocationUpdates.removeListener(listener);
+      listener = null;
+    }
+  }
+}
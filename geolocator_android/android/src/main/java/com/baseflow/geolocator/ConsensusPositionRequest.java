@@ -0,0 +1,227 @@
+package com.baseflow.geolocator;
+
+import android.app.Activity;
+import android.content.Context;
+import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.baseflow.geolocator.errors.ErrorCodes;
+import com.baseflow.geolocator.location.GeolocationManager;
+import com.baseflow.geolocator.location.LocationClient;
+import com.baseflow.geolocator.location.LocationMapper;
+import com.baseflow.geolocator.location.LocationOptions;
+
+import java.util.Map;
+
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Determines a single position from multiple fixes collected from one provider registration.
+ *
+ * <p>Fixes are collected until the requested number of samples is reached or the time window
+ * passes. Fixes further from the accuracy-weighted centroid than {@link #OUTLIER_FACTOR} times
+ * their own accuracy are rejected, after which the centroid of the remaining fixes is returned.
+ * Its accuracy is the larger of the combined accuracy of the fixes and their spread around the
+ * centroid, and its altitude the accuracy-weighted mean altitude of the remaining fixes. The other
+ * values are taken from the most recent remaining fix. At most {@link #MAX_SAMPLES} fixes are
+ * collected.
+ *
+ * <p>Should only be used from the main thread.
+ */
+class ConsensusPositionRequest {
+  private static final double EARTH_RADIUS = 6371000;
+  private static final double OUTLIER_FACTOR = 2;
+  // Used for fixes which don't report their accuracy.
+  private static final double DEFAULT_ACCURACY = 100;
+  static final int MAX_SAMPLES = 100;
+
+  private final Context context;
+  @Nullable private final Activity activity;
+  private final GeolocationManager geolocationManager;
+  private final boolean forceLocationManager;
+  private final LocationOptions locationOptions;
+  private final long window;
+  private final MethodChannel.Result result;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+
+  private final double[] latitudes;
+  private final double[] longitudes;
+  private final double[] accuracies;
+  private final Location[] locations;
+  private int sampleCount = 0;
+  @Nullable private LocationClient locationClient;
+  private boolean replySubmitted = false;
+
+  ConsensusPositionRequest(
+      @NonNull Context context,
+      @Nullable Activity activity,
+      @NonNull GeolocationManager geolocationManager,
+      boolean forceLocationManager,
+      @NonNull LocationOptions locationOptions,
+      int maxSamples,
+      long window,
+      @NonNull MethodChannel.Result result) {
+    this.context = context;
+    this.activity = activity;
+    this.geolocationManager = geolocationManager;
+    this.forceLocationManager = forceLocationManager;
+    this.locationOptions = locationOptions;
+    this.window = window;
+    this.result = result;
+    int sampleCapacity = Math.min(maxSamples, MAX_SAMPLES);
+    this.latitudes = new double[sampleCapacity];
+    this.longitudes = new double[sampleCapacity];
+    this.accuracies = new double[sampleCapacity];
+    this.locations = new Location[sampleCapacity];
+  }
+
+  void start() {
+    handler.postDelayed(this::complete, window);
+
+    final LocationClient client =
+        geolocationManager.acquireLocationClient(context, forceLocationManager, locationOptions);
+    locationClient = client;
+    geolocationManager.startPositionUpdates(
+        client, activity, this::onPositionChanged, this::onError);
+  }
+
+  private void onPositionChanged(@Nullable Location location) {
+    if (location == null || replySubmitted) {
+      return;
+    }
+
+    latitudes[sampleCount] = location.getLatitude();
+    longitudes[sampleCount] = location.getLongitude();
+    accuracies[sampleCount] =
+        location.hasAccuracy() && location.getAccuracy() > 0
+            ? location.getAccuracy()
+            : DEFAULT_ACCURACY;
+    locations[sampleCount] = location;
+    sampleCount++;
+
+    if (sampleCount == latitudes.length) {
+      complete();
+    }
+  }
+
+  private void onError(ErrorCodes errorCode) {
+    if (replySubmitted) {
+      return;
+    }
+
+    if (sampleCount > 0) {
+      complete();
+      return;
+    }
+
+    finish();
+    result.error(errorCode.toString(), errorCode.toDescription(), null);
+  }
+
+  private void complete() {
+    if (replySubmitted) {
+      return;
+    }
+
+    finish();
+    if (sampleCount == 0) {
+      ErrorCodes errorCode = ErrorCodes.errorWhileAcquiringPosition;
+      result.error(errorCode.toString(), errorCode.toDescription(), null);
+      return;
+    }
+
+    // Work in a local plane around the first fix, in meters.
+    double originLatitude = latitudes[0];
+    double originLongitude = longitudes[0];
+    double metersPerDegree = Math.toRadians(1) * EARTH_RADIUS;
+    double longitudeScale = Math.cos(Math.toRadians(originLatitude));
+    double[] x = new double[sampleCount];
+    double[] y = new double[sampleCount];
+    boolean[] inliers = new boolean[sampleCount];
+    for (int i = 0; i < sampleCount; i++) {
+      x[i] = (longitudes[i] - originLongitude) * metersPerDegree * longitudeScale;
+      y[i] = (latitudes[i] - originLatitude) * metersPerDegree;
+      inliers[i] = true;
+    }
+
+    double[] centroid = weightedCentroid(x, y, inliers);
+    int inlierCount = 0;
+    for (int i = 0; i < sampleCount; i++) {
+      double distance = Math.hypot(x[i] - centroid[0], y[i] - centroid[1]);
+      inliers[i] = distance <= OUTLIER_FACTOR * accuracies[i];
+      if (inliers[i]) inlierCount++;
+    }
+    if (inlierCount == 0) {
+      // All fixes disagree, keep the most accurate one.
+      int best = 0;
+      for (int i = 1; i < sampleCount; i++) {
+        if (accuracies[i] < accuracies[best]) best = i;
+      }
+      inliers[best] = true;
+    }
+    centroid = weightedCentroid(x, y, inliers);
+
+    double weightSum = 0;
+    double squaredSpread = 0;
+    double altitudeWeightSum = 0;
+    double altitudeSum = 0;
+    int latest = -1;
+    for (int i = 0; i < sampleCount; i++) {
+      if (!inliers[i]) continue;
+      double weight = 1 / (accuracies[i] * accuracies[i]);
+      double dx = x[i] - centroid[0];
+      double dy = y[i] - centroid[1];
+      weightSum += weight;
+      squaredSpread += weight * (dx * dx + dy * dy);
+
+      Double altitude = LocationMapper.getAltitude(locations[i]);
+      if (altitude != null) {
+        altitudeWeightSum += weight;
+        altitudeSum += weight * altitude;
+      }
+      latest = i;
+    }
+    double accuracy = Math.max(Math.sqrt(1 / weightSum), Math.sqrt(squaredSpread / weightSum));
+
+    Map<String, Object> position = LocationMapper.toHashMap(locations[latest]);
+    position.put("latitude", originLatitude + centroid[1] / metersPerDegree);
+    position.put(
+        "longitude",
+        originLongitude
+            + (longitudeScale > 0 ? centroid[0] / (metersPerDegree * longitudeScale) : 0));
+    position.put("accuracy", accuracy);
+    if (altitudeWeightSum > 0) {
+      position.put("altitude", altitudeSum / altitudeWeightSum);
+    }
+    result.success(position);
+  }
+
+  /** Returns the centroid of the inliers weighted by the inverse of their squared accuracy. */
+  private double[] weightedCentroid(double[] x, double[] y, boolean[] inliers) {
+    double weightSum = 0;
+    double sumX = 0;
+    double sumY = 0;
+    for (int i = 0; i < sampleCount; i++) {
+      if (!inliers[i]) continue;
+      double weight = 1 / (accuracies[i] * accuracies[i]);
+      weightSum += weight;
+      sumX += weight * x[i];
+      sumY += weight * y[i];
+    }
+    return new double[] {sumX / weightSum, sumY / weightSum};
+  }
+
+  private void finish() {
+    replySubmitted = true;
+    handler.removeCallbacksAndMessages(null);
+    if (locationClient != null) {
+      geolocationManager.stopPositionUpdates(locationClient);
+      geolocationManager.releaseLocationClient(locationClient);
+      locationClient = null;
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package com.baseflow.geolocator;
+
+import android.app.Activity;
+import android.content.Context;
+import android.location.Location;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.baseflow.geolocator.errors.ErrorCallback;
+import com.baseflow.geolocator.errors.ErrorCodes;
+import com.baseflow.geolocator.location.GeolocationManager;
+import com.baseflow.geolocator.location.LocationClient;
+import com.baseflow.geolocator.location.LocationOptions;
+import com.baseflow.geolocator.location.PositionChangedCallback;
+import com.baseflow.geolocator.location.PositionDispatcher;
+import com.baseflow.geolocator.location.SinglePositionListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Determines the current position for both the method channel and the typed message channel.
+ *
+ * <p>The request is answered from a position stream or the foreground service when one of them is
+ * already receiving positions with at least the requested accuracy, without a distance filter and
+ * at least as often as the requested time interval, instead of starting another provider
+ * registration. A position received within the requested time interval is returned right away,
+ * otherwise the next position of the running registration is used. A provider registration of its
+ * own is started when there is no such registration, or when no position arrived from it within
+ * the requested time interval.
+ *
+ * <p>Should only be used from the main thread.
+ */
+class CurrentPositionRequest implements SinglePositionListener {
+  private final Context context;
+  @Nullable private final Activity activity;
+  private final GeolocationManager geolocationManager;
+  private final boolean forceLocationManager;
+  private final LocationOptions locationOptions;
+  private final List<PositionDispatcher> dispatchers = new ArrayList<>(2);
+  private final PositionChangedCallback positionChangedCallback;
+  private final ErrorCallback errorCallback;
+
+  private boolean replySubmitted = false;
+
+  CurrentPositionRequest(
+      @NonNull Context context,
+      @Nullable Activity activity,
+      @NonNull GeolocationManager geolocationManager,
+      @Nullable StreamHandlerImpl streamHandler,
+      @Nullable GeolocatorLocationService foregroundLocationService,
+      boolean forceLocationManager,
+      @NonNull LocationOptions locationOptions,
+      @NonNull PositionChangedCallback positionChangedCallback,
+      @NonNull ErrorCallback errorCallback) {
+    this.context = context;
+    this.activity = activity;
+    this.geolocationManager = geolocationManager;
+    this.forceLocationManager = forceLocationManager;
+    this.locationOptions = locationOptions;
+    this.positionChangedCallback = positionChangedCallback;
+    this.errorCallback = errorCallback;
+
+    if (streamHandler != null && streamHandler.getPositionDispatcher() != null) {
+      dispatchers.add(streamHandler.getPositionDispatcher());
+    }
+    if (foregroundLocationService != null
+        && foregroundLocationService.getPositionDispatcher() != null) {
+      dispatchers.add(foregroundLocationService.getPositionDispatcher());
+    }
+  }
+
+  void start() {
+    for (PositionDispatcher dispatcher : dispatchers) {
+      if (dispatcher.requestSinglePosition(
+          forceLocationManager, locationOptions, locationOptions.getTimeInterval(), this)) {
+        return;
+      }
+    }
+
+    requestFromOwnRegistration();
+  }
+
+  @Override
+  public void onPositionChanged(Location location) {
+    positionChangedCallback.onPositionChanged(location);
+  }
+
+  @Override
+  public void onError(ErrorCodes errorCode) {
+    errorCallback.onError(errorCode);
+  }
+
+  @Override
+  public void onAbandoned() {
+    requestFromOwnRegistration();
+  }
+
+  private void requestFromOwnRegistration() {
+    LocationClient locationClient =
+        geolocationManager.acquireLocationClient(context, forceLocationManager, locationOptions);
+
+    geolocationManager.startPositionUpdates(
+        locationClient,
+        activity,
+        (Location location) -> {
+          if (replySubmitted) {
+            return;
+          }
+
+          replySubmitted = true;
+          geolocationManager.stopPositionUpdates(locationClient);
+          geolocationManager.releaseLocationClient(locationClient);
+          positionChangedCallback.onPositionChanged(location);
+        },
+        (ErrorCodes errorCode) -> {
+          if (replySubmitted) {
+            return;
+          }
+
+          replySubmitted = true;
+          geolocationManager.stopPositionUpdates(locationClient);
+          geolocationManager.releaseLocationClient(locationClient);
+          errorCallback.onError(errorCode);
+        });
+  }
+}
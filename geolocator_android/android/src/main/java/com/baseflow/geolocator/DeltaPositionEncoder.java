@@ -0,0 +1,149 @@
+package com.baseflow.geolocator;
+
+import android.location.Location;
+import android.os.Build;
+
+import androidx.annotation.Nullable;
+
+import com.baseflow.geolocator.location.LocationMapper;
+import com.baseflow.geolocator.location.PositionEncoding;
+import com.baseflow.geolocator.location.PositionField;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import io.flutter.plugin.common.StandardMethodCodec;
+
+/**
+ * Encodes the positions of a single stream using {@link PositionEncoding#delta}.
+ *
+ * <p>Every record starts with a varint containing the flags below. A key frame is followed by the
+ * coordinate scale, after which every present field is written as a zigzag varint containing the
+ * difference between its quantized value and the quantized value last written for that field (0
+ * after a key frame). Coordinates are quantized using the coordinate scale, the timestamp to
+ * milliseconds, altitude and accuracy to centimeters, heading to hundredths of a degree and speeds
+ * to centimeters per second.
+ *
+ * <p>Should only be used from the main thread.
+ */
+class DeltaPositionEncoder {
+  private static final int FLAG_KEY_FRAME = 1;
+  private static final int FLAG_TIMESTAMP = 1 << 1;
+  private static final int FLAG_ALTITUDE = 1 << 2;
+  private static final int FLAG_ACCURACY = 1 << 3;
+  private static final int FLAG_HEADING = 1 << 4;
+  private static final int FLAG_SPEED = 1 << 5;
+  private static final int FLAG_SPEED_ACCURACY = 1 << 6;
+  private static final int FLAG_HAS_IS_MOCKED = 1 << 7;
+  private static final int FLAG_IS_MOCKED = 1 << 8;
+
+  // A key frame is sent periodically, so the stream recovers from any decoder state mismatch.
+  private static final int KEY_FRAME_INTERVAL = 100;
+  private static final double CENTI = 100;
+  // Flags, scale and nine fields of at most ten bytes each.
+  private static final int MAX_RECORD_SIZE = 112;
+
+  private final long coordinateScale;
+  private final int fields;
+  private final byte[] buffer = new byte[MAX_RECORD_SIZE];
+  private int length;
+  private int recordsSinceKeyFrame = KEY_FRAME_INTERVAL;
+
+  private long latitude;
+  private long longitude;
+  private long timestamp;
+  private long altitude;
+  private long accuracy;
+  private long heading;
+  private long speed;
+  private long speedAccuracy;
+
+  DeltaPositionEncoder(long coordinateScale, int fields) {
+    this.coordinateScale = coordinateScale;
+    this.fields = fields;
+  }
+
+  @SuppressWarnings("deprecation")
+  ByteBuffer encode(@Nullable Location location) {
+    if (location == null) {
+      return StandardMethodCodec.INSTANCE.encodeSuccessEnvelope(null);
+    }
+
+    boolean keyFrame = recordsSinceKeyFrame >= KEY_FRAME_INTERVAL;
+    if (keyFrame) {
+      recordsSinceKeyFrame = 0;
+      latitude = longitude = timestamp = altitude = accuracy = heading = 0;
+      speed = speedAccuracy = 0;
+    }
+    recordsSinceKeyFrame++;
+
+    Double altitudeValue =
+        PositionField.altitude.isIn(fields) ? LocationMapper.getAltitude(location) : null;
+    boolean hasSpeedAccuracy =
+        PositionField.speedAccuracy.isIn(fields)
+            && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+            && location.hasSpeedAccuracy();
+
+    int flags = keyFrame ? FLAG_KEY_FRAME : 0;
+    if (PositionField.timestamp.isIn(fields)) flags |= FLAG_TIMESTAMP;
+    if (altitudeValue != null) flags |= FLAG_ALTITUDE;
+    if (PositionField.accuracy.isIn(fields) && location.hasAccuracy()) flags |= FLAG_ACCURACY;
+    if (PositionField.heading.isIn(fields) && location.hasBearing()) flags |= FLAG_HEADING;
+    if (PositionField.speed.isIn(fields) && location.hasSpeed()) flags |= FLAG_SPEED;
+    if (hasSpeedAccuracy) flags |= FLAG_SPEED_ACCURACY;
+    if (PositionField.isMocked.isIn(fields)) {
+      flags |= FLAG_HAS_IS_MOCKED;
+      boolean isMocked =
+          Build.VERSION.SDK_INT >= Build.VERSION_CODES.S
+              ? location.isMock()
+              : Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2
+                  && location.isFromMockProvider();
+      if (isMocked) flags |= FLAG_IS_MOCKED;
+    }
+
+    length = 0;
+    writeVarint(flags);
+    if (keyFrame) {
+      writeVarint(coordinateScale);
+    }
+
+    latitude = writeDelta(latitude, Math.round(location.getLatitude() * coordinateScale));
+    longitude = writeDelta(longitude, Math.round(location.getLongitude() * coordinateScale));
+    if ((flags & FLAG_TIMESTAMP) != 0) {
+      timestamp = writeDelta(timestamp, location.getTime());
+    }
+    if ((flags & FLAG_ALTITUDE) != 0) {
+      altitude = writeDelta(altitude, Math.round(altitudeValue * CENTI));
+    }
+    if ((flags & FLAG_ACCURACY) != 0) {
+      accuracy = writeDelta(accuracy, Math.round(location.getAccuracy() * CENTI));
+    }
+    if ((flags & FLAG_HEADING) != 0) {
+      heading = writeDelta(heading, Math.round(location.getBearing() * CENTI));
+    }
+    if ((flags & FLAG_SPEED) != 0) {
+      speed = writeDelta(speed, Math.round(location.getSpeed() * CENTI));
+    }
+    if ((flags & FLAG_SPEED_ACCURACY) != 0) {
+      speedAccuracy =
+          writeDelta(
+              speedAccuracy, Math.round(location.getSpeedAccuracyMetersPerSecond() * CENTI));
+    }
+
+    return StandardMethodCodec.INSTANCE.encodeSuccessEnvelope(Arrays.copyOf(buffer, length));
+  }
+
+  private long writeDelta(long previous, long value) {
+    long delta = value - previous;
+    writeVarint((delta << 1) ^ (delta >> 63));
+    return value;
+  }
+
+  private void writeVarint(long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[length++] = (byte) value;
+  }
+}
@@ -0,0 +1,155 @@
+package com.baseflow.geolocator;
+
+import android.app.AlarmManager;
+import android.content.Context;
+import android.location.Location;
+import android.net.wifi.WifiManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.baseflow.geolocator.location.PositionChangedCallback;
+
+/**
+ * Holds the wake lock (and optionally the Wi-Fi lock) of the location service only around the
+ * moments a position update is expected, instead of for the entire time background mode is on.
+ *
+ * <p>The locks are acquired shortly before the next position is expected (based on the interval
+ * observed between the previous positions) and released once the position has been processed and
+ * delivered. Between positions the CPU is free to sleep.
+ */
+class DutyCycledWakeLock implements PositionChangedCallback {
+  private static final String ALARM_TAG = "GeolocatorLocationService:DutyCycle";
+  // Time before the expected position at which the locks are acquired.
+  private static final long WAKE_UP_LEAD_TIME = 2000;
+  // Time the locks are held after a position arrived, to process and deliver it.
+  private static final long DELIVERY_WINDOW = 1000;
+  // Upper bound for a single wake window, in case an expected position never arrives.
+  private static final long MAX_WAKE_WINDOW = 10000;
+
+  private final PowerManager.WakeLock wakeLock;
+  @Nullable private final WifiManager.WifiLock wifiLock;
+  @Nullable private final AlarmManager alarmManager;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Runnable releaseRunnable = this::release;
+
+  @Nullable private AlarmManager.OnAlarmListener alarmListener;
+  private long lastPositionTime = 0;
+  private boolean held = false;
+  private long acquiredAt = 0;
+  private long heldTime = 0;
+  private boolean disposed = false;
+
+  DutyCycledWakeLock(
+      @NonNull Context context,
+      @NonNull PowerManager.WakeLock wakeLock,
+      @Nullable WifiManager.WifiLock wifiLock) {
+    this.wakeLock = wakeLock;
+    this.wifiLock = wifiLock;
+    this.alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+      alarmListener = this::onWakeUp;
+    }
+  }
+
+  @Override
+  public void onPositionChanged(Location location) {
+    if (disposed) {
+      return;
+    }
+
+    long now = SystemClock.elapsedRealtime();
+    long expectedInterval = lastPositionTime > 0 ? now - lastPositionTime : 0;
+    lastPositionTime = now;
+
+    // Keep the CPU awake while the position is processed and delivered to the Dart side.
+    acquire();
+    handler.removeCallbacks(releaseRunnable);
+    handler.postDelayed(releaseRunnable, DELIVERY_WINDOW);
+
+    scheduleWakeUp(now, expectedInterval);
+  }
+
+  /** Returns the total time the locks have been held, including the current wake window. */
+  long getHeldTime() {
+    return held ? heldTime + SystemClock.elapsedRealtime() - acquiredAt : heldTime;
+  }
+
+  void dispose() {
+    disposed = true;
+    handler.removeCallbacks(releaseRunnable);
+    if (alarmManager != null
+        && alarmListener != null
+        && Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+      alarmManager.cancel(alarmListener);
+    }
+    release();
+  }
+
+  private void scheduleWakeUp(long now, long expectedInterval) {
+    if (alarmManager == null
+        || alarmListener == null
+        || Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+      // Without listener based alarms we rely on the location provider waking up the device.
+      return;
+    }
+
+    alarmManager.cancel(alarmListener);
+    if (expectedInterval <= WAKE_UP_LEAD_TIME + DELIVERY_WINDOW) {
+      // Positions arrive so frequently that sleeping in between is not worth it.
+      return;
+    }
+
+    long triggerAt = now + expectedInterval - WAKE_UP_LEAD_TIME;
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.S || alarmManager.canScheduleExactAlarms()) {
+      alarmManager.setExact(
+          AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, ALARM_TAG, alarmListener, handler);
+    } else {
+      alarmManager.set(
+          AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, ALARM_TAG, alarmListener, handler);
+    }
+  }
+
+  private void onWakeUp() {
+    if (disposed) {
+      return;
+    }
+
+    acquire();
+    handler.removeCallbacks(releaseRunnable);
+    handler.postDelayed(releaseRunnable, Math.min(MAX_WAKE_WINDOW, 2 * WAKE_UP_LEAD_TIME));
+  }
+
+  private void acquire() {
+    if (!held) {
+      held = true;
+      acquiredAt = SystemClock.elapsedRealtime();
+    }
+
+    // The lock is not reference counted, acquiring it again only extends the timeout. The timeout
+    // protects against holding the lock forever when a release gets lost.
+    wakeLock.acquire(MAX_WAKE_WINDOW);
+    if (wifiLock != null && !wifiLock.isHeld()) {
+      wifiLock.acquire();
+    }
+  }
+
+  private void release() {
+    if (held) {
+      held = false;
+      heldTime += SystemClock.elapsedRealtime() - acquiredAt;
+    }
+    if (wakeLock.isHeld()) {
+      wakeLock.release();
+    }
+    if (wifiLock != null && wifiLock.isHeld()) {
+      wifiLock.release();
+    }
+  }
+}
@@ -0,0 +1,186 @@
+package com.baseflow.geolocator;
+
+import android.app.Activity;
+import android.content.Context;
+import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.baseflow.geolocator.errors.ErrorCodes;
+import com.baseflow.geolocator.location.GeolocationManager;
+import com.baseflow.geolocator.location.LocationClient;
+import com.baseflow.geolocator.location.LocationMapper;
+import com.baseflow.geolocator.location.LocationOptions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.flutter.plugin.common.MethodChannel;
+
+/**
+ * Determines a single position with a target accuracy within a time budget, using as little power
+ * as possible.
+ *
+ * <p>Positions are first requested with low power. The request is escalated to balanced power and
+ * finally to high accuracy only while no position meeting the target accuracy has been received.
+ * The first position meeting the target is returned; when the deadline passes the most accurate
+ * position received so far is returned instead.
+ *
+ * <p>Should only be used from the main thread.
+ */
+class EscalatingPositionRequest {
+  private static final String TAG = "FlutterGeolocator";
+  // The LocationAccuracy indices of the low power, balanced and high accuracy stages.
+  private static final int[] STAGE_ACCURACIES = {1, 2, 4};
+  // The part of the time budget after which the low power and balanced stages are escalated.
+  private static final double[] STAGE_DEADLINES = {0.25, 0.5};
+  private static final int STAGE_TIME_INTERVAL = 1000;
+
+  private final Context context;
+  @Nullable private final Activity activity;
+  private final GeolocationManager geolocationManager;
+  private final boolean forceLocationManager;
+  private final double targetAccuracy;
+  private final long timeBudget;
+  private final MethodChannel.Result result;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+
+  @Nullable private LocationClient locationClient;
+  @Nullable private Location bestLocation;
+  private int stage = -1;
+  private boolean replySubmitted = false;
+
+  EscalatingPositionRequest(
+      @NonNull Context context,
+      @Nullable Activity activity,
+      @NonNull GeolocationManager geolocationManager,
+      boolean forceLocationManager,
+      double targetAccuracy,
+      long timeBudget,
+      @NonNull MethodChannel.Result result) {
+    this.context = context;
+    this.activity = activity;
+    this.geolocationManager = geolocationManager;
+    this.forceLocationManager = forceLocationManager;
+    this.targetAccuracy = targetAccuracy;
+    this.timeBudget = timeBudget;
+    this.result = result;
+  }
+
+  void start() {
+    handler.postDelayed(this::onDeadline, timeBudget);
+    for (int i = 0; i < STAGE_DEADLINES.length; i++) {
+      final int nextStage = i + 1;
+      handler.postDelayed(
+          () -> {
+            if (stage < nextStage) {
+              startStage(nextStage);
+            }
+          },
+          (long) (timeBudget * STAGE_DEADLINES[i]));
+    }
+
+    startStage(0);
+  }
+
+  private void startStage(int stage) {
+    if (replySubmitted) {
+      return;
+    }
+
+    stopClient();
+    this.stage = stage;
+
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put("accuracy", STAGE_ACCURACIES[stage]);
+    arguments.put("timeInterval", STAGE_TIME_INTERVAL);
+    LocationOptions locationOptions = LocationOptions.parseArguments(arguments);
+    Log.d(TAG, "Requesting a position with accuracy " + locationOptions.getAccuracy());
+
+    // The pool may hand out the client of the previous stage again, so callbacks are matched to
+    // their stage rather than to the client instance.
+    locationClient =
+        geolocationManager.acquireLocationClient(context, forceLocationManager, locationOptions);
+    geolocationManager.startPositionUpdates(
+        locationClient,
+        activity,
+        (Location location) -> {
+          if (stage == this.stage) {
+            onPositionChanged(location);
+          }
+        },
+        (ErrorCodes errorCode) -> {
+          if (stage == this.stage) {
+            onError(errorCode);
+          }
+        });
+  }
+
+  private void onPositionChanged(@Nullable Location location) {
+    if (location == null || replySubmitted) {
+      return;
+    }
+
+    if (bestLocation == null
+        || !bestLocation.hasAccuracy()
+        || (location.hasAccuracy() && location.getAccuracy() <= bestLocation.getAccuracy())) {
+      bestLocation = location;
+    }
+
+    if (location.hasAccuracy() && location.getAccuracy() <= targetAccuracy) {
+      reply(location);
+    }
+  }
+
+  private void onError(ErrorCodes errorCode) {
+    if (replySubmitted) {
+      return;
+    }
+
+    if (bestLocation != null) {
+      reply(bestLocation);
+      return;
+    }
+
+    finish();
+    result.error(errorCode.toString(), errorCode.toDescription(), null);
+  }
+
+  private void onDeadline() {
+    if (replySubmitted) {
+      return;
+    }
+
+    if (bestLocation != null) {
+      reply(bestLocation);
+      return;
+    }
+
+    finish();
+    ErrorCodes errorCode = ErrorCodes.errorWhileAcquiringPosition;
+    result.error(errorCode.toString(), errorCode.toDescription(), null);
+  }
+
+  private void reply(Location location) {
+    finish();
+    result.success(LocationMapper.toHashMap(location));
+  }
+
+  private void finish() {
+    replySubmitted = true;
+    handler.removeCallbacksAndMessages(null);
+    stopClient();
+  }
+
+  private void stopClient() {
+    if (locationClient != null) {
+      geolocationManager.stopPositionUpdates(locationClient);
+      geolocationManager.releaseLocationClient(locationClient);
+      locationClient = null;
+    }
+  }
+}
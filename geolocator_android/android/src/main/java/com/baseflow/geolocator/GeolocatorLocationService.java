@@ -6,25 +6,22 @@ import android.app.Notification;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
-import android.location.Location;
 import android.net.wifi.WifiManager;
 import android.os.Binder;
 import android.os.Build;
 import android.os.IBinder;
 import android.os.PowerManager;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.Nullable;
 
-import com.baseflow.geolocator.errors.ErrorCodes;
 import com.baseflow.geolocator.location.BackgroundNotification;
 import com.baseflow.geolocator.location.ForegroundNotificationOptions;
 import com.baseflow.geolocator.location.GeolocationManager;
-import com.baseflow.geolocator.location.LocationClient;
-import com.baseflow.geolocator.location.LocationMapper;
 import com.baseflow.geolocator.location.LocationOptions;
-
-import io.flutter.plugin.common.EventChannel;
+import com.baseflow.geolocator.location.PositionDispatcher;
+import com.baseflow.geolocator.location.PositionSubscription;
 
 public class GeolocatorLocationService extends Service {
   private static final String TAG = "FlutterGeolocator";
@@ -33,16 +30,23 @@ public class GeolocatorLocationService extends Service {
   private final String WAKELOCK_TAG = "GeolocatorLocationService:Wakelock";
   private final String WIFILOCK_TAG = "GeolocatorLocationService:WifiLock";
   private final LocalBinder binder = new LocalBinder(this);
+  // Positions fanned out to the connected engines are encoded only once.
+  private final PositionEncoder positionEncoder = new PositionEncoder();
   // Service is foreground
   private boolean isForeground = false;
   private int connectedEngines = 0;
   private int listenerCount = 0;
+  private int nextSubscriptionId = 0;
   @Nullable private Activity activity = null;
   @Nullable private GeolocationManager geolocationManager = null;
-  @Nullable private LocationClient locationClient;
+  @Nullable private PositionDispatcher positionDispatcher = null;
 
   @Nullable private PowerManager.WakeLock wakeLock = null;
   @Nullable private WifiManager.WifiLock wifiLock = null;
+  @Nullable private DutyCycledWakeLock dutyCycledWakeLock = null;
+  @Nullable private MotionGate motionGate = null;
+  private long wakeLockAcquiredAt = 0;
+  private long wakeLockHeldTime = 0;
 
   @Nullable private BackgroundNotification backgroundNotification = null;
 
@@ -51,6 +55,7 @@ public class GeolocatorLocationService extends Service {
     super.onCreate();
     Log.d(TAG, "Creating service.");
     geolocationManager = new GeolocationManager();
+    positionDispatcher = new PositionDispatcher(getApplicationContext(), geolocationManager);
   }
 
   @Override
@@ -78,6 +83,7 @@ public class GeolocatorLocationService extends Service {
     stopLocationService();
     disableBackgroundMode();
     geolocationManager = null;
+    positionDispatcher = null;
     backgroundNotification = null;
 
     Log.d(TAG, "Destroyed location service.");
@@ -86,7 +92,7 @@ public class GeolocatorLocationService extends Service {
 
   public boolean canStopLocationService(boolean cancellationRequested) {
     if(cancellationRequested) {
-       return listenerCount == 1;
+       return listenerCount == 0;
     }
     return connectedEngines == 0;
   }
@@ -103,33 +109,60 @@ public class GeolocatorLocationService extends Service {
     Log.d(TAG, "Flutter engine disconnected. Connected engine count " + connectedEngines);
   }
 
-  public void startLocationService(
+  PositionEncoder getPositionEncoder() {
+    return positionEncoder;
+  }
+
+  @Nullable
+  PositionDispatcher getPositionDispatcher() {
+    return positionDispatcher;
+  }
+
+  /**
+   * Adds the supplied sink to the list of sinks receiving positions from the location service.
+   *
+   * <p>All sinks are served from a single provider registration, which is only restarted when the
+   * combined request of the connected sinks changes. Engines can therefore join or leave the
+   * location service without restarting it.
+   *
+   * @return an id which can be used to remove the sink using {@link #stopLocationService(int)}.
+   */
+  public int startLocationService(
       boolean forceLocationManager,
       LocationOptions locationOptions,
-      EventChannel.EventSink events) {
+      PositionEventSink eventSink) {
 
     listenerCount++;
-    if (geolocationManager != null) {
-      locationClient =
-          geolocationManager.createLocationClient(
-              this.getApplicationContext(),
-              Boolean.TRUE.equals(forceLocationManager),
-              locationOptions);
+    int subscriptionId = nextSubscriptionId++;
+    if (positionDispatcher != null) {
+      positionDispatcher.addSubscription(
+          new PositionSubscription(
+              subscriptionId,
+              forceLocationManager,
+              locationOptions,
+              eventSink::success,
+              eventSink::error));
+    }
+    Log.d(TAG, "Location sink added. Listener count " + listenerCount);
+    return subscriptionId;
+  }
 
-      geolocationManager.startPositionUpdates(
-          locationClient,
-          activity,
-          (Location location) -> events.success(LocationMapper.toHashMap(location)),
-          (ErrorCodes errorCodes) ->
-              events.error(errorCodes.toString(), errorCodes.toDescription(), null));
+  /** Removes a single sink, previously added using {@link #startLocationService}. */
+  public void stopLocationService(int subscriptionId) {
+    if (listenerCount > 0) {
+      listenerCount--;
     }
+    if (positionDispatcher != null) {
+      positionDispatcher.removeSubscription(subscriptionId);
+    }
+    Log.d(TAG, "Location sink removed. Listener count " + listenerCount);
   }
 
   public void stopLocationService() {
-    listenerCount--;
+    listenerCount = 0;
     Log.d(TAG, "Stopping location service.");
-    if (locationClient != null && geolocationManager != null) {
-      geolocationManager.stopPositionUpdates(locationClient);
+    if (positionDispatcher != null) {
+      positionDispatcher.dispose();
     }
   }
 
@@ -149,6 +182,7 @@ public class GeolocatorLocationService extends Service {
       isForeground = true;
     }
     obtainWakeLocks(options);
+    startMotionGate(options);
   }
 
   @SuppressWarnings("deprecation")
@@ -161,6 +195,8 @@ public class GeolocatorLocationService extends Service {
         stopForeground(true);
       }
       releaseWakeLocks();
+      stopMotionGate();
+      Log.d(TAG, "Total wake lock hold time " + wakeLockHeldTime + "ms.");
       isForeground = false;
       backgroundNotification = null;
     }
@@ -170,15 +206,44 @@ public class GeolocatorLocationService extends Service {
     if (backgroundNotification != null) {
       backgroundNotification.updateOptions(options, isForeground);
       obtainWakeLocks(options);
+      startMotionGate(options);
     }
   }
 
   public void setActivity(@Nullable Activity activity) {
     this.activity = activity;
+    if (positionDispatcher != null) {
+      positionDispatcher.setActivity(activity);
+    }
+  }
+
+  /**
+   * Returns the total time in milliseconds the wake lock of the location service has been held
+   * since the service was created.
+   */
+  public long getWakeLockHeldTime() {
+    long heldTime = wakeLockHeldTime;
+    if (dutyCycledWakeLock != null) {
+      heldTime += dutyCycledWakeLock.getHeldTime();
+    } else if (wakeLock != null && wakeLock.isHeld()) {
+      heldTime += SystemClock.elapsedRealtime() - wakeLockAcquiredAt;
+    }
+    return heldTime;
   }
 
   private void releaseWakeLocks() {
+    if (dutyCycledWakeLock != null) {
+      if (positionDispatcher != null) {
+        positionDispatcher.removePositionListener(dutyCycledWakeLock);
+      }
+      dutyCycledWakeLock.dispose();
+      wakeLockHeldTime += dutyCycledWakeLock.getHeldTime();
+      dutyCycledWakeLock = null;
+      wakeLock = null;
+      wifiLock = null;
+    }
     if (wakeLock != null && wakeLock.isHeld()) {
+      wakeLockHeldTime += SystemClock.elapsedRealtime() - wakeLockAcquiredAt;
       wakeLock.release();
       wakeLock = null;
     }
@@ -188,6 +253,32 @@ public class GeolocatorLocationService extends Service {
     }
   }
 
+  /**
+   * Only receives passive positions once the device didn't move for the stationary timeout of the
+   * supplied options, if any.
+   */
+  private void startMotionGate(ForegroundNotificationOptions options) {
+    stopMotionGate();
+    if (options.getStationaryTimeout() <= 0 || positionDispatcher == null) {
+      return;
+    }
+
+    motionGate =
+        new MotionGate(getApplicationContext(), positionDispatcher, options.getStationaryTimeout());
+    positionDispatcher.addPositionListener(motionGate);
+    motionGate.start();
+  }
+
+  private void stopMotionGate() {
+    if (motionGate != null) {
+      if (positionDispatcher != null) {
+        positionDispatcher.removePositionListener(motionGate);
+      }
+      motionGate.stop();
+      motionGate = null;
+    }
+  }
+
   @SuppressLint("WakelockTimeout")
   private void obtainWakeLocks(ForegroundNotificationOptions options) {
     releaseWakeLocks();
@@ -197,7 +288,6 @@ public class GeolocatorLocationService extends Service {
       if (powerManager != null) {
         wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, WAKELOCK_TAG);
         wakeLock.setReferenceCounted(false);
-        wakeLock.acquire();
       }
     }
     if (options.isEnableWifiLock()) {
@@ -206,9 +296,24 @@ public class GeolocatorLocationService extends Service {
       if (wifiManager != null) {
         wifiLock = wifiManager.createWifiLock(WifiManager.WIFI_MODE_FULL_HIGH_PERF, WIFILOCK_TAG);
         wifiLock.setReferenceCounted(false);
-        wifiLock.acquire();
       }
     }
+
+    if (wakeLock != null && options.isDutyCycleWakeLock() && positionDispatcher != null) {
+      Log.d(TAG, "Using duty cycled wake lock.");
+      // The duty cycled wake lock only acquires the locks around expected position updates.
+      dutyCycledWakeLock = new DutyCycledWakeLock(getApplicationContext(), wakeLock, wifiLock);
+      positionDispatcher.addPositionListener(dutyCycledWakeLock);
+      return;
+    }
+
+    if (wakeLock != null) {
+      wakeLockAcquiredAt = SystemClock.elapsedRealtime();
+      wakeLock.acquire();
+    }
+    if (wifiLock != null) {
+      wifiLock.acquire();
+    }
   }
 
   class LocalBinder extends Binder {
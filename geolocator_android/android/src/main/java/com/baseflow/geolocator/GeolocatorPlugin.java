@@ -10,6 +10,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.baseflow.geolocator.location.GeolocationManager;
+import com.baseflow.geolocator.location.LastKnownPositionStore;
 import com.baseflow.geolocator.location.LocationAccuracyManager;
 import com.baseflow.geolocator.permission.PermissionManager;
 
@@ -28,6 +29,8 @@ public class GeolocatorPlugin implements FlutterPlugin, ActivityAware {
 
   @Nullable private GeolocatorLocationService foregroundLocationService;
 
+  private boolean foregroundServiceBound = false;
+
   @Nullable private MethodCallHandlerImpl methodCallHandler;
 
   @Nullable private StreamHandlerImpl streamHandler;
@@ -53,6 +56,10 @@ public class GeolocatorPlugin implements FlutterPlugin, ActivityAware {
       };
   @Nullable private LocationServiceHandlerImpl locationServiceHandler;
 
+  @Nullable private BackgroundUpdatesHandlerImpl backgroundUpdatesHandler;
+
+  @Nullable private TypedMessageHandlerImpl typedMessageHandler;
+
   @SuppressWarnings("deprecation")
   @Nullable
   private io.flutter.plugin.common.PluginRegistry.Registrar pluginRegistrar;
@@ -88,13 +95,30 @@ public class GeolocatorPlugin implements FlutterPlugin, ActivityAware {
     methodCallHandler.startListening(registrar.context(), registrar.messenger());
     methodCallHandler.setActivity(registrar.activity());
 
+    TypedMessageHandlerImpl typedMessageHandler =
+        new TypedMessageHandlerImpl(
+            geolocatorPlugin.permissionManager, geolocatorPlugin.geolocationManager);
+    typedMessageHandler.startListening(registrar.context(), registrar.messenger());
+    typedMessageHandler.setActivity(registrar.activity());
+
     StreamHandlerImpl streamHandler = new StreamHandlerImpl(geolocatorPlugin.permissionManager);
     streamHandler.startListening(registrar.context(), registrar.messenger());
+    streamHandler.setForegroundServiceBinder(
+        () -> geolocatorPlugin.bindForegroundService(registrar.activeContext()));
+    streamHandler.setPositionListener(TripStatisticsAggregator.getInstance());
+    methodCallHandler.setStreamHandler(streamHandler);
+    typedMessageHandler.setStreamHandler(streamHandler);
+    geolocatorPlugin.methodCallHandler = methodCallHandler;
+    geolocatorPlugin.typedMessageHandler = typedMessageHandler;
+    geolocatorPlugin.streamHandler = streamHandler;
 
     LocationServiceHandlerImpl locationServiceHandler = new LocationServiceHandlerImpl();
     locationServiceHandler.startListening(registrar.context(), registrar.messenger());
     locationServiceHandler.setContext(registrar.activeContext());
-    geolocatorPlugin.bindForegroundService(registrar.activeContext());
+
+    BackgroundUpdatesHandlerImpl backgroundUpdatesHandler = new BackgroundUpdatesHandlerImpl();
+    backgroundUpdatesHandler.startListening(registrar.messenger());
+    LastKnownPositionStore.getInstance(registrar.context()).preload();
   }
 
   @Override
@@ -104,16 +128,28 @@ public class GeolocatorPlugin implements FlutterPlugin, ActivityAware {
             this.permissionManager, this.geolocationManager, this.locationAccuracyManager);
     methodCallHandler.startListening(
         flutterPluginBinding.getApplicationContext(), flutterPluginBinding.getBinaryMessenger());
+    typedMessageHandler =
+        new TypedMessageHandlerImpl(this.permissionManager, this.geolocationManager);
+    typedMessageHandler.startListening(
+        flutterPluginBinding.getApplicationContext(), flutterPluginBinding.getBinaryMessenger());
     streamHandler = new StreamHandlerImpl(this.permissionManager);
     streamHandler.startListening(
         flutterPluginBinding.getApplicationContext(), flutterPluginBinding.getBinaryMessenger());
+    streamHandler.setForegroundServiceBinder(
+        () -> bindForegroundService(flutterPluginBinding.getApplicationContext()));
+    streamHandler.setPositionListener(TripStatisticsAggregator.getInstance());
+    methodCallHandler.setStreamHandler(streamHandler);
+    typedMessageHandler.setStreamHandler(streamHandler);
 
     locationServiceHandler = new LocationServiceHandlerImpl();
     locationServiceHandler.setContext(flutterPluginBinding.getApplicationContext());
     locationServiceHandler.startListening(
         flutterPluginBinding.getApplicationContext(), flutterPluginBinding.getBinaryMessenger());
 
-    bindForegroundService(flutterPluginBinding.getApplicationContext());
+    backgroundUpdatesHandler = new BackgroundUpdatesHandlerImpl();
+    backgroundUpdatesHandler.startListening(flutterPluginBinding.getBinaryMessenger());
+
+    LastKnownPositionStore.getInstance(flutterPluginBinding.getApplicationContext()).preload();
   }
 
   @Override
@@ -131,6 +167,9 @@ public class GeolocatorPlugin implements FlutterPlugin, ActivityAware {
     if (methodCallHandler != null) {
       methodCallHandler.setActivity(binding.getActivity());
     }
+    if (typedMessageHandler != null) {
+      typedMessageHandler.setActivity(binding.getActivity());
+    }
     if (streamHandler != null) {
       streamHandler.setActivity(binding.getActivity());
     }
@@ -156,6 +195,9 @@ public class GeolocatorPlugin implements FlutterPlugin, ActivityAware {
     if (methodCallHandler != null) {
       methodCallHandler.setActivity(null);
     }
+    if (typedMessageHandler != null) {
+      typedMessageHandler.setActivity(null);
+    }
     if (streamHandler != null) {
       streamHandler.setActivity(null);
     }
@@ -184,7 +226,16 @@ public class GeolocatorPlugin implements FlutterPlugin, ActivityAware {
     }
   }
 
+  /**
+   * Binds the foreground service, which is postponed until a position stream using a foreground
+   * notification is requested so engines which never need it don't pay for the bind.
+   */
   private void bindForegroundService(Context context) {
+    if (foregroundServiceBound) {
+      return;
+    }
+
+    foregroundServiceBound = true;
     context.bindService(
         new Intent(context, GeolocatorLocationService.class),
         serviceConnection,
@@ -192,6 +243,11 @@ public class GeolocatorPlugin implements FlutterPlugin, ActivityAware {
   }
 
   private void unbindForegroundService(Context context) {
+    if (!foregroundServiceBound) {
+      return;
+    }
+
+    foregroundServiceBound = false;
     if (foregroundLocationService != null) {
       foregroundLocationService.flutterEngineDisconnected();
     }
@@ -202,10 +258,19 @@ public class GeolocatorPlugin implements FlutterPlugin, ActivityAware {
     Log.d(TAG, "Initializing Geolocator services");
     foregroundLocationService = service;
     foregroundLocationService.flutterEngineConnected();
+    if (service.getPositionDispatcher() != null) {
+      service.getPositionDispatcher().addPositionListener(TripStatisticsAggregator.getInstance());
+    }
 
     if (streamHandler != null) {
       streamHandler.setForegroundLocationService(service);
     }
+    if (methodCallHandler != null) {
+      methodCallHandler.setForegroundLocationService(service);
+    }
+    if (typedMessageHandler != null) {
+      typedMessageHandler.setForegroundLocationService(service);
+    }
   }
 
   private void dispose() {
@@ -213,11 +278,22 @@ public class GeolocatorPlugin implements FlutterPlugin, ActivityAware {
     if (methodCallHandler != null) {
       methodCallHandler.stopListening();
       methodCallHandler.setActivity(null);
+      methodCallHandler.setStreamHandler(null);
+      methodCallHandler.setForegroundLocationService(null);
       methodCallHandler = null;
     }
+    if (typedMessageHandler != null) {
+      typedMessageHandler.stopListening();
+      typedMessageHandler.setActivity(null);
+      typedMessageHandler.setStreamHandler(null);
+      typedMessageHandler.setForegroundLocationService(null);
+      typedMessageHandler = null;
+    }
     if (streamHandler != null) {
       streamHandler.stopListening();
+      streamHandler.setForegroundServiceBinder(null);
       streamHandler.setForegroundLocationService(null);
+      streamHandler.setPositionListener(null);
       streamHandler = null;
     }
     if (locationServiceHandler != null) {
@@ -225,6 +301,10 @@ public class GeolocatorPlugin implements FlutterPlugin, ActivityAware {
       locationServiceHandler.stopListening();
       locationServiceHandler = null;
     }
+    if (backgroundUpdatesHandler != null) {
+      backgroundUpdatesHandler.stopListening();
+      backgroundUpdatesHandler = null;
+    }
     if (foregroundLocationService != null) {
       foregroundLocationService.setActivity(null);
     }
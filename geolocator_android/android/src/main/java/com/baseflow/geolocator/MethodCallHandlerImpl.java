@@ -10,13 +10,17 @@ import androidx.annotation.Nullable;
 
 import com.baseflow.geolocator.errors.ErrorCodes;
 import com.baseflow.geolocator.errors.PermissionUndefinedException;
+import com.baseflow.geolocator.location.BackgroundLocationBuffer;
+import com.baseflow.geolocator.location.BackgroundLocationUpdates;
 import com.baseflow.geolocator.location.FlutterLocationServiceListener;
 import com.baseflow.geolocator.location.GeolocationManager;
+import com.baseflow.geolocator.location.LastKnownPositionStore;
 import com.baseflow.geolocator.location.LocationAccuracyStatus;
 import com.baseflow.geolocator.location.LocationAccuracyManager;
-import com.baseflow.geolocator.location.LocationClient;
 import com.baseflow.geolocator.location.LocationMapper;
 import com.baseflow.geolocator.location.LocationOptions;
+import com.baseflow.geolocator.location.PositionSource;
+import com.baseflow.geolocator.location.ReplayOptions;
 import com.baseflow.geolocator.permission.LocationPermission;
 import com.baseflow.geolocator.permission.PermissionManager;
 import com.baseflow.geolocator.utils.Utils;
@@ -24,6 +28,9 @@ import com.baseflow.geolocator.utils.Utils;
 import io.flutter.plugin.common.BinaryMessenger;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -41,6 +48,10 @@ class MethodCallHandlerImpl implements MethodChannel.MethodCallHandler {
 
   @Nullable private Activity activity;
 
+  @Nullable private StreamHandlerImpl streamHandler;
+
+  @Nullable private GeolocatorLocationService foregroundLocationService;
+
   MethodCallHandlerImpl(
       PermissionManager permissionManager,
       GeolocationManager geolocationManager,
@@ -73,6 +84,56 @@ class MethodCallHandlerImpl implements MethodChannel.MethodCallHandler {
       case "getCurrentPosition":
         onGetCurrentPosition(call, result);
         break;
+      case "getPositionWithAccuracy":
+        onGetPositionWithAccuracy(call, result);
+        break;
+      case "getConsensusPosition":
+        onGetConsensusPosition(call, result);
+        break;
+      case "prewarm":
+        onPrewarm(call, result);
+        break;
+      case "startTripStatistics":
+        TripStatisticsAggregator.getInstance().start();
+        result.success(null);
+        break;
+      case "getTripStatistics":
+        result.success(TripStatisticsAggregator.getInstance().toHashMap());
+        break;
+      case "stopTripStatistics":
+        TripStatisticsAggregator.getInstance().stop();
+        result.success(TripStatisticsAggregator.getInstance().toHashMap());
+        break;
+      case "createPositionStream":
+        onCreatePositionStream(result);
+        break;
+      case "getWakeLockHeldTime":
+        result.success(
+            foregroundLocationService != null
+                ? foregroundLocationService.getWakeLockHeldTime()
+                : 0L);
+        break;
+      case "setReplayTrace":
+        @SuppressWarnings("unchecked")
+        Map<String, Object> replayArguments = (Map<String, Object>) call.arguments;
+        GeolocationManager.setReplayOptions(ReplayOptions.parseArguments(replayArguments));
+        result.success(null);
+        break;
+      case "seekReplay":
+        Number offset = call.argument("offset");
+        GeolocationManager.seekReplay(offset != null ? offset.longValue() : 0);
+        result.success(null);
+        break;
+      case "startBackgroundPositionUpdates":
+        onStartBackgroundPositionUpdates(call, result);
+        break;
+      case "stopBackgroundPositionUpdates":
+        BackgroundLocationUpdates.stop(context);
+        result.success(null);
+        break;
+      case "takeBackgroundPositions":
+        onTakeBackgroundPositions(result);
+        break;
       case "openAppSettings":
         boolean hasOpenedAppSettings = Utils.openAppSettings(this.context);
         result.success(hasOpenedAppSettings);
@@ -124,6 +185,15 @@ class MethodCallHandlerImpl implements MethodChannel.MethodCallHandler {
     this.activity = activity;
   }
 
+  void setStreamHandler(@Nullable StreamHandlerImpl streamHandler) {
+    this.streamHandler = streamHandler;
+  }
+
+  void setForegroundLocationService(
+      @Nullable GeolocatorLocationService foregroundLocationService) {
+    this.foregroundLocationService = foregroundLocationService;
+  }
+
   private void onCheckPermission(MethodChannel.Result result) {
     try {
       LocationPermission permission = permissionManager.checkPermissionStatus(context);
@@ -152,6 +222,28 @@ class MethodCallHandlerImpl implements MethodChannel.MethodCallHandler {
     }
   }
 
+  /**
+   * Checks the location permission needed to request positions, replying with the matching error
+   * when it is missing.
+   *
+   * @return false when the permission is missing and the error has been sent.
+   */
+  private boolean hasLocationPermission(MethodChannel.Result result) {
+    try {
+      if (!permissionManager.hasPermission(context)) {
+        ErrorCodes errorCode = ErrorCodes.permissionDenied;
+        result.error(errorCode.toString(), errorCode.toDescription(), null);
+        return false;
+      }
+    } catch (PermissionUndefinedException e) {
+      ErrorCodes errorCode = ErrorCodes.permissionDefinitionsNotFound;
+      result.error(errorCode.toString(), errorCode.toDescription(), null);
+      return false;
+    }
+
+    return true;
+  }
+
   private void getLocationAccuracy(MethodChannel.Result result, Context context) {
     final LocationAccuracyStatus status =
         locationAccuracyManager.getLocationAccuracy(
@@ -164,46 +256,31 @@ class MethodCallHandlerImpl implements MethodChannel.MethodCallHandler {
   }
 
   private void onGetLastKnownPosition(MethodCall call, MethodChannel.Result result) {
-    try {
-      if (!permissionManager.hasPermission(context)) {
-        result.error(
-            ErrorCodes.permissionDenied.toString(),
-            ErrorCodes.permissionDenied.toDescription(),
-            null);
-        return;
-      }
-    } catch (PermissionUndefinedException e) {
-      result.error(
-          ErrorCodes.permissionDefinitionsNotFound.toString(),
-          ErrorCodes.permissionDefinitionsNotFound.toDescription(),
-          null);
+    if (!hasLocationPermission(result)) {
       return;
     }
 
     Boolean forceLocationManager = call.argument("forceLocationManager");
+    Number maxAge = call.argument("maxAge");
 
     geolocationManager.getLastKnownPosition(
         context,
         forceLocationManager != null && forceLocationManager,
-        (Location location) -> result.success(LocationMapper.toHashMap(location)),
+        maxAge != null ? maxAge.longValue() : 0,
+        (Location location, PositionSource source) -> {
+          Map<String, Object> position = LocationMapper.toHashMap(location);
+          if (position != null && source != null) {
+            position.put("source", source.ordinal());
+            position.put("age", LastKnownPositionStore.getAge(location));
+          }
+          result.success(position);
+        },
         (ErrorCodes errorCode) ->
             result.error(errorCode.toString(), errorCode.toDescription(), null));
   }
 
   private void onGetCurrentPosition(MethodCall call, MethodChannel.Result result) {
-    try {
-      if (!permissionManager.hasPermission(context)) {
-        result.error(
-            ErrorCodes.permissionDenied.toString(),
-            ErrorCodes.permissionDenied.toDescription(),
-            null);
-        return;
-      }
-    } catch (PermissionUndefinedException e) {
-      result.error(
-          ErrorCodes.permissionDefinitionsNotFound.toString(),
-          ErrorCodes.permissionDefinitionsNotFound.toDescription(),
-          null);
+    if (!hasLocationPermission(result)) {
       return;
     }
 
@@ -214,31 +291,165 @@ class MethodCallHandlerImpl implements MethodChannel.MethodCallHandler {
       forceLocationManager = (boolean) map.get("forceLocationManager");
     }
     LocationOptions locationOptions = LocationOptions.parseArguments(map);
-    final boolean[] replySubmitted = {false};
 
-    LocationClient locationClient =
-        geolocationManager.createLocationClient(context, forceLocationManager, locationOptions);
+    new CurrentPositionRequest(
+            context,
+            activity,
+            geolocationManager,
+            streamHandler,
+            foregroundLocationService,
+            forceLocationManager,
+            locationOptions,
+            (Location location) ->
+                result.success(LocationMapper.toHashMap(location, locationOptions.getFields())),
+            (ErrorCodes errorCode) ->
+                result.error(errorCode.toString(), errorCode.toDescription(), null))
+        .start();
+  }
+
+  private void onGetPositionWithAccuracy(MethodCall call, MethodChannel.Result result) {
+    if (!hasLocationPermission(result)) {
+      return;
+    }
+
+    Boolean forceLocationManager = call.argument("forceLocationManager");
+    Number targetAccuracy = call.argument("targetAccuracy");
+    Number timeLimit = call.argument("timeLimit");
+
+    new EscalatingPositionRequest(
+            context,
+            activity,
+            geolocationManager,
+            forceLocationManager != null && forceLocationManager,
+            targetAccuracy != null ? targetAccuracy.doubleValue() : 50,
+            timeLimit != null ? timeLimit.longValue() : 30000,
+            result)
+        .start();
+  }
+
+  private void onGetConsensusPosition(MethodCall call, MethodChannel.Result result) {
+    if (!hasLocationPermission(result)) {
+      return;
+    }
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> map =
+        call.arguments != null
+            ? new HashMap<>((Map<String, Object>) call.arguments)
+            : new HashMap<String, Object>();
+    Number maxSamples = (Number) map.remove("maxSamples");
+    Number window = (Number) map.remove("window");
+    if (maxSamples == null || maxSamples.intValue() < 1 || window == null) {
+      ErrorCodes errorCode = ErrorCodes.invalidArguments;
+      result.error(
+          errorCode.toString(),
+          errorCode.toDescription(),
+          "At least one sample and a time window are required.");
+      return;
+    }
+    // Sample every second unless requested otherwise.
+    if (map.get("timeInterval") == null) {
+      map.put("timeInterval", 1000);
+    }
+
+    new ConsensusPositionRequest(
+            context,
+            activity,
+            geolocationManager,
+            Boolean.TRUE.equals(map.get("forceLocationManager")),
+            LocationOptions.parseArguments(map),
+            maxSamples.intValue(),
+            window.longValue(),
+            result)
+        .start();
+  }
+
+  private void onPrewarm(MethodCall call, MethodChannel.Result result) {
+    if (!hasLocationPermission(result)) {
+      return;
+    }
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> map = (Map<String, Object>) call.arguments;
+    Number duration = map != null ? (Number) map.get("duration") : null;
+    if (duration == null || duration.longValue() <= 0) {
+      ErrorCodes errorCode = ErrorCodes.invalidArguments;
+      result.error(
+          errorCode.toString(),
+          errorCode.toDescription(),
+          "A positive prewarm duration is required.");
+      return;
+    }
+
+    boolean prewarmed =
+        streamHandler != null
+            && streamHandler.prewarm(
+                Boolean.TRUE.equals(map.get("forceLocationManager")),
+                LocationOptions.parseArguments(map),
+                duration.longValue());
+    if (!prewarmed) {
+      ErrorCodes errorCode = ErrorCodes.errorWhileAcquiringPosition;
+      result.error(errorCode.toString(), errorCode.toDescription(), null);
+      return;
+    }
 
-    geolocationManager.startPositionUpdates(
-        locationClient,
-        activity,
-        (Location location) -> {
+    result.success(null);
+  }
+
+  private void onCreatePositionStream(MethodChannel.Result result) {
+    Integer streamId = streamHandler != null ? streamHandler.createPositionStream() : null;
+    if (streamId == null) {
+      ErrorCodes errorCode = ErrorCodes.errorWhileAcquiringPosition;
+      result.error(errorCode.toString(), errorCode.toDescription(), null);
+      return;
+    }
+
+    result.success(streamId);
+  }
+
+  private void onStartBackgroundPositionUpdates(MethodCall call, MethodChannel.Result result) {
+    if (!hasLocationPermission(result)) {
+      return;
+    }
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> map = (Map<String, Object>) call.arguments;
+    boolean forceLocationManager = map != null && Boolean.TRUE.equals(map.get("forceLocationManager"));
+    LocationOptions locationOptions = LocationOptions.parseArguments(map);
+    final boolean[] replySubmitted = {false};
+
+    BackgroundLocationUpdates.start(
+        context,
+        forceLocationManager,
+        locationOptions,
+        () -> {
           if (replySubmitted[0]) {
             return;
           }
 
           replySubmitted[0] = true;
-          geolocationManager.stopPositionUpdates(locationClient);
-          result.success(LocationMapper.toHashMap(location));
+          result.success(null);
         },
         (ErrorCodes errorCode) -> {
           if (replySubmitted[0]) {
+            Log.e(TAG, "Background position updates failed: " + errorCode.toDescription());
             return;
           }
 
           replySubmitted[0] = true;
-          geolocationManager.stopPositionUpdates(locationClient);
           result.error(errorCode.toString(), errorCode.toDescription(), null);
         });
   }
+
+  private void onTakeBackgroundPositions(MethodChannel.Result result) {
+    BackgroundLocationBuffer.getInstance(context)
+        .drain(
+            (List<Location> locations) -> {
+              List<Map<String, Object>> positions = new ArrayList<>(locations.size());
+              for (Location location : locations) {
+                positions.add(LocationMapper.toHashMap(location));
+              }
+              result.success(positions);
+            });
+  }
 }
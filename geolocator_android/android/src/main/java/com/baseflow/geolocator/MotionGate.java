@@ -0,0 +1,201 @@
+package com.baseflow.geolocator;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.hardware.TriggerEvent;
+import android.hardware.TriggerEventListener;
+import android.location.Location;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import com.baseflow.geolocator.location.PositionChangedCallback;
+import com.baseflow.geolocator.location.PositionDispatcher;
+
+/**
+ * Switches the provider registrations of the location service to passive positions while the
+ * device does not move, and back to the requested positions as soon as it moves again.
+ *
+ * <p>Motion is detected using the significant motion sensor, which wakes the device up from a
+ * low power state, the step detector (when the activity recognition permission is granted) and
+ * positions reporting a walking speed or more. The step detector is registered with a report
+ * latency of half the stationary timeout, so its events are batched in hardware where supported.
+ * The gate is not used on devices without a significant motion sensor, as positions would stop
+ * while driving otherwise.
+ *
+ * <p>Should only be used from the main thread.
+ */
+class MotionGate implements PositionChangedCallback {
+  private static final String TAG = "FlutterGeolocator";
+  // Positions at least this fast (in m/s) count as motion.
+  private static final float MIN_MOVING_SPEED = 1;
+
+  private final PositionDispatcher positionDispatcher;
+  private final long stationaryTimeout;
+  @Nullable private final SensorManager sensorManager;
+  @Nullable private final Sensor significantMotionSensor;
+  @Nullable private final Sensor stepDetector;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Runnable stationaryRunnable = this::onStationary;
+  @Nullable private TriggerEventListener triggerEventListener;
+  @Nullable private SensorEventListener stepListener;
+
+  private boolean running = false;
+  private boolean stationary = false;
+
+  MotionGate(
+      @NonNull Context context,
+      @NonNull PositionDispatcher positionDispatcher,
+      long stationaryTimeout) {
+    this.positionDispatcher = positionDispatcher;
+    this.stationaryTimeout = stationaryTimeout;
+    this.sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
+
+    Sensor significantMotionSensor = null;
+    Sensor stepDetector = null;
+    if (sensorManager != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+      significantMotionSensor = sensorManager.getDefaultSensor(Sensor.TYPE_SIGNIFICANT_MOTION);
+    }
+    if (sensorManager != null
+        && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+        && hasActivityRecognitionPermission(context)) {
+      stepDetector = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_DETECTOR);
+    }
+    this.significantMotionSensor = significantMotionSensor;
+    this.stepDetector = stepDetector;
+  }
+
+  void start() {
+    if (running) {
+      return;
+    }
+
+    if (sensorManager == null
+        || significantMotionSensor == null
+        || Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) {
+      Log.w(TAG, "No significant motion sensor available, positions are not gated by motion.");
+      return;
+    }
+
+    running = true;
+    triggerEventListener =
+        new TriggerEventListener() {
+          @Override
+          public void onTrigger(TriggerEvent event) {
+            handler.post(MotionGate.this::onSignificantMotion);
+          }
+        };
+    sensorManager.requestTriggerSensor(triggerEventListener, significantMotionSensor);
+
+    if (stepDetector != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+      stepListener =
+          new SensorEventListener() {
+            @Override
+            public void onSensorChanged(SensorEvent event) {
+              onMotion();
+            }
+
+            @Override
+            public void onAccuracyChanged(Sensor sensor, int accuracy) {}
+          };
+      sensorManager.registerListener(
+          stepListener,
+          stepDetector,
+          SensorManager.SENSOR_DELAY_NORMAL,
+          // Half the stationary timeout, in microseconds.
+          (int) Math.min(Integer.MAX_VALUE, stationaryTimeout * 500),
+          handler);
+    }
+
+    handler.postDelayed(stationaryRunnable, stationaryTimeout);
+  }
+
+  /** Stops watching for motion, restoring the requested positions if the device was stationary. */
+  void stop() {
+    if (!running) {
+      return;
+    }
+
+    running = false;
+    handler.removeCallbacksAndMessages(null);
+    if (sensorManager != null) {
+      if (triggerEventListener != null
+          && significantMotionSensor != null
+          && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+        sensorManager.cancelTriggerSensor(triggerEventListener, significantMotionSensor);
+      }
+      if (stepListener != null) {
+        sensorManager.unregisterListener(stepListener);
+      }
+    }
+    triggerEventListener = null;
+    stepListener = null;
+
+    if (stationary) {
+      stationary = false;
+      positionDispatcher.setStationary(false);
+    }
+  }
+
+  @Override
+  public void onPositionChanged(Location location) {
+    if (location != null && location.hasSpeed() && location.getSpeed() >= MIN_MOVING_SPEED) {
+      onMotion();
+    }
+  }
+
+  private void onSignificantMotion() {
+    if (!running) {
+      return;
+    }
+
+    // The significant motion sensor disarms itself after every trigger.
+    if (sensorManager != null
+        && triggerEventListener != null
+        && significantMotionSensor != null
+        && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+      sensorManager.requestTriggerSensor(triggerEventListener, significantMotionSensor);
+    }
+    onMotion();
+  }
+
+  private void onMotion() {
+    if (!running) {
+      return;
+    }
+
+    handler.removeCallbacks(stationaryRunnable);
+    handler.postDelayed(stationaryRunnable, stationaryTimeout);
+    if (stationary) {
+      Log.d(TAG, "Motion detected, resuming the requested positions.");
+      stationary = false;
+      positionDispatcher.setStationary(false);
+    }
+  }
+
+  private void onStationary() {
+    if (!running || stationary) {
+      return;
+    }
+
+    Log.d(TAG, "No motion for " + stationaryTimeout + "ms, only receiving passive positions.");
+    stationary = true;
+    positionDispatcher.setStationary(true);
+  }
+
+  private static boolean hasActivityRecognitionPermission(Context context) {
+    return Build.VERSION.SDK_INT < Build.VERSION_CODES.Q
+        || ContextCompat.checkSelfPermission(context, Manifest.permission.ACTIVITY_RECOGNITION)
+            == PackageManager.PERMISSION_GRANTED;
+  }
+}
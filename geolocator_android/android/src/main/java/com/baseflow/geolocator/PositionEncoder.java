@@ -0,0 +1,47 @@
+package com.baseflow.geolocator;
+
+import android.location.Location;
+import android.util.SparseArray;
+
+import androidx.annotation.Nullable;
+
+import com.baseflow.geolocator.location.LocationMapper;
+import com.baseflow.geolocator.location.PositionField;
+
+import java.nio.ByteBuffer;
+
+import io.flutter.plugin.common.StandardMethodCodec;
+
+/**
+ * Encodes positions into event channel envelopes, remembering the last encoded position.
+ *
+ * <p>When the same position is delivered to multiple sinks sharing an encoder, it is only
+ * serialized once per requested set of fields and every sink receives a view on the same encoded
+ * bytes.
+ *
+ * <p>Should only be used from the main thread.
+ */
+class PositionEncoder {
+  // Most positions are delivered using one or two distinct field masks.
+  private final SparseArray<ByteBuffer> lastEnvelopes = new SparseArray<>(2);
+  @Nullable private Location lastLocation;
+
+  ByteBuffer encode(@Nullable Location location, int fields) {
+    if (location == null || location != lastLocation) {
+      lastLocation = location;
+      lastEnvelopes.clear();
+    }
+
+    ByteBuffer envelope = lastEnvelopes.get(fields);
+    if (envelope == null) {
+      envelope =
+          StandardMethodCodec.INSTANCE.encodeSuccessEnvelope(
+              LocationMapper.toHashMap(location, fields));
+      lastEnvelopes.put(fields, envelope);
+    }
+
+    // Each send gets its own view so the position and limit of the shared buffer are never
+    // touched by the messenger.
+    return envelope.duplicate();
+  }
+}
@@ -0,0 +1,224 @@
+package com.baseflow.geolocator;
+
+import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.baseflow.geolocator.errors.ErrorCodes;
+import com.baseflow.geolocator.location.LocationOptions;
+import com.baseflow.geolocator.location.PositionDeliveryPolicy;
+import com.baseflow.geolocator.location.PositionEncoding;
+import com.baseflow.geolocator.location.PositionTransport;
+
+import java.nio.ByteBuffer;
+
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.EventChannel;
+
+/**
+ * Delivers positions to the Dart side of a position stream according to the {@link
+ * PositionDeliveryPolicy} requested by the caller.
+ *
+ * <p>Positions are sent straight through the {@link BinaryMessenger} so the reply of the Dart
+ * side can be used as an acknowledgement. Positions that cannot be delivered yet are parked in a
+ * single-slot mailbox where they are replaced by newer positions, so stale positions are dropped
+ * before they are serialized. When the {@link PositionTransport#ringBuffer} transport is requested
+ * the delivery policy is not used; positions are written to a {@link PositionRingBuffer} instead,
+ * which is drained by a single in-flight event.
+ *
+ * <p>All state is confined to the main thread.
+ */
+class PositionEventSink {
+  private static final String TAG = "FlutterGeolocator";
+
+  private final BinaryMessenger messenger;
+  private final String channelName;
+  private final EventChannel.EventSink events;
+  private final PositionEncoder positionEncoder;
+  private final PositionDeliveryPolicy deliveryPolicy;
+  private final long deliveryInterval;
+  private final int fields;
+  @Nullable private final DeltaPositionEncoder deltaPositionEncoder;
+  @Nullable private final PositionRingBuffer ringBuffer;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Runnable drainRunnable = this::drain;
+  private final Runnable doorbellRunnable = this::ringDoorbell;
+
+  @Nullable private Location pendingLocation;
+  private boolean inFlight = false;
+  private boolean drainScheduled = false;
+  private boolean doorbellScheduled = false;
+  private boolean closed = false;
+  private long lastDeliveryTime = 0;
+  private long droppedCount = 0;
+
+  PositionEventSink(
+      @NonNull BinaryMessenger messenger,
+      @NonNull String channelName,
+      @NonNull EventChannel.EventSink events,
+      @NonNull LocationOptions locationOptions,
+      @NonNull PositionEncoder positionEncoder) {
+    this.messenger = messenger;
+    this.channelName = channelName;
+    this.events = events;
+    this.positionEncoder = positionEncoder;
+    this.deliveryPolicy = locationOptions.getDeliveryPolicy();
+    this.deliveryInterval = locationOptions.getDeliveryInterval();
+    this.fields = locationOptions.getFields();
+    this.deltaPositionEncoder =
+        locationOptions.getEncoding() == PositionEncoding.delta
+            ? new DeltaPositionEncoder(locationOptions.getCoordinateScale(), fields)
+            : null;
+    this.ringBuffer =
+        locationOptions.getTransport() == PositionTransport.ringBuffer
+            ? new PositionRingBuffer(fields)
+            : null;
+  }
+
+  void success(@Nullable Location location) {
+    if (Looper.myLooper() != Looper.getMainLooper()) {
+      handler.post(() -> success(location));
+      return;
+    }
+
+    if (closed) {
+      return;
+    }
+
+    if (ringBuffer != null) {
+      if (location != null) {
+        ringBuffer.write(location);
+      }
+      // Rung after the current message, so positions delivered together (e.g. a batch) share one
+      // doorbell.
+      if (!inFlight && !doorbellScheduled) {
+        doorbellScheduled = true;
+        handler.post(doorbellRunnable);
+      }
+      return;
+    }
+
+    switch (deliveryPolicy) {
+      case latestOnly:
+        offer(location);
+        if (!inFlight) {
+          drain();
+        }
+        break;
+      case sampled:
+        offer(location);
+        scheduleDrain();
+        break;
+      default:
+        send(location, null);
+        break;
+    }
+  }
+
+  void error(ErrorCodes errorCode) {
+    if (Looper.myLooper() != Looper.getMainLooper()) {
+      handler.post(() -> error(errorCode));
+      return;
+    }
+
+    if (closed) {
+      return;
+    }
+
+    events.error(errorCode.toString(), errorCode.toDescription(), null);
+  }
+
+  /** Stops delivering positions and discards the position waiting in the mailbox (if any). */
+  void close() {
+    if (Looper.myLooper() != Looper.getMainLooper()) {
+      handler.post(this::close);
+      return;
+    }
+
+    closed = true;
+    pendingLocation = null;
+    handler.removeCallbacks(drainRunnable);
+    handler.removeCallbacks(doorbellRunnable);
+
+    if (droppedCount > 0) {
+      Log.d(TAG, "Dropped " + droppedCount + " stale positions before delivery.");
+    }
+  }
+
+  private void offer(@Nullable Location location) {
+    if (pendingLocation != null) {
+      droppedCount++;
+    }
+    pendingLocation = location;
+  }
+
+  private void scheduleDrain() {
+    if (drainScheduled) {
+      return;
+    }
+
+    drainScheduled = true;
+    long delay = Math.max(0, lastDeliveryTime + deliveryInterval - SystemClock.elapsedRealtime());
+    handler.postDelayed(drainRunnable, delay);
+  }
+
+  private void drain() {
+    drainScheduled = false;
+
+    Location location = pendingLocation;
+    pendingLocation = null;
+    if (closed || location == null) {
+      return;
+    }
+
+    lastDeliveryTime = SystemClock.elapsedRealtime();
+
+    if (deliveryPolicy == PositionDeliveryPolicy.latestOnly) {
+      inFlight = true;
+      send(
+          location,
+          reply -> {
+            inFlight = false;
+            if (pendingLocation != null) {
+              drain();
+            }
+          });
+    } else {
+      send(location, null);
+    }
+  }
+
+  /**
+   * Hands all records written to the ring since the previous doorbell to the Dart side. Positions
+   * arriving before the Dart side has acknowledged the doorbell are only written to the ring and
+   * picked up by the next doorbell.
+   */
+  private void ringDoorbell() {
+    doorbellScheduled = false;
+    if (closed || ringBuffer == null || !ringBuffer.hasPendingRecords()) {
+      return;
+    }
+
+    inFlight = true;
+    messenger.send(
+        channelName,
+        ringBuffer.take(),
+        reply -> {
+          inFlight = false;
+          ringDoorbell();
+        });
+  }
+
+  private void send(@Nullable Location location, @Nullable BinaryMessenger.BinaryReply callback) {
+    ByteBuffer envelope =
+        deltaPositionEncoder != null
+            ? deltaPositionEncoder.encode(location)
+            : positionEncoder.encode(location, fields);
+    messenger.send(channelName, envelope, callback);
+  }
+}
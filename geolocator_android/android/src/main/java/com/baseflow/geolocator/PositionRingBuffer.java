@@ -0,0 +1,154 @@
+package com.baseflow.geolocator;
+
+import android.location.Location;
+import android.os.Build;
+
+import androidx.annotation.Nullable;
+
+import com.baseflow.geolocator.location.LocationMapper;
+import com.baseflow.geolocator.location.PositionField;
+import com.baseflow.geolocator.location.PositionTransport;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import io.flutter.plugin.common.StandardMethodCodec;
+
+/**
+ * Stores the positions of a single stream using {@link PositionTransport#ringBuffer} as fixed-size
+ * records in a direct buffer, from which they are handed over to the Dart side in slices.
+ *
+ * <p>The ring has a single producer, which writes a record for every position, and a single
+ * consumer, which takes all records written since it last took a slice. When the consumer falls
+ * more than {@link #CAPACITY} records behind, the oldest records are overwritten; the sequence
+ * number in every record allows the Dart side to detect such gaps.
+ *
+ * <p>Every record is {@link #RECORD_SIZE} bytes, all values little-endian:
+ *
+ * <pre>
+ *  0 i64 sequence      8 i32 flags        12 i32 (reserved)
+ * 16 f64 latitude     24 f64 longitude    32 i64 timestamp
+ * 40 f64 altitude     48 f64 accuracy     56 f64 heading
+ * 64 f64 speed        72 f64 speedAccuracy
+ * </pre>
+ *
+ * The flags contain the bits of the {@link PositionField}s present in the record and {@link
+ * #FLAG_IS_MOCKED}, which lies above all field bits. Absent values are 0. The {@link
+ * PositionField#source} is not stored in records.
+ *
+ * <p>Should only be used from the main thread.
+ */
+class PositionRingBuffer {
+  static final int RECORD_SIZE = 80;
+  static final int CAPACITY = 256;
+  // Above the bits of all PositionFields (PositionField.REQUESTABLE).
+  static final int FLAG_IS_MOCKED = 1 << 8;
+
+  private final ByteBuffer ring =
+      ByteBuffer.allocateDirect(CAPACITY * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+  private final int fields;
+  // The sequence number of the next record to write and of the next record to take.
+  private long writeSequence = 0;
+  private long readSequence = 0;
+
+  PositionRingBuffer(int fields) {
+    this.fields = fields;
+  }
+
+  boolean hasPendingRecords() {
+    return readSequence < writeSequence;
+  }
+
+  @SuppressWarnings("deprecation")
+  void write(Location location) {
+    int offset = (int) (writeSequence % CAPACITY) * RECORD_SIZE;
+    Double altitude =
+        PositionField.altitude.isIn(fields) ? LocationMapper.getAltitude(location) : null;
+
+    int flags = 0;
+    if (PositionField.timestamp.isIn(fields)) {
+      flags |= bit(PositionField.timestamp);
+      ring.putLong(offset + 32, location.getTime());
+    } else {
+      ring.putLong(offset + 32, 0);
+    }
+    flags |= putDouble(offset + 40, PositionField.altitude, altitude);
+    flags |=
+        putDouble(
+            offset + 48,
+            PositionField.accuracy,
+            location.hasAccuracy() ? (double) location.getAccuracy() : null);
+    flags |=
+        putDouble(
+            offset + 56,
+            PositionField.heading,
+            location.hasBearing() ? (double) location.getBearing() : null);
+    flags |=
+        putDouble(
+            offset + 64,
+            PositionField.speed,
+            location.hasSpeed() ? (double) location.getSpeed() : null);
+    flags |=
+        putDouble(
+            offset + 72,
+            PositionField.speedAccuracy,
+            Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && location.hasSpeedAccuracy()
+                ? (double) location.getSpeedAccuracyMetersPerSecond()
+                : null);
+    if (PositionField.isMocked.isIn(fields)) {
+      flags |= bit(PositionField.isMocked);
+      boolean isMocked =
+          Build.VERSION.SDK_INT >= Build.VERSION_CODES.S
+              ? location.isMock()
+              : Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2
+                  && location.isFromMockProvider();
+      if (isMocked) flags |= FLAG_IS_MOCKED;
+    }
+
+    ring.putLong(offset, writeSequence);
+    ring.putInt(offset + 8, flags);
+    ring.putInt(offset + 12, 0);
+    ring.putDouble(offset + 16, location.getLatitude());
+    ring.putDouble(offset + 24, location.getLongitude());
+    writeSequence++;
+  }
+
+  /**
+   * Copies all records written since the previous call into a single event envelope, skipping the
+   * records which have already been overwritten.
+   */
+  ByteBuffer take() {
+    readSequence = Math.max(readSequence, writeSequence - CAPACITY);
+    int count = (int) (writeSequence - readSequence);
+    byte[] records = new byte[count * RECORD_SIZE];
+
+    // The records are contiguous, except when they wrap around the end of the ring.
+    int start = (int) (readSequence % CAPACITY);
+    int firstCount = Math.min(count, CAPACITY - start);
+    ByteBuffer slice = ring.duplicate();
+    slice.position(start * RECORD_SIZE);
+    slice.get(records, 0, firstCount * RECORD_SIZE);
+    if (firstCount < count) {
+      slice.position(0);
+      slice.get(records, firstCount * RECORD_SIZE, (count - firstCount) * RECORD_SIZE);
+    }
+
+    readSequence = writeSequence;
+    return StandardMethodCodec.INSTANCE.encodeSuccessEnvelope(records);
+  }
+
+  /** Writes the value when requested and available, returning the bit of the field if written. */
+  private int putDouble(int offset, PositionField field, @Nullable Double value) {
+    if (field.isIn(fields) && value != null) {
+      ring.putDouble(offset, value);
+      return bit(field);
+    }
+
+    ring.putDouble(offset, 0);
+    return 0;
+  }
+
+  private static int bit(PositionField field) {
+    return 1 << field.ordinal();
+  }
+}
@@ -2,7 +2,8 @@ package com.baseflow.geolocator;
 
 import android.app.Activity;
 import android.content.Context;
-import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import androidx.annotation.Nullable;
@@ -11,11 +12,14 @@ import com.baseflow.geolocator.errors.ErrorCodes;
 import com.baseflow.geolocator.errors.PermissionUndefinedException;
 import com.baseflow.geolocator.location.ForegroundNotificationOptions;
 import com.baseflow.geolocator.location.GeolocationManager;
-import com.baseflow.geolocator.location.LocationClient;
-import com.baseflow.geolocator.location.LocationMapper;
 import com.baseflow.geolocator.location.LocationOptions;
+import com.baseflow.geolocator.location.PositionChangedCallback;
+import com.baseflow.geolocator.location.PositionDispatcher;
+import com.baseflow.geolocator.location.PositionSubscription;
 import com.baseflow.geolocator.permission.PermissionManager;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Map;
 
 import io.flutter.plugin.common.BinaryMessenger;
@@ -23,33 +27,108 @@ import io.flutter.plugin.common.EventChannel;
 
 class StreamHandlerImpl implements EventChannel.StreamHandler {
   private static final String TAG = "FlutterGeolocator";
+  static final String CHANNEL_NAME = "flutter.baseflow.com/geolocator_updates_android";
+  private static final int DEFAULT_STREAM_ID = 0;
+  private static final int PREWARM_SUBSCRIPTION_ID = -1;
 
   private final PermissionManager permissionManager;
+  private final Map<Integer, KeyedStreamHandler> keyedStreamHandlers = new HashMap<>();
+  private final PositionEncoder positionEncoder = new PositionEncoder();
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Runnable prewarmExpiry = this::stopPrewarm;
 
   @Nullable private EventChannel channel;
+  @Nullable private BinaryMessenger messenger;
   @Nullable private Context context;
   @Nullable private Activity activity;
   @Nullable private GeolocatorLocationService foregroundLocationService;
   @Nullable private GeolocationManager geolocationManager;
-  @Nullable private LocationClient locationClient;
+  @Nullable private PositionDispatcher positionDispatcher;
+  @Nullable private PositionEventSink positionEventSink;
+  @Nullable private Integer foregroundSubscriptionId;
+  @Nullable private Runnable foregroundServiceBinder;
+  @Nullable private PositionChangedCallback positionListener;
+  // A foreground position stream waiting for the foreground service to be bound.
+  @Nullable private Object pendingForegroundArguments;
+  @Nullable private EventChannel.EventSink pendingForegroundEvents;
+  private int nextStreamId = DEFAULT_STREAM_ID + 1;
 
   public StreamHandlerImpl(PermissionManager permissionManager) {
+    this(permissionManager, new GeolocationManager());
+  }
+
+  StreamHandlerImpl(PermissionManager permissionManager, GeolocationManager geolocationManager) {
     this.permissionManager = permissionManager;
-    geolocationManager = new GeolocationManager();
+    this.geolocationManager = geolocationManager;
   }
 
   public void setForegroundLocationService(
       @Nullable GeolocatorLocationService foregroundLocationService) {
     this.foregroundLocationService = foregroundLocationService;
+
+    if (foregroundLocationService != null && pendingForegroundEvents != null) {
+      EventChannel.EventSink events = pendingForegroundEvents;
+      Object arguments = pendingForegroundArguments;
+      pendingForegroundEvents = null;
+      pendingForegroundArguments = null;
+      onListen(arguments, events);
+    }
+  }
+
+  /**
+   * Sets the action which binds the foreground service, which is run when the first position
+   * stream using a foreground notification is requested. The service is handed over through
+   * {@link #setForegroundLocationService} once bound.
+   */
+  void setForegroundServiceBinder(@Nullable Runnable foregroundServiceBinder) {
+    this.foregroundServiceBinder = foregroundServiceBinder;
+  }
+
+  /**
+   * Sets a listener which observes every position received by the position streams of this
+   * engine, see {@link PositionDispatcher#addPositionListener}.
+   */
+  void setPositionListener(@Nullable PositionChangedCallback positionListener) {
+    if (positionDispatcher != null && this.positionListener != null) {
+      positionDispatcher.removePositionListener(this.positionListener);
+    }
+    this.positionListener = positionListener;
+    if (positionDispatcher != null && positionListener != null) {
+      positionDispatcher.addPositionListener(positionListener);
+    }
   }
 
   public void setActivity(@Nullable Activity activity) {
 
-    if (activity == null && locationClient != null && channel != null) {
+    if (activity == null
+        && positionDispatcher != null
+        && positionDispatcher.hasSubscriptions()
+        && channel != null) {
       stopListening();
     }
 
     this.activity = activity;
+    if (positionDispatcher != null) {
+      positionDispatcher.setActivity(activity);
+    }
+  }
+
+  /** The dispatcher serving the position streams of this engine, if any have been requested. */
+  @Nullable
+  PositionDispatcher getPositionDispatcher() {
+    return positionDispatcher;
+  }
+
+  /** Returns the dispatcher of this engine, which is created when first needed. */
+  private PositionDispatcher requirePositionDispatcher() {
+    if (positionDispatcher == null) {
+      positionDispatcher = new PositionDispatcher(context, geolocationManager);
+      positionDispatcher.setActivity(activity);
+      if (positionListener != null) {
+        positionDispatcher.addPositionListener(positionListener);
+      }
+    }
+    return positionDispatcher;
   }
 
   /**
@@ -65,8 +144,9 @@ class StreamHandlerImpl implements EventChannel.StreamHandler {
       stopListening();
     }
 
-    channel = new EventChannel(messenger, "flutter.baseflow.com/geolocator_updates_android");
+    channel = new EventChannel(messenger, CHANNEL_NAME);
     channel.setStreamHandler(this);
+    this.messenger = messenger;
     this.context = context;
   }
 
@@ -82,41 +162,99 @@ class StreamHandlerImpl implements EventChannel.StreamHandler {
     }
 
     disposeListeners(false);
+    for (KeyedStreamHandler keyedStreamHandler : new ArrayList<>(keyedStreamHandlers.values())) {
+      keyedStreamHandler.dispose();
+    }
+    handler.removeCallbacks(prewarmExpiry);
+    if (positionDispatcher != null) {
+      positionDispatcher.dispose();
+      positionDispatcher = null;
+    }
     channel.setStreamHandler(null);
     channel = null;
+    messenger = null;
+  }
+
+  /**
+   * Registers an additional, independent position stream on its own event channel.
+   *
+   * <p>The stream is available on the channel named {@code
+   * flutter.baseflow.com/geolocator_updates_android/<id>} and is served by the same native
+   * dispatch loop as all other position streams of this engine.
+   *
+   * @return the id of the new position stream, or {@code null} when not listening on a messenger.
+   */
+  @Nullable
+  Integer createPositionStream() {
+    if (messenger == null) {
+      Log.e(TAG, "Tried to create a position stream when no messenger had been initialized.");
+      return null;
+    }
+
+    int streamId = nextStreamId++;
+    keyedStreamHandlers.put(streamId, new KeyedStreamHandler(messenger, streamId));
+    return streamId;
+  }
+
+  /**
+   * Starts receiving positions ahead of need, so requests made within the next {@code duration}
+   * milliseconds can be served from the running registration or the last position it received.
+   *
+   * <p>Position streams started meanwhile share the registration. Prewarming again replaces the
+   * options and restarts the duration.
+   *
+   * @return false when not listening on a messenger.
+   */
+  boolean prewarm(boolean forceLocationManager, LocationOptions locationOptions, long duration) {
+    if (messenger == null) {
+      Log.e(TAG, "Tried to prewarm when no messenger had been initialized.");
+      return false;
+    }
+
+    handler.removeCallbacks(prewarmExpiry);
+    requirePositionDispatcher().addSubscription(
+        new PositionSubscription(
+            PREWARM_SUBSCRIPTION_ID,
+            forceLocationManager,
+            locationOptions,
+            location -> {},
+            errorCode -> {
+              Log.e(TAG, "Stopped prewarming: " + errorCode.toDescription());
+              stopPrewarm();
+            }));
+    handler.postDelayed(prewarmExpiry, duration);
+    return true;
+  }
+
+  private void stopPrewarm() {
+    handler.removeCallbacks(prewarmExpiry);
+    if (positionDispatcher != null) {
+      positionDispatcher.removeSubscription(PREWARM_SUBSCRIPTION_ID);
+    }
   }
 
   @SuppressWarnings({"ConstantConditions", "unchecked"})
   @Override
   public void onListen(Object arguments, EventChannel.EventSink events) {
-    try {
-      if (!permissionManager.hasPermission(this.context)) {
-        events.error(
-            ErrorCodes.permissionDenied.toString(),
-            ErrorCodes.permissionDenied.toDescription(),
-            null);
-        return;
-      }
-    } catch (PermissionUndefinedException e) {
-      events.error(
-          ErrorCodes.permissionDefinitionsNotFound.toString(),
-          ErrorCodes.permissionDefinitionsNotFound.toDescription(),
-          null);
+    if (!hasPermission(events)) {
       return;
     }
 
-    if (foregroundLocationService == null) {
-      Log.e(TAG, "Location background service has not started correctly");
+    if (messenger == null) {
+      Log.e(TAG, "Received a position stream request while not listening on a messenger");
       return;
     }
 
     @SuppressWarnings("unchecked")
     Map<String, Object> map = (Map<String, Object>) arguments;
-    boolean forceLocationManager = false;
-    if (map != null && map.get("forceLocationManager") != null) {
-      forceLocationManager = (boolean) map.get("forceLocationManager");
-    }
+    boolean forceLocationManager = isForceLocationManager(map);
     LocationOptions locationOptions = LocationOptions.parseArguments(map);
+    String invalidOptions = locationOptions.validateStreamOptions();
+    if (invalidOptions != null) {
+      ErrorCodes errorCode = ErrorCodes.invalidArguments;
+      events.error(errorCode.toString(), errorCode.toDescription(), invalidOptions);
+      return;
+    }
     ForegroundNotificationOptions foregroundNotificationOptions = null;
 
     if (map != null) {
@@ -124,22 +262,52 @@ class StreamHandlerImpl implements EventChannel.StreamHandler {
           ForegroundNotificationOptions.parseArguments(
               (Map<String, Object>) map.get("foregroundNotificationConfig"));
     }
+    if (foregroundNotificationOptions != null) {
+      invalidOptions = foregroundNotificationOptions.validateStreamOptions(locationOptions);
+      if (invalidOptions != null) {
+        ErrorCodes errorCode = ErrorCodes.invalidArguments;
+        events.error(errorCode.toString(), errorCode.toDescription(), invalidOptions);
+        return;
+      }
+    }
+    if (foregroundNotificationOptions != null && foregroundLocationService == null) {
+      if (foregroundServiceBinder == null) {
+        Log.e(TAG, "Location background service has not started correctly");
+        return;
+      }
+
+      // The foreground service is bound on first use, the stream starts once it is connected.
+      pendingForegroundArguments = arguments;
+      pendingForegroundEvents = events;
+      foregroundServiceBinder.run();
+      return;
+    }
     if (foregroundNotificationOptions != null) {
       Log.e(TAG, "Geolocator position updates started using Android foreground service");
-      foregroundLocationService.startLocationService(forceLocationManager, locationOptions, events);
+      PositionEventSink eventSink =
+          new PositionEventSink(
+              messenger,
+              CHANNEL_NAME,
+              events,
+              locationOptions,
+              foregroundLocationService.getPositionEncoder());
+      positionEventSink = eventSink;
+      foregroundSubscriptionId =
+          foregroundLocationService.startLocationService(
+              forceLocationManager, locationOptions, eventSink);
       foregroundLocationService.enableBackgroundMode(foregroundNotificationOptions);
     } else {
       Log.e(TAG, "Geolocator position updates started");
-      locationClient =
-          geolocationManager.createLocationClient(
-              context, Boolean.TRUE.equals(forceLocationManager), locationOptions);
-
-      geolocationManager.startPositionUpdates(
-          locationClient,
-          activity,
-          (Location location) -> events.success(LocationMapper.toHashMap(location)),
-          (ErrorCodes errorCodes) ->
-              events.error(errorCodes.toString(), errorCodes.toDescription(), null));
+      PositionEventSink eventSink =
+          new PositionEventSink(messenger, CHANNEL_NAME, events, locationOptions, positionEncoder);
+      positionEventSink = eventSink;
+      requirePositionDispatcher().addSubscription(
+          new PositionSubscription(
+              DEFAULT_STREAM_ID,
+              forceLocationManager,
+              locationOptions,
+              eventSink::success,
+              eventSink::error));
     }
   }
 
@@ -150,15 +318,121 @@ class StreamHandlerImpl implements EventChannel.StreamHandler {
 
   private void disposeListeners(boolean cancelled) {
     Log.e(TAG, "Geolocator position updates stopped");
+    pendingForegroundArguments = null;
+    pendingForegroundEvents = null;
+    if (foregroundLocationService != null && foregroundSubscriptionId != null) {
+      foregroundLocationService.stopLocationService(foregroundSubscriptionId);
+      foregroundSubscriptionId = null;
+    }
     if (foregroundLocationService != null && foregroundLocationService.canStopLocationService(cancelled)) {
       foregroundLocationService.stopLocationService();
       foregroundLocationService.disableBackgroundMode();
     } else {
       Log.e(TAG, "There is still another flutter engine connected, not stopping location service");
     }
-    if (locationClient != null && geolocationManager != null) {
-      geolocationManager.stopPositionUpdates(locationClient);
-      locationClient = null;
+    if (positionDispatcher != null) {
+      positionDispatcher.removeSubscription(DEFAULT_STREAM_ID);
+    }
+    if (positionEventSink != null) {
+      positionEventSink.close();
+      positionEventSink = null;
+    }
+  }
+
+  private boolean hasPermission(EventChannel.EventSink events) {
+    try {
+      if (!permissionManager.hasPermission(this.context)) {
+        events.error(
+            ErrorCodes.permissionDenied.toString(),
+            ErrorCodes.permissionDenied.toDescription(),
+            null);
+        return false;
+      }
+    } catch (PermissionUndefinedException e) {
+      events.error(
+          ErrorCodes.permissionDefinitionsNotFound.toString(),
+          ErrorCodes.permissionDefinitionsNotFound.toDescription(),
+          null);
+      return false;
+    }
+
+    return true;
+  }
+
+  private static boolean isForceLocationManager(@Nullable Map<String, Object> map) {
+    return map != null && Boolean.TRUE.equals(map.get("forceLocationManager"));
+  }
+
+  /** Handles a position stream created through {@link #createPositionStream()}. */
+  private class KeyedStreamHandler implements EventChannel.StreamHandler {
+    private final int streamId;
+    private final String channelName;
+    private final EventChannel eventChannel;
+
+    @Nullable private PositionEventSink eventSink;
+
+    KeyedStreamHandler(BinaryMessenger messenger, int streamId) {
+      this.streamId = streamId;
+      this.channelName = CHANNEL_NAME + "/" + streamId;
+      this.eventChannel = new EventChannel(messenger, channelName);
+      this.eventChannel.setStreamHandler(this);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void onListen(Object arguments, EventChannel.EventSink events) {
+      if (!hasPermission(events)) {
+        return;
+      }
+
+      if (messenger == null) {
+        Log.e(TAG, "Received a position stream request while not listening on a messenger");
+        return;
+      }
+
+      Map<String, Object> map = (Map<String, Object>) arguments;
+      if (map != null && map.get("foregroundNotificationConfig") != null) {
+        Log.w(TAG, "Foreground notifications are only supported on the default position stream");
+      }
+
+      LocationOptions locationOptions = LocationOptions.parseArguments(map);
+      String invalidOptions = locationOptions.validateStreamOptions();
+      if (invalidOptions != null) {
+        ErrorCodes errorCode = ErrorCodes.invalidArguments;
+        events.error(errorCode.toString(), errorCode.toDescription(), invalidOptions);
+        return;
+      }
+
+      PositionEventSink sink =
+          new PositionEventSink(messenger, channelName, events, locationOptions, positionEncoder);
+      eventSink = sink;
+
+      Log.d(TAG, "Geolocator position stream " + streamId + " started");
+      requirePositionDispatcher().addSubscription(
+          new PositionSubscription(
+              streamId,
+              isForceLocationManager(map),
+              locationOptions,
+              sink::success,
+              sink::error));
+    }
+
+    @Override
+    public void onCancel(Object arguments) {
+      Log.d(TAG, "Geolocator position stream " + streamId + " stopped");
+      dispose();
+    }
+
+    void dispose() {
+      if (positionDispatcher != null) {
+        positionDispatcher.removeSubscription(streamId);
+      }
+      if (eventSink != null) {
+        eventSink.close();
+        eventSink = null;
+      }
+      eventChannel.setStreamHandler(null);
+      keyedStreamHandlers.remove(streamId);
     }
   }
 }
@@ -0,0 +1,183 @@
+package com.baseflow.geolocator;
+
+import android.location.Location;
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+
+import com.baseflow.geolocator.location.LocationMapper;
+import com.baseflow.geolocator.location.PositionChangedCallback;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aggregates the distance, moving time, speed and elevation gain of a trip from the positions
+ * received by the position streams and the foreground service, so the totals don't require every
+ * position to be sent to the Dart side.
+ *
+ * <p>Only running sums are kept. A position only adds distance once it is further from the last
+ * counted position than their combined accuracy, so the jitter of a device standing still does
+ * not add up. Elevation gain is counted using a hysteresis of {@link #ELEVATION_THRESHOLD}.
+ *
+ * <p>Should only be used from the main thread.
+ */
+class TripStatisticsAggregator implements PositionChangedCallback {
+  // Positions less accurate than this are not used.
+  private static final float MAX_ACCURACY = 50;
+  // Used for positions which don't report their accuracy.
+  private static final float DEFAULT_ACCURACY = 10;
+  private static final double MIN_MOVING_SPEED = 0.5;
+  private static final double ELEVATION_THRESHOLD = 5;
+
+  @Nullable private static TripStatisticsAggregator instance;
+
+  private final float[] distanceResult = new float[1];
+
+  private boolean running = false;
+  private long startTime = 0;
+  private long stopTime = 0;
+  private int positionCount = 0;
+  private int rejectedCount = 0;
+  private double distance = 0;
+  private long movingTime = 0;
+  private double maxSpeed = 0;
+  private double elevationGain = 0;
+  // The time of the last received position, accepted or rejected.
+  private long lastPositionTime = Long.MIN_VALUE;
+
+  // The last position which added distance.
+  private boolean hasAnchor = false;
+  private double anchorLatitude;
+  private double anchorLongitude;
+  private long anchorTime;
+  private float anchorAccuracy;
+
+  private boolean hasElevationReference = false;
+  private double elevationReference;
+
+  static TripStatisticsAggregator getInstance() {
+    if (instance == null) {
+      instance = new TripStatisticsAggregator();
+    }
+    return instance;
+  }
+
+  /** Clears the statistics and starts aggregating the received positions. */
+  void start() {
+    running = true;
+    startTime = SystemClock.elapsedRealtime();
+    positionCount = 0;
+    rejectedCount = 0;
+    distance = 0;
+    movingTime = 0;
+    maxSpeed = 0;
+    elevationGain = 0;
+    lastPositionTime = Long.MIN_VALUE;
+    hasAnchor = false;
+    hasElevationReference = false;
+  }
+
+  /** Stops aggregating, keeping the statistics until the next {@link #start}. */
+  void stop() {
+    if (running) {
+      running = false;
+      stopTime = SystemClock.elapsedRealtime();
+    }
+  }
+
+  @Override
+  public void onPositionChanged(@Nullable Location location) {
+    if (!running || location == null) {
+      return;
+    }
+
+    // The same position can be received through multiple dispatchers, or more than once through
+    // the same dispatcher as a coarse, precise or stationary copy.
+    long time = location.getTime();
+    if (time <= lastPositionTime) {
+      return;
+    }
+    lastPositionTime = time;
+
+    float accuracy = location.hasAccuracy() ? location.getAccuracy() : DEFAULT_ACCURACY;
+    if (accuracy > MAX_ACCURACY) {
+      rejectedCount++;
+      return;
+    }
+
+    positionCount++;
+    if (location.hasSpeed()) {
+      maxSpeed = Math.max(maxSpeed, location.getSpeed());
+    }
+    updateElevation(location);
+
+    if (!hasAnchor) {
+      setAnchor(location, accuracy);
+      return;
+    }
+
+    Location.distanceBetween(
+        anchorLatitude,
+        anchorLongitude,
+        location.getLatitude(),
+        location.getLongitude(),
+        distanceResult);
+    double segment = distanceResult[0];
+    if (segment <= Math.sqrt(accuracy * accuracy + anchorAccuracy * anchorAccuracy)) {
+      return;
+    }
+
+    long duration = time - anchorTime;
+    double segmentSpeed = segment * 1000 / duration;
+    distance += segment;
+    if (segmentSpeed >= MIN_MOVING_SPEED) {
+      movingTime += duration;
+    }
+    if (!location.hasSpeed()) {
+      maxSpeed = Math.max(maxSpeed, segmentSpeed);
+    }
+    setAnchor(location, accuracy);
+  }
+
+  Map<String, Object> toHashMap() {
+    Map<String, Object> statistics = new HashMap<>();
+    statistics.put("distance", distance);
+    statistics.put("movingTime", movingTime);
+    statistics.put(
+        "elapsedTime",
+        startTime == 0 ? 0L : (running ? SystemClock.elapsedRealtime() : stopTime) - startTime);
+    statistics.put("maxSpeed", maxSpeed);
+    statistics.put("averageSpeed", movingTime > 0 ? distance * 1000 / movingTime : 0.0);
+    statistics.put("elevationGain", elevationGain);
+    statistics.put("positionCount", positionCount);
+    statistics.put("rejectedCount", rejectedCount);
+    statistics.put("isRunning", running);
+    return statistics;
+  }
+
+  private void setAnchor(Location location, float accuracy) {
+    hasAnchor = true;
+    anchorLatitude = location.getLatitude();
+    anchorLongitude = location.getLongitude();
+    anchorTime = location.getTime();
+    anchorAccuracy = accuracy;
+  }
+
+  private void updateElevation(Location location) {
+    Double altitude = LocationMapper.getAltitude(location);
+    if (altitude == null) {
+      return;
+    }
+
+    if (!hasElevationReference) {
+      hasElevationReference = true;
+      elevationReference = altitude;
+    } else if (altitude - elevationReference >= ELEVATION_THRESHOLD) {
+      elevationGain += altitude - elevationReference;
+      elevationReference = altitude;
+    } else if (elevationReference - altitude >= ELEVATION_THRESHOLD) {
+      elevationReference = altitude;
+    }
+  }
+}
@@ -0,0 +1,292 @@
+package com.baseflow.geolocator;
+
+import android.app.Activity;
+import android.content.Context;
+import android.location.Location;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.baseflow.geolocator.errors.ErrorCodes;
+import com.baseflow.geolocator.errors.PermissionUndefinedException;
+import com.baseflow.geolocator.location.GeolocationManager;
+import com.baseflow.geolocator.location.LocationMapper;
+import com.baseflow.geolocator.location.LocationOptions;
+import com.baseflow.geolocator.location.LocationServiceListener;
+import com.baseflow.geolocator.location.PositionField;
+import com.baseflow.geolocator.location.PositionSource;
+import com.baseflow.geolocator.permission.LocationPermission;
+import com.baseflow.geolocator.permission.PermissionManager;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+import io.flutter.plugin.common.BinaryMessenger;
+
+/**
+ * Serves the short, frequently issued Geolocator calls using a fixed binary layout instead of the
+ * standard method codec, so no method name or argument map has to be encoded, boxed and parsed.
+ *
+ * <p>A request consists of a single byte method ID followed by the arguments of that method. A
+ * reply starts with {@link #STATUS_SUCCESS} followed by the result, or {@link #STATUS_ERROR}
+ * followed by the ordinal of the {@link ErrorCodes} and its UTF-8 encoded description. All values
+ * are little-endian.
+ */
+class TypedMessageHandlerImpl implements BinaryMessenger.BinaryMessageHandler {
+  static final String CHANNEL_NAME = "flutter.baseflow.com/geolocator_android/typed";
+
+  static final int METHOD_CHECK_PERMISSION = 0;
+  static final int METHOD_IS_LOCATION_SERVICE_ENABLED = 1;
+  static final int METHOD_GET_LAST_KNOWN_POSITION = 2;
+  static final int METHOD_GET_CURRENT_POSITION = 3;
+
+  private static final String TAG = "TypedMessageHandlerImpl";
+  private static final int STATUS_SUCCESS = 0;
+  private static final int STATUS_ERROR = 1;
+
+  private static final int POSITION_PRESENT = 1;
+  private static final int POSITION_HAS_TIMESTAMP = 1 << 1;
+  private static final int POSITION_IS_MOCKED = 1 << 2;
+  // Status, position flags and eight 64-bit values.
+  private static final int POSITION_REPLY_SIZE = 2 + 8 * 8;
+
+  private final PermissionManager permissionManager;
+  private final GeolocationManager geolocationManager;
+
+  @Nullable private Context context;
+
+  @Nullable private Activity activity;
+
+  @Nullable private BinaryMessenger messenger;
+
+  @Nullable private StreamHandlerImpl streamHandler;
+
+  @Nullable private GeolocatorLocationService foregroundLocationService;
+
+  TypedMessageHandlerImpl(
+      PermissionManager permissionManager, GeolocationManager geolocationManager) {
+    this.permissionManager = permissionManager;
+    this.geolocationManager = geolocationManager;
+  }
+
+  /**
+   * Registers this instance as the handler of the typed message channel on the given {@code
+   * messenger}.
+   *
+   * <p>This should be cleaned with {@link #stopListening} once the messenger is disposed of.
+   */
+  void startListening(Context context, BinaryMessenger messenger) {
+    if (this.messenger != null) {
+      Log.w(TAG, "Setting a message handler before the last was disposed.");
+      stopListening();
+    }
+
+    this.messenger = messenger;
+    this.context = context;
+    messenger.setMessageHandler(CHANNEL_NAME, this);
+  }
+
+  /**
+   * Clears this instance from listening to messages.
+   *
+   * <p>Does nothing if {@link #startListening} hasn't been called, or if we're already stopped.
+   */
+  void stopListening() {
+    if (messenger == null) {
+      Log.d(TAG, "Tried to stop listening when no message handler had been registered.");
+      return;
+    }
+
+    messenger.setMessageHandler(CHANNEL_NAME, null);
+    messenger = null;
+  }
+
+  void setActivity(@Nullable Activity activity) {
+    this.activity = activity;
+  }
+
+  void setStreamHandler(@Nullable StreamHandlerImpl streamHandler) {
+    this.streamHandler = streamHandler;
+  }
+
+  void setForegroundLocationService(
+      @Nullable GeolocatorLocationService foregroundLocationService) {
+    this.foregroundLocationService = foregroundLocationService;
+  }
+
+  @Override
+  public void onMessage(@Nullable ByteBuffer message, @NonNull BinaryMessenger.BinaryReply reply) {
+    if (message == null || !message.hasRemaining()) {
+      reply.reply(null);
+      return;
+    }
+
+    message.order(ByteOrder.LITTLE_ENDIAN);
+    switch (message.get()) {
+      case METHOD_CHECK_PERMISSION:
+        onCheckPermission(reply);
+        break;
+      case METHOD_IS_LOCATION_SERVICE_ENABLED:
+        geolocationManager.isLocationServiceEnabled(
+            context,
+            new LocationServiceListener() {
+              @Override
+              public void onLocationServiceResult(boolean isEnabled) {
+                reply.reply(allocate(2).put((byte) (isEnabled ? 1 : 0)));
+              }
+
+              @Override
+              public void onLocationServiceError(ErrorCodes errorCode) {
+                reply.reply(error(errorCode));
+              }
+            });
+        break;
+      case METHOD_GET_LAST_KNOWN_POSITION:
+        // The force location manager flag.
+        if (!message.hasRemaining()) {
+          reply.reply(null);
+          break;
+        }
+        onGetLastKnownPosition(message.get() != 0, reply);
+        break;
+      case METHOD_GET_CURRENT_POSITION:
+        // The force location manager flag followed by the location options.
+        if (message.remaining() < 1 + LocationOptions.ENCODED_SIZE) {
+          reply.reply(null);
+          break;
+        }
+        onGetCurrentPosition(message.get() != 0, LocationOptions.decode(message), reply);
+        break;
+      default:
+        // Replying without a message is how unknown methods are reported on platform channels.
+        reply.reply(null);
+        break;
+    }
+  }
+
+  private void onCheckPermission(BinaryMessenger.BinaryReply reply) {
+    try {
+      LocationPermission permission = permissionManager.checkPermissionStatus(context);
+      reply.reply(allocate(2).put((byte) permission.toInt()));
+    } catch (PermissionUndefinedException e) {
+      reply.reply(error(ErrorCodes.permissionDefinitionsNotFound));
+    }
+  }
+
+  private void onGetLastKnownPosition(
+      boolean forceLocationManager, BinaryMessenger.BinaryReply reply) {
+    ErrorCodes permissionError = checkLocationPermission();
+    if (permissionError != null) {
+      reply.reply(error(permissionError));
+      return;
+    }
+
+    geolocationManager.getLastKnownPosition(
+        context,
+        forceLocationManager,
+        0,
+        (Location location, PositionSource source) ->
+            reply.reply(position(location, PositionField.ALL)),
+        (ErrorCodes errorCode) -> reply.reply(error(errorCode)));
+  }
+
+  private void onGetCurrentPosition(
+      boolean forceLocationManager,
+      LocationOptions locationOptions,
+      BinaryMessenger.BinaryReply reply) {
+    ErrorCodes permissionError = checkLocationPermission();
+    if (permissionError != null) {
+      reply.reply(error(permissionError));
+      return;
+    }
+
+    new CurrentPositionRequest(
+            context,
+            activity,
+            geolocationManager,
+            streamHandler,
+            foregroundLocationService,
+            forceLocationManager,
+            locationOptions,
+            (Location location) -> reply.reply(position(location, locationOptions.getFields())),
+            (ErrorCodes errorCode) -> reply.reply(error(errorCode)))
+        .start();
+  }
+
+  @Nullable
+  private ErrorCodes checkLocationPermission() {
+    try {
+      return permissionManager.hasPermission(context) ? null : ErrorCodes.permissionDenied;
+    } catch (PermissionUndefinedException e) {
+      return ErrorCodes.permissionDefinitionsNotFound;
+    }
+  }
+
+  /**
+   * Writes the flags followed by the latitude, longitude, timestamp, altitude, accuracy, heading,
+   * speed and speed accuracy, using 0 for the values which are not available.
+   */
+  @SuppressWarnings("deprecation")
+  private static ByteBuffer position(@Nullable Location location, int fields) {
+    ByteBuffer buffer = allocate(POSITION_REPLY_SIZE);
+    if (location == null) {
+      return buffer.put((byte) 0);
+    }
+
+    Double altitude =
+        PositionField.altitude.isIn(fields) ? LocationMapper.getAltitude(location) : null;
+    boolean isMocked =
+        PositionField.isMocked.isIn(fields)
+            && (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S
+                ? location.isMock()
+                : Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2
+                    && location.isFromMockProvider());
+
+    int flags = POSITION_PRESENT;
+    if (PositionField.timestamp.isIn(fields)) flags |= POSITION_HAS_TIMESTAMP;
+    if (isMocked) flags |= POSITION_IS_MOCKED;
+
+    buffer.put((byte) flags);
+    buffer.putDouble(location.getLatitude());
+    buffer.putDouble(location.getLongitude());
+    buffer.putLong(PositionField.timestamp.isIn(fields) ? location.getTime() : 0);
+    buffer.putDouble(altitude != null ? altitude : 0);
+    buffer.putDouble(
+        PositionField.accuracy.isIn(fields) && location.hasAccuracy()
+            ? location.getAccuracy()
+            : 0);
+    buffer.putDouble(
+        PositionField.heading.isIn(fields) && location.hasBearing() ? location.getBearing() : 0);
+    buffer.putDouble(
+        PositionField.speed.isIn(fields) && location.hasSpeed() ? location.getSpeed() : 0);
+    buffer.putDouble(
+        PositionField.speedAccuracy.isIn(fields)
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                && location.hasSpeedAccuracy()
+            ? location.getSpeedAccuracyMetersPerSecond()
+            : 0);
+    return buffer;
+  }
+
+  private static ByteBuffer error(ErrorCodes errorCode) {
+    byte[] description = errorCode.toDescription().getBytes(Charset.forName("UTF-8"));
+    ByteBuffer buffer = ByteBuffer.allocateDirect(2 + description.length);
+    buffer.put((byte) STATUS_ERROR);
+    buffer.put((byte) errorCode.ordinal());
+    buffer.put(description);
+    return buffer;
+  }
+
+  /**
+   * Allocates a success reply of the given size. Replies are handed to the engine with their
+   * position at the end of the written data.
+   */
+  private static ByteBuffer allocate(int size) {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.put((byte) STATUS_SUCCESS);
+    return buffer;
+  }
+}
@@ -6,7 +6,8 @@ public enum ErrorCodes {
   locationServicesDisabled,
   permissionDefinitionsNotFound,
   permissionDenied,
-  permissionRequestInProgress;
+  permissionRequestInProgress,
+  invalidArguments;
 
   public String toString() {
     switch (this) {
@@ -22,6 +23,8 @@ public enum ErrorCodes {
         return "PERMISSION_DENIED";
       case permissionRequestInProgress:
         return "PERMISSION_REQUEST_IN_PROGRESS";
+      case invalidArguments:
+        return "INVALID_ARGUMENTS";
       default:
         throw new IndexOutOfBoundsException();
     }
@@ -41,6 +44,8 @@ public enum ErrorCodes {
         return "User denied permissions to access the device's location.";
       case permissionRequestInProgress:
         return "Already listening for location updates. If you want to restart listening please cancel other subscriptions first";
+      case invalidArguments:
+        return "The supplied arguments are invalid. The error details describe which argument is invalid and why.";
       default:
         throw new IndexOutOfBoundsException();
     }
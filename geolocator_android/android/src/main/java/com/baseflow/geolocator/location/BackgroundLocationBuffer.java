@@ -0,0 +1,180 @@
+package com.baseflow.geolocator.location;
+
+import android.content.Context;
+import android.location.Location;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Persists positions received by the {@link LocationUpdatesBroadcastReceiver} while no Flutter
+ * engine is listening, so they survive the process being killed until they are requested.
+ *
+ * <p>All file access happens on a single background thread.
+ */
+public class BackgroundLocationBuffer {
+  private static final String TAG = "FlutterGeolocator";
+  private static final String FILE_NAME = "geolocator_background_positions.csv";
+  // Once the buffer grows beyond this number of positions, the oldest positions are discarded.
+  private static final int MAX_POSITIONS = 5000;
+  private static final long MAX_FILE_SIZE = MAX_POSITIONS * 128L;
+
+  @Nullable private static BackgroundLocationBuffer instance;
+
+  private final File file;
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  private BackgroundLocationBuffer(Context context) {
+    this.file = new File(context.getFilesDir(), FILE_NAME);
+  }
+
+  public static synchronized BackgroundLocationBuffer getInstance(@NonNull Context context) {
+    if (instance == null) {
+      instance = new BackgroundLocationBuffer(context.getApplicationContext());
+    }
+    return instance;
+  }
+
+  /** Appends the supplied positions to the buffer and runs {@code onComplete} when done. */
+  public void append(@NonNull List<Location> locations, @Nullable Runnable onComplete) {
+    executor.execute(
+        () -> {
+          try (Writer writer = new FileWriter(file, true)) {
+            for (Location location : locations) {
+              writer.write(encode(location));
+              writer.write('\n');
+            }
+          } catch (IOException e) {
+            Log.e(TAG, "Failed to store background positions", e);
+          }
+
+          if (file.length() > MAX_FILE_SIZE) {
+            List<Location> stored = read();
+            write(stored.subList(Math.max(0, stored.size() - MAX_POSITIONS / 2), stored.size()));
+          }
+
+          if (onComplete != null) {
+            onComplete.run();
+          }
+        });
+  }
+
+  /**
+   * Removes all positions from the buffer and hands them, oldest first, to the supplied callback
+   * on the main thread.
+   */
+  public void drain(@NonNull Callback callback) {
+    executor.execute(
+        () -> {
+          List<Location> locations = read();
+          if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Failed to clear background positions");
+          }
+          mainHandler.post(() -> callback.onLocations(locations));
+        });
+  }
+
+  private List<Location> read() {
+    List<Location> locations = new ArrayList<>();
+    if (!file.exists()) {
+      return locations;
+    }
+
+    try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        Location location = decode(line);
+        if (location != null) {
+          locations.add(location);
+        }
+      }
+    } catch (IOException e) {
+      Log.e(TAG, "Failed to read background positions", e);
+    }
+    return locations;
+  }
+
+  private void write(List<Location> locations) {
+    try (Writer writer = new FileWriter(file, false)) {
+      for (Location location : locations) {
+        writer.write(encode(location));
+        writer.write('\n');
+      }
+    } catch (IOException e) {
+      Log.e(TAG, "Failed to store background positions", e);
+    }
+  }
+
+  @SuppressWarnings("deprecation")
+  static String encode(Location location) {
+    boolean isMocked =
+        Build.VERSION.SDK_INT >= Build.VERSION_CODES.S
+            ? location.isMock()
+            : Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2
+                && location.isFromMockProvider();
+
+    return location.getTime()
+        + ","
+        + location.getLatitude()
+        + ","
+        + location.getLongitude()
+        + ","
+        + (location.hasAltitude() ? location.getAltitude() : "")
+        + ","
+        + (location.hasAccuracy() ? location.getAccuracy() : "")
+        + ","
+        + (location.hasBearing() ? location.getBearing() : "")
+        + ","
+        + (location.hasSpeed() ? location.getSpeed() : "")
+        + ","
+        + (location.getProvider() != null ? location.getProvider() : "")
+        + ","
+        + isMocked;
+  }
+
+  @Nullable
+  static Location decode(String line) {
+    String[] tokens = line.split(",", -1);
+    if (tokens.length < 9) {
+      return null;
+    }
+
+    try {
+      Location location = new Location(tokens[7]);
+      location.setTime(Long.parseLong(tokens[0]));
+      location.setLatitude(Double.parseDouble(tokens[1]));
+      location.setLongitude(Double.parseDouble(tokens[2]));
+      if (!tokens[3].isEmpty()) location.setAltitude(Double.parseDouble(tokens[3]));
+      if (!tokens[4].isEmpty()) location.setAccuracy(Float.parseFloat(tokens[4]));
+      if (!tokens[5].isEmpty()) location.setBearing(Float.parseFloat(tokens[5]));
+      if (!tokens[6].isEmpty()) location.setSpeed(Float.parseFloat(tokens[6]));
+      if (Boolean.parseBoolean(tokens[8]) && Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+        location.setMock(true);
+      }
+      return location;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  @FunctionalInterface
+  public interface Callback {
+    void onLocations(List<Location> locations);
+  }
+}
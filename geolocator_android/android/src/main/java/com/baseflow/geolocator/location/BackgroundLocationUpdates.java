@@ -0,0 +1,140 @@
+package com.baseflow.geolocator.location;
+
+import android.annotation.SuppressLint;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.location.Location;
+import android.location.LocationManager;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.baseflow.geolocator.errors.ErrorCallback;
+import com.baseflow.geolocator.errors.ErrorCodes;
+import com.google.android.gms.location.LocationServices;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Requests location updates which are delivered in batches through a {@link PendingIntent} to the
+ * {@link LocationUpdatesBroadcastReceiver}.
+ *
+ * <p>Contrary to position streams, these updates do not require a bound service or a living
+ * process. Between batches the process is free to sleep or even be killed. Received positions are
+ * handed to the registered listeners when a Flutter engine is listening, or stored in the {@link
+ * BackgroundLocationBuffer} otherwise.
+ */
+public class BackgroundLocationUpdates {
+  private static final String TAG = "FlutterGeolocator";
+  private static final int REQUEST_CODE = 0x6765;
+
+  static final String ACTION_LOCATION_UPDATES =
+      "com.baseflow.geolocator.location.ACTION_LOCATION_UPDATES";
+
+  private static final List<PositionChangedCallback> listeners = new CopyOnWriteArrayList<>();
+
+  @SuppressLint("MissingPermission")
+  public static void start(
+      @NonNull Context context,
+      boolean forceLocationManager,
+      @NonNull LocationOptions locationOptions,
+      @NonNull Runnable onStarted,
+      @NonNull ErrorCallback errorCallback) {
+    stop(context);
+
+    PendingIntent pendingIntent = getPendingIntent(context);
+
+    if (!forceLocationManager && GeolocationManager.isGooglePlayServicesAvailable(context)) {
+      LocationServices.getFusedLocationProviderClient(context)
+          .requestLocationUpdates(
+              FusedLocationClient.buildLocationRequest(locationOptions), pendingIntent)
+          .addOnSuccessListener(result -> onStarted.run())
+          .addOnFailureListener(
+              e -> {
+                Log.e(TAG, "Failed to request background location updates", e);
+                errorCallback.onError(ErrorCodes.errorWhileAcquiringPosition);
+              });
+      return;
+    }
+
+    LocationManager locationManager =
+        (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
+    String provider =
+        locationManager != null
+            ? LocationManagerClient.getBestProvider(locationManager, locationOptions.getAccuracy())
+            : null;
+
+    if (provider == null || provider.trim().isEmpty()) {
+      errorCallback.onError(ErrorCodes.locationServicesDisabled);
+      return;
+    }
+
+    locationManager.requestLocationUpdates(
+        provider,
+        locationOptions.getTimeInterval(),
+        locationOptions.getDistanceFilter(),
+        pendingIntent);
+    onStarted.run();
+  }
+
+  public static void stop(@NonNull Context context) {
+    PendingIntent pendingIntent = getPendingIntent(context);
+
+    try {
+      if (GeolocationManager.isGooglePlayServicesAvailable(context)) {
+        LocationServices.getFusedLocationProviderClient(context)
+            .removeLocationUpdates(pendingIntent);
+      }
+    } catch (NoClassDefFoundError e) {
+      // Google Play Services have been excluded, only the LocationManager could have been used.
+    }
+
+    LocationManager locationManager =
+        (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
+    if (locationManager != null) {
+      locationManager.removeUpdates(pendingIntent);
+    }
+  }
+
+  public static void addListener(@NonNull PositionChangedCallback listener) {
+    listeners.add(listener);
+  }
+
+  public static void removeListener(@NonNull PositionChangedCallback listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Hands the supplied positions to the registered listeners.
+   *
+   * @return {@code false} when no listeners are registered and the positions have not been
+   *     delivered.
+   */
+  static boolean dispatch(@NonNull List<Location> locations) {
+    if (listeners.isEmpty()) {
+      return false;
+    }
+
+    for (PositionChangedCallback listener : listeners) {
+      for (Location location : locations) {
+        listener.onPositionChanged(location);
+      }
+    }
+    return true;
+  }
+
+  private static PendingIntent getPendingIntent(Context context) {
+    Intent intent = new Intent(context, LocationUpdatesBroadcastReceiver.class);
+    intent.setAction(ACTION_LOCATION_UPDATES);
+
+    int flags = PendingIntent.FLAG_UPDATE_CURRENT;
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+      // The location providers add the positions as extras, which requires a mutable intent.
+      flags = flags | PendingIntent.FLAG_MUTABLE;
+    }
+    return PendingIntent.getBroadcast(context, REQUEST_CODE, intent, flags);
+  }
+}
@@ -18,6 +18,9 @@ public class ForegroundNotificationOptions {
     private final boolean enableWifiLock;
     @NonNull
     private final boolean enableWakeLock;
+    @NonNull
+    private final boolean dutyCycleWakeLock;
+    private final long stationaryTimeout;
 
 
     public static ForegroundNotificationOptions parseArguments(@Nullable  Map<String, Object> arguments) {
@@ -30,21 +33,27 @@ public class ForegroundNotificationOptions {
     final String notificationText = (String) arguments.get("notificationText");
     final Boolean enableWifiLock = (Boolean) arguments.get("enableWifiLock");
     final Boolean enableWakeLock = (Boolean) arguments.get("enableWakeLock");
+    final Boolean dutyCycleWakeLock = (Boolean) arguments.get("dutyCycleWakeLock");
+    final Integer stationaryTimeout = (Integer) arguments.get("stationaryTimeout");
 
     return new ForegroundNotificationOptions(
             notificationTitle,
             notificationText,
             notificationIcon,
             enableWifiLock,
-            enableWakeLock);
+            enableWakeLock,
+            dutyCycleWakeLock != null && dutyCycleWakeLock,
+            stationaryTimeout != null ? stationaryTimeout : 0);
   }
 
-    private ForegroundNotificationOptions(String notificationTitle, String notificationText, AndroidIconResource notificationIcon, boolean enableWifiLock, boolean enableWakeLock) {
+    private ForegroundNotificationOptions(String notificationTitle, String notificationText, AndroidIconResource notificationIcon, boolean enableWifiLock, boolean enableWakeLock, boolean dutyCycleWakeLock, long stationaryTimeout) {
         this.notificationTitle = notificationTitle;
         this.notificationText = notificationText;
         this.notificationIcon = notificationIcon;
         this.enableWifiLock = enableWifiLock;
         this.enableWakeLock = enableWakeLock;
+        this.dutyCycleWakeLock = dutyCycleWakeLock;
+        this.stationaryTimeout = stationaryTimeout;
     }
 
     public String getNotificationTitle() {
@@ -67,4 +76,32 @@ public class ForegroundNotificationOptions {
         return enableWakeLock;
     }
 
+    public boolean isDutyCycleWakeLock() {
+        return dutyCycleWakeLock;
+    }
+
+    /**
+     * The time in milliseconds without motion after which the location service only receives
+     * passive positions, or 0 when positions are requested regardless of motion.
+     */
+    public long getStationaryTimeout() {
+        return stationaryTimeout;
+    }
+
+    /**
+     * Returns why these options can't be used for a position stream using {@code
+     * locationOptions}, or {@code null} when they can.
+     *
+     * <p>The stationary marker is only carried by map encoded positions on the channel transport.
+     */
+    @Nullable
+    public String validateStreamOptions(@NonNull LocationOptions locationOptions) {
+        if (stationaryTimeout > 0
+            && (locationOptions.getEncoding() != PositionEncoding.map
+                || locationOptions.getTransport() != PositionTransport.channel)) {
+            return "A stationary timeout requires the 'map' encoding and the 'channel' transport.";
+        }
+        return null;
+    }
+
 }
@@ -5,6 +5,7 @@ import android.app.Activity;
 import android.content.Context;
 import android.content.IntentSender;
 import android.location.Location;
+import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 
@@ -30,6 +31,13 @@ import com.google.android.gms.location.SettingsClient;
 
 import java.security.SecureRandom;
 
+/**
+ * Requests positions from the {@link FusedLocationProviderClient}.
+ *
+ * <p>All state is confined to the main thread. Positions and availability changes are delivered on
+ * the main looper and calls to start or stop position updates made from other threads are posted
+ * to it, so no locking is needed.
+ */
 class FusedLocationClient implements LocationClient {
   private static final String TAG = "FlutterGeolocator";
 
@@ -38,10 +46,14 @@ class FusedLocationClient implements LocationClient {
   private final FusedLocationProviderClient fusedLocationProviderClient;
   private final NmeaClient nmeaClient;
   private final int activityRequestCode;
-  @Nullable private final LocationOptions locationOptions;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  @Nullable private LocationOptions locationOptions;
 
   @Nullable private ErrorCallback errorCallback;
   @Nullable private PositionChangedCallback positionChangedCallback;
+  private boolean isListening = false;
+  // Identifies the current start request, so callbacks of previous sessions can be ignored.
+  private int session = 0;
 
   public FusedLocationClient(@NonNull Context context, @Nullable LocationOptions locationOptions) {
     this.context = context;
@@ -53,7 +65,12 @@ class FusedLocationClient implements LocationClient {
     locationCallback =
         new LocationCallback() {
           @Override
-          public synchronized void onLocationResult(@NonNull LocationResult locationResult) {
+          public void onLocationResult(@NonNull LocationResult locationResult) {
+            if (!isListening) {
+              // Delivered after the updates have been stopped.
+              return;
+            }
+
             if (positionChangedCallback == null) {
               Log.e(
                   TAG,
@@ -65,14 +82,21 @@ class FusedLocationClient implements LocationClient {
               return;
             }
 
-            Location location = locationResult.getLastLocation();
-            nmeaClient.enrichExtrasWithNmea(location);
-            positionChangedCallback.onPositionChanged(location);
+            // A batched result (see setMaxWaitTime) is ordered from oldest to newest, so every
+            // position is delivered in order instead of only the last one.
+            for (Location location : locationResult.getLocations()) {
+              nmeaClient.enrichExtrasWithNmea(location);
+              positionChangedCallback.onPositionChanged(location);
+            }
           }
 
           @Override
-          public synchronized void onLocationAvailability(
+          public void onLocationAvailability(
               @NonNull LocationAvailability locationAvailability) {
+            if (!isListening) {
+              return;
+            }
+
             if (!locationAvailability.isLocationAvailable() && !checkLocationService(context)) {
               if (errorCallback != null) {
                 errorCallback.onError(ErrorCodes.locationServicesDisabled);
@@ -82,14 +106,20 @@ class FusedLocationClient implements LocationClient {
         };
   }
 
-  private static LocationRequest buildLocationRequest(@Nullable LocationOptions options) {
+  static LocationRequest buildLocationRequest(@Nullable LocationOptions options) {
     LocationRequest locationRequest = LocationRequest.create();
 
     if (options != null) {
       locationRequest.setPriority(toPriority(options.getAccuracy()));
       locationRequest.setInterval(options.getTimeInterval());
-      locationRequest.setFastestInterval(options.getTimeInterval() / 2);
+      // Significant location changes also use the positions requested by other apps, which
+      // come without any additional power cost.
+      locationRequest.setFastestInterval(
+          options.getSignificantChangeDistance() > 0 ? 0 : options.getTimeInterval() / 2);
       locationRequest.setSmallestDisplacement(options.getDistanceFilter());
+      if (options.getMaxUpdateDelay() > 0) {
+        locationRequest.setMaxWaitTime(options.getMaxUpdateDelay());
+      }
     }
 
     return locationRequest;
@@ -116,7 +146,7 @@ class FusedLocationClient implements LocationClient {
     }
   }
 
-  private synchronized int generateActivityRequestCode() {
+  private int generateActivityRequestCode() {
     SecureRandom random = new SecureRandom();
     return random.nextInt(1 << 16);
   }
@@ -174,7 +204,8 @@ class FusedLocationClient implements LocationClient {
       if (resultCode == Activity.RESULT_OK) {
         if (this.locationOptions == null
             || this.positionChangedCallback == null
-            || this.errorCallback == null) {
+            || this.errorCallback == null
+            || !isListening) {
           return false;
         }
 
@@ -196,9 +227,15 @@ class FusedLocationClient implements LocationClient {
       @Nullable Activity activity,
       @NonNull PositionChangedCallback positionChangedCallback,
       @NonNull ErrorCallback errorCallback) {
+    if (Looper.myLooper() != Looper.getMainLooper()) {
+      handler.post(() -> startPositionUpdates(activity, positionChangedCallback, errorCallback));
+      return;
+    }
 
     this.positionChangedCallback = positionChangedCallback;
     this.errorCallback = errorCallback;
+    this.isListening = true;
+    final int startedSession = ++session;
 
     LocationRequest locationRequest = buildLocationRequest(this.locationOptions);
     LocationSettingsRequest settingsRequest = buildLocationSettingsRequest(locationRequest);
@@ -207,9 +244,18 @@ class FusedLocationClient implements LocationClient {
     settingsClient
         .checkLocationSettings(settingsRequest)
         .addOnSuccessListener(
-            locationSettingsResponse -> requestPositionUpdates(this.locationOptions))
+            locationSettingsResponse -> {
+              // The updates might have been stopped while the settings were being checked.
+              if (isListening && startedSession == session) {
+                requestPositionUpdates(this.locationOptions);
+              }
+            })
         .addOnFailureListener(
             e -> {
+              if (!isListening || startedSession != session) {
+                return;
+              }
+
               if (e instanceof ResolvableApiException) {
                 // When we don't have an activity return an error code explaining the
                 // location services are not enabled
@@ -246,7 +292,24 @@ class FusedLocationClient implements LocationClient {
   }
 
   public void stopPositionUpdates() {
+    if (Looper.myLooper() != Looper.getMainLooper()) {
+      handler.post(this::stopPositionUpdates);
+      return;
+    }
+
+    this.isListening = false;
     this.nmeaClient.stop();
     fusedLocationProviderClient.removeLocationUpdates(locationCallback);
   }
+
+  /**
+   * Prepares this client to be reused with the supplied options, should only be called while the
+   * client is stopped.
+   */
+  void reset(@Nullable LocationOptions locationOptions) {
+    this.locationOptions = locationOptions;
+    this.positionChangedCallback = null;
+    this.errorCallback = null;
+    this.nmeaClient.setLocationOptions(locationOptions);
+  }
 }
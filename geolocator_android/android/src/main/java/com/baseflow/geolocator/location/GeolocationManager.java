@@ -3,6 +3,7 @@ package com.baseflow.geolocator.location;
 import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
+import android.location.Location;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -19,7 +20,11 @@ import java.util.concurrent.CopyOnWriteArrayList;
 public class GeolocationManager
     implements io.flutter.plugin.common.PluginRegistry.ActivityResultListener {
 
+  @Nullable private static volatile ReplayOptions replayOptions;
+
   private final List<LocationClient> locationClients;
+  @Nullable private LocationClientPool locationClientPool;
+  @Nullable private LastKnownPositionStore lastKnownPositionStore;
 
   public GeolocationManager() {
     this.locationClients = new CopyOnWriteArrayList<>();
@@ -31,8 +36,64 @@ public class GeolocationManager
       PositionChangedCallback positionChangedCallback,
       ErrorCallback errorCallback) {
 
-    LocationClient locationClient = createLocationClient(context, forceLocationManager, null);
+    LocationClient locationClient = acquireLocationClient(context, forceLocationManager, null);
     locationClient.getLastKnownPosition(positionChangedCallback, errorCallback);
+    // Requesting the last known position doesn't depend on the state of the client.
+    releaseLocationClient(locationClient);
+  }
+
+  /**
+   * Returns the better of the position kept by the {@link LastKnownPositionStore} and the last
+   * known position of the platform, together with its source.
+   *
+   * <p>When the stored position is at most {@code maxAge} milliseconds old it is returned right
+   * away, without asking the platform. When the platform has no position or fails, the stored
+   * position is returned.
+   */
+  public void getLastKnownPosition(
+      Context context,
+      boolean forceLocationManager,
+      long maxAge,
+      LastKnownPositionCallback lastKnownPositionCallback,
+      ErrorCallback errorCallback) {
+    if (replayOptions != null) {
+      getLastKnownPosition(
+          context,
+          forceLocationManager,
+          (Location location) ->
+              lastKnownPositionCallback.onLastKnownPosition(
+                  location, location != null ? PositionSource.platform : null),
+          errorCallback);
+      return;
+    }
+
+    LastKnownPositionStore store = getLastKnownPositionStore(context);
+    Location storedLocation = store.get();
+    PositionSource storedSource = storedLocation != null ? store.getSource() : null;
+    if (storedLocation != null && LastKnownPositionStore.getAge(storedLocation) <= maxAge) {
+      lastKnownPositionCallback.onLastKnownPosition(storedLocation, storedSource);
+      return;
+    }
+
+    getLastKnownPosition(
+        context,
+        forceLocationManager,
+        (Location location) -> {
+          if (location != null
+              && LocationManagerClient.isBetterLocation(location, storedLocation)) {
+            store.record(location);
+            lastKnownPositionCallback.onLastKnownPosition(location, PositionSource.platform);
+          } else {
+            lastKnownPositionCallback.onLastKnownPosition(storedLocation, storedSource);
+          }
+        },
+        (ErrorCodes errorCode) -> {
+          if (storedLocation != null) {
+            lastKnownPositionCallback.onLastKnownPosition(storedLocation, storedSource);
+          } else {
+            errorCallback.onError(errorCode);
+          }
+        });
   }
 
   public void isLocationServiceEnabled(
@@ -41,8 +102,9 @@ public class GeolocationManager
       listener.onLocationServiceError(ErrorCodes.locationServicesDisabled);
     }
 
-    LocationClient locationClient = createLocationClient(context, false, null);
+    LocationClient locationClient = acquireLocationClient(context, false, null);
     locationClient.isLocationServiceEnabled(listener);
+    releaseLocationClient(locationClient);
   }
 
   public void startPositionUpdates(
@@ -52,7 +114,21 @@ public class GeolocationManager
       @NonNull ErrorCallback errorCallback) {
 
     this.locationClients.add(locationClient);
-    locationClient.startPositionUpdates(activity, positionChangedCallback, errorCallback);
+    // Replayed positions are not real, so they are not kept as last known position.
+    final LastKnownPositionStore store =
+        locationClient instanceof ReplayLocationClient ? null : lastKnownPositionStore;
+    if (store == null) {
+      locationClient.startPositionUpdates(activity, positionChangedCallback, errorCallback);
+      return;
+    }
+
+    locationClient.startPositionUpdates(
+        activity,
+        (Location location) -> {
+          store.record(location);
+          positionChangedCallback.onPositionChanged(location);
+        },
+        errorCallback);
   }
 
   public void stopPositionUpdates(@NonNull LocationClient locationClient) {
@@ -60,10 +136,29 @@ public class GeolocationManager
     locationClient.stopPositionUpdates();
   }
 
+  /**
+   * Replaces the location providers of the device by the supplied recorded trace for all location
+   * clients created from now on, or restores the device providers when {@code null}.
+   */
+  public static void setReplayOptions(@Nullable ReplayOptions replayOptions) {
+    GeolocationManager.replayOptions = replayOptions;
+  }
+
+  /** Moves all running replays to the supplied offset in milliseconds from the start of the trace. */
+  public static void seekReplay(long offset) {
+    ReplayLocationClient.seekActiveClients(offset);
+  }
+
   public LocationClient createLocationClient(
       Context context,
       boolean forceAndroidLocationManager,
       @Nullable LocationOptions locationOptions) {
+    getLastKnownPositionStore(context);
+    ReplayOptions replayOptions = GeolocationManager.replayOptions;
+    if (replayOptions != null) {
+      return new ReplayLocationClient(context, locationOptions, replayOptions);
+    }
+
     if (forceAndroidLocationManager) {
       return new LocationManagerClient(context, locationOptions);
     }
@@ -73,7 +168,47 @@ public class GeolocationManager
         : new LocationManagerClient(context, locationOptions);
   }
 
-  private boolean isGooglePlayServicesAvailable(Context context) {
+  /**
+   * Leases a location client for a short-lived request, which should be returned using {@link
+   * #releaseLocationClient} once its position updates have been stopped.
+   *
+   * <p>Contrary to {@link #createLocationClient} the client might be reused from a previous
+   * request, avoiding the cost of setting up a new client for every request.
+   */
+  public LocationClient acquireLocationClient(
+      Context context,
+      boolean forceAndroidLocationManager,
+      @Nullable LocationOptions locationOptions) {
+    if (replayOptions != null) {
+      return createLocationClient(context, forceAndroidLocationManager, locationOptions);
+    }
+
+    getLastKnownPositionStore(context);
+    if (locationClientPool == null || locationClientPool.getContext() != context) {
+      locationClientPool = new LocationClientPool(context);
+    }
+
+    if (!forceAndroidLocationManager && isGooglePlayServicesAvailable(context)) {
+      return locationClientPool.acquireFusedLocationClient(locationOptions);
+    }
+    return locationClientPool.acquireLocationManagerClient(locationOptions);
+  }
+
+  /** Returns a location client leased using {@link #acquireLocationClient} to the pool. */
+  public void releaseLocationClient(@NonNull LocationClient locationClient) {
+    if (locationClientPool != null) {
+      locationClientPool.release(locationClient);
+    }
+  }
+
+  private LastKnownPositionStore getLastKnownPositionStore(Context context) {
+    if (lastKnownPositionStore == null) {
+      lastKnownPositionStore = LastKnownPositionStore.getInstance(context);
+    }
+    return lastKnownPositionStore;
+  }
+
+  static boolean isGooglePlayServicesAvailable(Context context) {
     try {
       GoogleApiAvailability googleApiAvailability = GoogleApiAvailability.getInstance();
       int resultCode = googleApiAvailability.isGooglePlayServicesAvailable(context);
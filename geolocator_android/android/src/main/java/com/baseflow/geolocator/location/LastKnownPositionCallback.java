@@ -0,0 +1,10 @@
+package com.baseflow.geolocator.location;
+
+import android.location.Location;
+
+import androidx.annotation.Nullable;
+
+@FunctionalInterface
+public interface LastKnownPositionCallback {
+  void onLastKnownPosition(@Nullable Location location, @Nullable PositionSource source);
+}
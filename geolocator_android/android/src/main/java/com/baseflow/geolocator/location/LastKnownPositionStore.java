@@ -0,0 +1,151 @@
+package com.baseflow.geolocator.location;
+
+import android.content.Context;
+import android.location.Location;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps the best recent position in memory and in a small file, so a last known position is
+ * available right away, also after a reboot or when the platform providers have none cached.
+ *
+ * <p>The file is written on a single background thread, at most once every {@link
+ * #WRITE_INTERVAL} milliseconds. Positions should only be recorded from the main thread.
+ */
+public class LastKnownPositionStore {
+  private static final String TAG = "FlutterGeolocator";
+  private static final String FILE_NAME = "geolocator_last_known_position.csv";
+  private static final long WRITE_INTERVAL = 30000;
+
+  @Nullable private static LastKnownPositionStore instance;
+
+  private final File file;
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  private final Runnable writeRunnable = this::write;
+
+  @Nullable private Location location;
+  private PositionSource source = PositionSource.memory;
+  private boolean loaded = false;
+  private boolean writeScheduled = false;
+  private long lastWriteTime = 0;
+
+  private LastKnownPositionStore(Context context) {
+    this.file = new File(context.getFilesDir(), FILE_NAME);
+  }
+
+  public static synchronized LastKnownPositionStore getInstance(@NonNull Context context) {
+    if (instance == null) {
+      instance = new LastKnownPositionStore(context.getApplicationContext());
+    }
+    return instance;
+  }
+
+  /** Reads the stored position on the background thread, so it is in memory once requested. */
+  public void preload() {
+    executor.execute(this::get);
+  }
+
+  /** Returns the best recent position, reading it from the file when not in memory yet. */
+  @Nullable
+  public synchronized Location get() {
+    if (!loaded) {
+      loaded = true;
+      location = read();
+      source = PositionSource.disk;
+    }
+    return location;
+  }
+
+  @NonNull
+  public synchronized PositionSource getSource() {
+    return source;
+  }
+
+  /** Keeps the supplied position when it is better than the stored one. */
+  public void record(@Nullable Location newLocation) {
+    if (newLocation == null) {
+      return;
+    }
+
+    synchronized (this) {
+      Location current = get();
+      if (current != null && !LocationManagerClient.isBetterLocation(newLocation, current)) {
+        return;
+      }
+      location = newLocation;
+      source = PositionSource.memory;
+    }
+
+    if (!writeScheduled) {
+      writeScheduled = true;
+      long delay = Math.max(0, lastWriteTime + WRITE_INTERVAL - SystemClock.elapsedRealtime());
+      mainHandler.postDelayed(writeRunnable, delay);
+    }
+  }
+
+  /** Returns the age of the supplied location in milliseconds. */
+  public static long getAge(@NonNull Location location) {
+    // Positions read from the file have no elapsed realtime, which also isn't valid after a reboot.
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1
+        && location.getElapsedRealtimeNanos() > 0) {
+      return (SystemClock.elapsedRealtimeNanos() - location.getElapsedRealtimeNanos()) / 1000000;
+    }
+    return System.currentTimeMillis() - location.getTime();
+  }
+
+  private void write() {
+    writeScheduled = false;
+    lastWriteTime = SystemClock.elapsedRealtime();
+    Location snapshot = get();
+    if (snapshot == null) {
+      return;
+    }
+
+    String line = BackgroundLocationBuffer.encode(snapshot);
+    executor.execute(
+        () -> {
+          // Write to a temporary file first, so a partially written file is never read.
+          File temporaryFile = new File(file.getPath() + ".tmp");
+          try (Writer writer = new FileWriter(temporaryFile, false)) {
+            writer.write(line);
+          } catch (IOException e) {
+            Log.e(TAG, "Failed to store the last known position", e);
+            return;
+          }
+          if (!temporaryFile.renameTo(file)) {
+            Log.w(TAG, "Failed to replace the stored last known position");
+          }
+        });
+  }
+
+  @Nullable
+  private Location read() {
+    if (!file.exists()) {
+      return null;
+    }
+
+    try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+      String line = reader.readLine();
+      return line != null ? BackgroundLocationBuffer.decode(line) : null;
+    } catch (IOException e) {
+      Log.e(TAG, "Failed to read the stored last known position", e);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package com.baseflow.geolocator.location;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Keeps a small number of idle {@link FusedLocationClient} and {@link LocationManagerClient}
+ * instances around, so bursts of one-shot requests don't have to set up a new client every time.
+ *
+ * <p>Should only be used from the main thread.
+ */
+class LocationClientPool {
+  private static final int MAX_IDLE_CLIENTS = 2;
+
+  private final Context context;
+  private final Deque<FusedLocationClient> fusedLocationClients = new ArrayDeque<>();
+  private final Deque<LocationManagerClient> locationManagerClients = new ArrayDeque<>();
+
+  LocationClientPool(@NonNull Context context) {
+    this.context = context;
+  }
+
+  Context getContext() {
+    return context;
+  }
+
+  FusedLocationClient acquireFusedLocationClient(@Nullable LocationOptions locationOptions) {
+    FusedLocationClient client = fusedLocationClients.poll();
+    if (client == null) {
+      return new FusedLocationClient(context, locationOptions);
+    }
+
+    client.reset(locationOptions);
+    return client;
+  }
+
+  LocationManagerClient acquireLocationManagerClient(@Nullable LocationOptions locationOptions) {
+    LocationManagerClient client = locationManagerClients.poll();
+    if (client == null) {
+      return new LocationManagerClient(context, locationOptions);
+    }
+
+    client.reset(locationOptions);
+    return client;
+  }
+
+  /** Returns a client, which must have been stopped, to the pool. */
+  void release(@NonNull LocationClient locationClient) {
+    if (locationClient instanceof FusedLocationClient) {
+      offer(fusedLocationClients, (FusedLocationClient) locationClient);
+    } else if (locationClient instanceof LocationManagerClient) {
+      offer(locationManagerClients, (LocationManagerClient) locationClient);
+    }
+  }
+
+  private static <T extends LocationClient> void offer(Deque<T> clients, T client) {
+    if (clients.size() < MAX_IDLE_CLIENTS && !clients.contains(client)) {
+      clients.push(client);
+    }
+  }
+}
@@ -6,25 +6,39 @@ import android.app.Activity;
 import android.content.Context;
 import android.location.Criteria;
 import android.location.Location;
-import android.location.LocationListener;
 import android.location.LocationManager;
 import android.os.Bundle;
+import android.os.Handler;
 import android.os.Looper;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.location.LocationListenerCompat;
+import androidx.core.location.LocationManagerCompat;
+import androidx.core.location.LocationRequestCompat;
 
 import com.baseflow.geolocator.errors.ErrorCallback;
 import com.baseflow.geolocator.errors.ErrorCodes;
 
 import java.util.List;
 
-class LocationManagerClient implements LocationClient, LocationListener {
+/**
+ * Requests positions from the {@link LocationManager}.
+ *
+ * <p>All state is confined to the main thread. Positions and provider changes are delivered on the
+ * main looper and calls to start or stop position updates made from other threads are posted to
+ * it, so no locking is needed.
+ *
+ * <p>When a maximum update delay is requested, positions are batched by the platform on Android 12
+ * (API 31) and up. A batch is handled in a single pass on the main thread.
+ */
+class LocationManagerClient implements LocationClient, LocationListenerCompat {
 
   private static final long TWO_MINUTES = 120000;
+  private final Handler handler = new Handler(Looper.getMainLooper());
   private final LocationManager locationManager;
   private final NmeaClient nmeaClient;
-  @Nullable private final LocationOptions locationOptions;
+  @Nullable private LocationOptions locationOptions;
   public Context context;
   private boolean isListening = false;
 
@@ -73,8 +87,14 @@ class LocationManagerClient implements LocationClient, LocationListener {
     return false;
   }
 
-  private static String getBestProvider(
+  static String getBestProvider(
       LocationManager locationManager, LocationAccuracy accuracy) {
+    if (accuracy == LocationAccuracy.lowest) {
+      // Like PRIORITY_PASSIVE of the fused provider, only receive the positions requested by other
+      // apps without powering any provider.
+      return LocationManager.PASSIVE_PROVIDER;
+    }
+
     Criteria criteria = new Criteria();
 
     criteria.setBearingRequired(false);
@@ -82,11 +102,6 @@ class LocationManagerClient implements LocationClient, LocationListener {
     criteria.setSpeedRequired(false);
 
     switch (accuracy) {
-      case lowest:
-        criteria.setAccuracy(Criteria.NO_REQUIREMENT);
-        criteria.setHorizontalAccuracy(Criteria.NO_REQUIREMENT);
-        criteria.setPowerRequirement(Criteria.NO_REQUIREMENT);
-        break;
       case low:
         criteria.setAccuracy(Criteria.ACCURACY_COARSE);
         criteria.setHorizontalAccuracy(Criteria.ACCURACY_LOW);
@@ -114,9 +129,39 @@ class LocationManagerClient implements LocationClient, LocationListener {
     return provider;
   }
 
+  static LocationRequestCompat buildLocationRequest(@Nullable LocationOptions options) {
+    if (options == null) {
+      return new LocationRequestCompat.Builder(0).build();
+    }
+
+    LocationRequestCompat.Builder builder =
+        new LocationRequestCompat.Builder(options.getTimeInterval())
+            .setMinUpdateDistanceMeters(options.getDistanceFilter())
+            .setQuality(toQuality(options.getAccuracy()));
+    if (options.getMaxUpdateDelay() > 0) {
+      builder.setMaxUpdateDelayMillis(options.getMaxUpdateDelay());
+    }
+
+    return builder.build();
+  }
+
+  private static int toQuality(LocationAccuracy accuracy) {
+    switch (accuracy) {
+      case lowest:
+      case low:
+        return LocationRequestCompat.QUALITY_LOW_POWER;
+      case medium:
+        return LocationRequestCompat.QUALITY_BALANCED_POWER_ACCURACY;
+      default:
+        return LocationRequestCompat.QUALITY_HIGH_ACCURACY;
+    }
+  }
+
   private static float accuracyToFloat(LocationAccuracy accuracy) {
     switch (accuracy) {
       case lowest:
+        // Passive positions are accepted regardless of the provider which determined them.
+        return Float.MAX_VALUE;
       case low:
         return 500;
       case medium:
@@ -167,6 +212,10 @@ class LocationManagerClient implements LocationClient, LocationListener {
       Activity activity,
       PositionChangedCallback positionChangedCallback,
       ErrorCallback errorCallback) {
+    if (Looper.myLooper() != Looper.getMainLooper()) {
+      handler.post(() -> startPositionUpdates(activity, positionChangedCallback, errorCallback));
+      return;
+    }
 
     if (!checkLocationService(context)) {
       errorCallback.onError(ErrorCodes.locationServicesDisabled);
@@ -186,39 +235,73 @@ class LocationManagerClient implements LocationClient, LocationListener {
       return;
     }
 
-    long timeInterval = 0;
-    float distanceFilter = 0;
-    if (this.locationOptions != null) {
-      timeInterval = locationOptions.getTimeInterval();
-      distanceFilter = locationOptions.getDistanceFilter();
-    }
-
     this.isListening = true;
     this.nmeaClient.start();
-    this.locationManager.requestLocationUpdates(
-        this.currentLocationProvider, timeInterval, distanceFilter, this, Looper.getMainLooper());
+    LocationManagerCompat.requestLocationUpdates(
+        this.locationManager,
+        this.currentLocationProvider,
+        buildLocationRequest(this.locationOptions),
+        this,
+        Looper.getMainLooper());
   }
 
   @SuppressLint("MissingPermission")
   @Override
   public void stopPositionUpdates() {
+    if (Looper.myLooper() != Looper.getMainLooper()) {
+      handler.post(this::stopPositionUpdates);
+      return;
+    }
+
     this.isListening = false;
     this.nmeaClient.stop();
-    this.locationManager.removeUpdates(this);
+    LocationManagerCompat.removeUpdates(this.locationManager, this);
+  }
+
+  /**
+   * Prepares this client to be reused with the supplied options, should only be called while the
+   * client is stopped.
+   */
+  void reset(@Nullable LocationOptions locationOptions) {
+    this.locationOptions = locationOptions;
+    this.currentBestLocation = null;
+    this.currentLocationProvider = null;
+    this.positionChangedCallback = null;
+    this.errorCallback = null;
+    this.nmeaClient.setLocationOptions(locationOptions);
   }
 
   @Override
-  public synchronized void onLocationChanged(Location location) {
+  public void onLocationChanged(@NonNull List<Location> locations) {
+    // A batch is ordered from oldest to newest, so every position is handled in order instead of
+    // only the last one. Positions of the batch are compared with the best position before the
+    // batch, as a newer position of the same batch would otherwise reject the older ones.
+    Location previousBestLocation = currentBestLocation;
+    for (Location location : locations) {
+      onLocationChanged(location, previousBestLocation);
+    }
+  }
+
+  @Override
+  public void onLocationChanged(@NonNull Location location) {
+    onLocationChanged(location, currentBestLocation);
+  }
+
+  private void onLocationChanged(@NonNull Location location, @Nullable Location bestLocation) {
+    if (!isListening) {
+      // Delivered after the updates have been stopped.
+      return;
+    }
+
     float desiredAccuracy =
         locationOptions != null ? accuracyToFloat(locationOptions.getAccuracy()) : 50;
 
-    if (isBetterLocation(location, currentBestLocation)
-        && location.getAccuracy() <= desiredAccuracy) {
+    if (isBetterLocation(location, bestLocation) && location.getAccuracy() <= desiredAccuracy) {
       this.currentBestLocation = location;
 
       if (this.positionChangedCallback != null) {
         nmeaClient.enrichExtrasWithNmea(location);
-        this.positionChangedCallback.onPositionChanged(currentBestLocation);
+        this.positionChangedCallback.onPositionChanged(location);
       }
     }
   }
@@ -235,14 +318,14 @@ class LocationManagerClient implements LocationClient, LocationListener {
   }
 
   @Override
-  public void onProviderEnabled(String provider) {}
+  public void onProviderEnabled(@NonNull String provider) {}
 
   @SuppressLint("MissingPermission")
   @Override
-  public void onProviderDisabled(String provider) {
+  public void onProviderDisabled(@NonNull String provider) {
     if (provider.equals(this.currentLocationProvider)) {
       if (isListening) {
-        this.locationManager.removeUpdates(this);
+        LocationManagerCompat.removeUpdates(this.locationManager, this);
       }
 
       if (this.errorCallback != null) {
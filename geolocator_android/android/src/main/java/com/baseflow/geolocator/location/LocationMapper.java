@@ -3,12 +3,22 @@ package com.baseflow.geolocator.location;
 import android.location.Location;
 import android.os.Build;
 
+import androidx.annotation.Nullable;
+
 import java.util.HashMap;
 import java.util.Map;
 
 @SuppressWarnings("deprecation")
 public class LocationMapper {
   public static Map<String, Object> toHashMap(Location location) {
+    return toHashMap(location, PositionField.ALL);
+  }
+
+  /**
+   * Maps the supplied location, only including the {@link PositionField}s set in {@code fields}
+   * next to the latitude and longitude.
+   */
+  public static Map<String, Object> toHashMap(Location location, int fields) {
     if (location == null) {
       return null;
     }
@@ -17,29 +27,65 @@ public class LocationMapper {
 
     position.put("latitude", location.getLatitude());
     position.put("longitude", location.getLongitude());
-    position.put("timestamp", location.getTime());
 
-    if (location.hasAltitude()) position.put("altitude", location.getAltitude());
-    if (location.hasAccuracy()) position.put("accuracy", (double) location.getAccuracy());
-    if (location.hasBearing()) position.put("heading", (double) location.getBearing());
-    if (location.hasSpeed()) position.put("speed", (double) location.getSpeed());
-    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && location.hasSpeedAccuracy())
+    if (PositionField.timestamp.isIn(fields)) position.put("timestamp", location.getTime());
+    if (PositionField.altitude.isIn(fields)) putAltitude(location, position);
+    if (PositionField.accuracy.isIn(fields) && location.hasAccuracy())
+      position.put("accuracy", (double) location.getAccuracy());
+    if (PositionField.heading.isIn(fields) && location.hasBearing())
+      position.put("heading", (double) location.getBearing());
+    if (PositionField.speed.isIn(fields) && location.hasSpeed())
+      position.put("speed", (double) location.getSpeed());
+    if (PositionField.speedAccuracy.isIn(fields)
+        && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+        && location.hasSpeedAccuracy())
       position.put("speed_accuracy", (double) location.getSpeedAccuracyMetersPerSecond());
 
-    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-      position.put("is_mocked", location.isMock());
-    } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
-      position.put("is_mocked", location.isFromMockProvider());
-    } else {
-      position.put("is_mocked", false);
+    if (PositionField.isMocked.isIn(fields)) {
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+        position.put("is_mocked", location.isMock());
+      } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+        position.put("is_mocked", location.isFromMockProvider());
+      } else {
+        position.put("is_mocked", false);
+      }
+    }
+
+    if (PositionField.source.isIn(fields)) {
+      position.put("provider", location.getProvider());
+      position.put("age", LastKnownPositionStore.getAge(location));
     }
 
-    if (location.getExtras() != null) {
-      if (location.getExtras().containsKey(NmeaClient.NMEA_ALTITUDE_EXTRA)) {
-        Double mslAltitude = location.getExtras().getDouble(NmeaClient.NMEA_ALTITUDE_EXTRA);
-        position.put("altitude", mslAltitude);
-      }
+    if (location.getExtras() != null
+        && location.getExtras().containsKey(PositionSubscription.TIER_EXTRA)) {
+      position.put("tier", location.getExtras().getInt(PositionSubscription.TIER_EXTRA));
+    }
+
+    if (location.getExtras() != null
+        && location.getExtras().getBoolean(PositionDispatcher.STATIONARY_EXTRA)) {
+      position.put("stationary", true);
     }
+
     return position;
   }
+
+  private static void putAltitude(Location location, Map<String, Object> position) {
+    Double altitude = getAltitude(location);
+    if (altitude != null) {
+      position.put("altitude", altitude);
+    }
+  }
+
+  /**
+   * Returns the altitude above mean sea level when it has been determined using NMEA messages, the
+   * altitude reported by the provider otherwise, or {@code null} when neither is available.
+   */
+  @Nullable
+  public static Double getAltitude(Location location) {
+    if (location.getExtras() != null
+        && location.getExtras().containsKey(NmeaClient.NMEA_ALTITUDE_EXTRA)) {
+      return location.getExtras().getDouble(NmeaClient.NMEA_ALTITUDE_EXTRA);
+    }
+    return location.hasAltitude() ? location.getAltitude() : null;
+  }
 }
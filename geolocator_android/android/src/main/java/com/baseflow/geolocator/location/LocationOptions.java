@@ -1,61 +1,350 @@
 package com.baseflow.geolocator.location;
 
+import androidx.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.Map;
 
 public class LocationOptions {
+  // Quantizes coordinates to 1e-7 degrees (roughly 1 cm) by default.
+  private static final long DEFAULT_COORDINATE_SCALE = 10000000L;
+  // Significant location changes are requested every 5 minutes unless requested otherwise.
+  private static final long SIGNIFICANT_CHANGE_INTERVAL = 300000;
+  // Precise windows of dual-rate subscriptions last at most 30 seconds unless requested otherwise.
+  private static final long DEFAULT_PRECISE_WINDOW = 30000;
+  // The interval requested from the provider while a precise window is open.
+  private static final long PRECISE_TIME_INTERVAL = 1000;
+  // The number of bytes read by decode.
+  public static final int ENCODED_SIZE = 4 + 5 * 4 + 8;
+
   private final LocationAccuracy accuracy;
   private final long distanceFilter;
   private final long timeInterval;
   private final boolean useMSLAltitude;
+  private final PositionDeliveryPolicy deliveryPolicy;
+  private final long deliveryInterval;
+  private final long maxUpdateDelay;
+  private final int fields;
+  private final PositionEncoding encoding;
+  private final long coordinateScale;
+  private final PositionTransport transport;
+  private final long significantChangeDistance;
+  private final long preciseInterval;
+  private final long preciseWindow;
 
   private LocationOptions(
-      LocationAccuracy accuracy, long distanceFilter, long timeInterval, boolean useMSLAltitude) {
+      LocationAccuracy accuracy,
+      long distanceFilter,
+      long timeInterval,
+      boolean useMSLAltitude,
+      PositionDeliveryPolicy deliveryPolicy,
+      long deliveryInterval,
+      long maxUpdateDelay,
+      int fields,
+      PositionEncoding encoding,
+      long coordinateScale,
+      PositionTransport transport,
+      long significantChangeDistance,
+      long preciseInterval,
+      long preciseWindow) {
     this.accuracy = accuracy;
     this.distanceFilter = distanceFilter;
     this.timeInterval = timeInterval;
     this.useMSLAltitude = useMSLAltitude;
+    this.deliveryPolicy = deliveryPolicy;
+    this.deliveryInterval = deliveryInterval;
+    this.maxUpdateDelay = maxUpdateDelay;
+    this.fields = fields;
+    this.encoding = encoding;
+    this.coordinateScale = coordinateScale;
+    this.transport = transport;
+    this.significantChangeDistance = significantChangeDistance;
+    this.preciseInterval = preciseInterval;
+    this.preciseWindow = preciseWindow;
   }
 
   public static LocationOptions parseArguments(Map<String, Object> arguments) {
     if (arguments == null) {
-      return new LocationOptions(LocationAccuracy.best, 0, 5000, false);
+      return new LocationOptions(
+          LocationAccuracy.best,
+          0,
+          5000,
+          false,
+          PositionDeliveryPolicy.all,
+          0,
+          0,
+          PositionField.ALL,
+          PositionEncoding.map,
+          DEFAULT_COORDINATE_SCALE,
+          PositionTransport.channel,
+          0,
+          0,
+          0);
     }
 
     final Integer accuracy = (Integer) arguments.get("accuracy");
     final Integer distanceFilter = (Integer) arguments.get("distanceFilter");
     final Integer timeInterval = (Integer) arguments.get("timeInterval");
     final Boolean useMSLAltitude = (Boolean) arguments.get("useMSLAltitude");
+    final Integer deliveryPolicy = (Integer) arguments.get("deliveryPolicy");
+    final Integer deliveryInterval = (Integer) arguments.get("deliveryInterval");
+    final Integer maxUpdateDelay = (Integer) arguments.get("maxUpdateDelay");
+    final Integer fields = (Integer) arguments.get("fields");
+    final Integer encoding = (Integer) arguments.get("encoding");
+    final Number coordinatePrecision = (Number) arguments.get("coordinatePrecision");
+    final Integer transport = (Integer) arguments.get("transport");
+    final Integer significantChangeDistance =
+        (Integer) arguments.get("significantChangeDistance");
+    final Integer preciseInterval = (Integer) arguments.get("preciseInterval");
+    final Integer preciseWindow = (Integer) arguments.get("preciseWindow");
+    final PositionDeliveryPolicy positionDeliveryPolicy =
+        deliveryPolicy != null ? toDeliveryPolicy(deliveryPolicy) : PositionDeliveryPolicy.all;
+    final PositionEncoding positionEncoding =
+        encoding != null && encoding == 1 ? PositionEncoding.delta : PositionEncoding.map;
+    final long coordinateScale =
+        coordinatePrecision != null
+            ? toCoordinateScale(coordinatePrecision.doubleValue())
+            : DEFAULT_COORDINATE_SCALE;
+    final PositionTransport positionTransport =
+        transport != null && transport == 1
+            ? PositionTransport.ringBuffer
+            : PositionTransport.channel;
+
+    if (significantChangeDistance != null && significantChangeDistance > 0) {
+      // Only positions of low power providers and positions requested by other apps are used.
+      LocationAccuracy locationAccuracy =
+          accuracy != null && toLocationAccuracy(accuracy) == LocationAccuracy.lowest
+              ? LocationAccuracy.lowest
+              : LocationAccuracy.low;
+      return new LocationOptions(
+          locationAccuracy,
+          Math.max(distanceFilter != null ? distanceFilter : 0, significantChangeDistance),
+          timeInterval != null ? timeInterval : SIGNIFICANT_CHANGE_INTERVAL,
+          useMSLAltitude != null && useMSLAltitude,
+          positionDeliveryPolicy,
+          deliveryInterval != null ? deliveryInterval : 0,
+          maxUpdateDelay != null ? maxUpdateDelay : 0,
+          fields != null ? fields & PositionField.REQUESTABLE : PositionField.ALL,
+          positionEncoding,
+          coordinateScale,
+          positionTransport,
+          significantChangeDistance,
+          0,
+          0);
+    }
 
-    LocationAccuracy locationAccuracy = LocationAccuracy.best;
-
-    if (accuracy != null) {
-      switch (accuracy) {
-        case 0:
-          locationAccuracy = LocationAccuracy.lowest;
-          break;
-        case 1:
-          locationAccuracy = LocationAccuracy.low;
-          break;
-        case 2:
-          locationAccuracy = LocationAccuracy.medium;
-          break;
-        case 3:
-          locationAccuracy = LocationAccuracy.high;
-          break;
-        case 5:
-          locationAccuracy = LocationAccuracy.bestForNavigation;
-          break;
-        case 4:
-        default:
-          break;
+    if (preciseInterval != null && preciseInterval > 0) {
+      // The requested accuracy applies to the coarse tier, which is limited to balanced power.
+      LocationAccuracy locationAccuracy =
+          accuracy != null ? toLocationAccuracy(accuracy) : LocationAccuracy.medium;
+      if (locationAccuracy.ordinal() > LocationAccuracy.medium.ordinal()) {
+        locationAccuracy = LocationAccuracy.medium;
       }
+      return new LocationOptions(
+          locationAccuracy,
+          distanceFilter != null ? distanceFilter : 0,
+          timeInterval != null ? timeInterval : 5000,
+          useMSLAltitude != null && useMSLAltitude,
+          positionDeliveryPolicy,
+          deliveryInterval != null ? deliveryInterval : 0,
+          maxUpdateDelay != null ? maxUpdateDelay : 0,
+          fields != null ? fields & PositionField.REQUESTABLE : PositionField.ALL,
+          positionEncoding,
+          coordinateScale,
+          positionTransport,
+          0,
+          preciseInterval,
+          Math.min(
+              preciseWindow != null && preciseWindow > 0 ? preciseWindow : DEFAULT_PRECISE_WINDOW,
+              preciseInterval));
     }
 
     return new LocationOptions(
-        locationAccuracy,
+        accuracy != null ? toLocationAccuracy(accuracy) : LocationAccuracy.best,
         distanceFilter != null ? distanceFilter : 0,
         timeInterval != null ? timeInterval : 5000,
-        useMSLAltitude != null && useMSLAltitude);
+        useMSLAltitude != null && useMSLAltitude,
+        positionDeliveryPolicy,
+        deliveryInterval != null ? deliveryInterval : 0,
+        maxUpdateDelay != null ? maxUpdateDelay : 0,
+        fields != null ? fields & PositionField.REQUESTABLE : PositionField.ALL,
+        positionEncoding,
+        coordinateScale,
+        positionTransport,
+        0,
+        0,
+        0);
+  }
+
+  /**
+   * Reads options written in the fixed layout used by the typed message channel, all values
+   * little-endian:
+   *
+   * <pre>
+   * u8  accuracy          u8  flags (bit 0: useMSLAltitude)
+   * u8  deliveryPolicy    u8  encoding
+   * i32 distanceFilter    i32 timeInterval (-1 for the default)
+   * i32 deliveryInterval  i32 maxUpdateDelay
+   * i32 fields (-1 for all fields)
+   * f64 coordinatePrecision
+   * </pre>
+   *
+   * <p>The caller should make sure at least {@link #ENCODED_SIZE} bytes remain in the buffer.
+   */
+  public static LocationOptions decode(ByteBuffer buffer) {
+    final int accuracy = buffer.get();
+    final int flags = buffer.get();
+    final int deliveryPolicy = buffer.get();
+    final int encoding = buffer.get();
+    final int distanceFilter = buffer.getInt();
+    final int timeInterval = buffer.getInt();
+    final int deliveryInterval = buffer.getInt();
+    final int maxUpdateDelay = buffer.getInt();
+    final int fields = buffer.getInt();
+    final double coordinatePrecision = buffer.getDouble();
+
+    return new LocationOptions(
+        toLocationAccuracy(accuracy),
+        distanceFilter,
+        timeInterval >= 0 ? timeInterval : 5000,
+        (flags & 1) != 0,
+        toDeliveryPolicy(deliveryPolicy),
+        deliveryInterval,
+        maxUpdateDelay,
+        fields != -1 ? fields & PositionField.REQUESTABLE : PositionField.ALL,
+        encoding == 1 ? PositionEncoding.delta : PositionEncoding.map,
+        toCoordinateScale(coordinatePrecision),
+        PositionTransport.channel,
+        0,
+        0,
+        0);
+  }
+
+  private static LocationAccuracy toLocationAccuracy(int accuracy) {
+    switch (accuracy) {
+      case 0:
+        return LocationAccuracy.lowest;
+      case 1:
+        return LocationAccuracy.low;
+      case 2:
+        return LocationAccuracy.medium;
+      case 3:
+        return LocationAccuracy.high;
+      case 5:
+        return LocationAccuracy.bestForNavigation;
+      case 4:
+      default:
+        return LocationAccuracy.best;
+    }
+  }
+
+  private static PositionDeliveryPolicy toDeliveryPolicy(int deliveryPolicy) {
+    switch (deliveryPolicy) {
+      case 1:
+        return PositionDeliveryPolicy.latestOnly;
+      case 2:
+        return PositionDeliveryPolicy.sampled;
+      case 0:
+      default:
+        return PositionDeliveryPolicy.all;
+    }
+  }
+
+  private static long toCoordinateScale(double coordinatePrecision) {
+    return coordinatePrecision > 0
+        ? Math.max(1, Math.round(1 / coordinatePrecision))
+        : DEFAULT_COORDINATE_SCALE;
+  }
+
+  /**
+   * Combines the supplied options into a single set of options which satisfies the most demanding
+   * of them, so they can be served from a single provider registration.
+   */
+  public static LocationOptions merge(Collection<LocationOptions> options) {
+    if (options.isEmpty()) {
+      return parseArguments(null);
+    }
+
+    LocationAccuracy accuracy = LocationAccuracy.lowest;
+    long distanceFilter = Long.MAX_VALUE;
+    long timeInterval = Long.MAX_VALUE;
+    boolean useMSLAltitude = false;
+    long maxUpdateDelay = Long.MAX_VALUE;
+    long significantChangeDistance = Long.MAX_VALUE;
+
+    for (LocationOptions option : options) {
+      if (option.accuracy.ordinal() > accuracy.ordinal()) {
+        accuracy = option.accuracy;
+      }
+      distanceFilter = Math.min(distanceFilter, option.distanceFilter);
+      timeInterval = Math.min(timeInterval, option.timeInterval);
+      useMSLAltitude = useMSLAltitude || option.useMSLAltitude;
+      maxUpdateDelay = Math.min(maxUpdateDelay, option.maxUpdateDelay);
+      // Only a registration serving significant location changes alone may be relaxed for them.
+      significantChangeDistance =
+          Math.min(significantChangeDistance, option.significantChangeDistance);
+    }
+
+    return new LocationOptions(
+        accuracy,
+        distanceFilter,
+        timeInterval,
+        useMSLAltitude,
+        PositionDeliveryPolicy.all,
+        0,
+        maxUpdateDelay,
+        PositionField.ALL,
+        PositionEncoding.map,
+        DEFAULT_COORDINATE_SCALE,
+        PositionTransport.channel,
+        significantChangeDistance,
+        0,
+        0);
+  }
+
+  /**
+   * Returns the options requested from the provider while the device is stationary, which only
+   * receive positions requested by other apps or determined passively by the platform.
+   */
+  public LocationOptions toPassiveOptions() {
+    return new LocationOptions(
+        LocationAccuracy.lowest,
+        distanceFilter,
+        timeInterval,
+        useMSLAltitude,
+        deliveryPolicy,
+        deliveryInterval,
+        maxUpdateDelay,
+        fields,
+        encoding,
+        coordinateScale,
+        transport,
+        significantChangeDistance,
+        preciseInterval,
+        preciseWindow);
+  }
+
+  /**
+   * Returns the options requested from the provider while a precise window of a dual-rate
+   * subscription is open: the best accuracy, without distance filter and at least once per second.
+   */
+  public LocationOptions toPreciseOptions() {
+    return new LocationOptions(
+        LocationAccuracy.best,
+        0,
+        Math.min(timeInterval, PRECISE_TIME_INTERVAL),
+        useMSLAltitude,
+        deliveryPolicy,
+        deliveryInterval,
+        0,
+        fields,
+        encoding,
+        coordinateScale,
+        transport,
+        0,
+        preciseInterval,
+        preciseWindow);
   }
 
   public LocationAccuracy getAccuracy() {
@@ -73,4 +362,126 @@ public class LocationOptions {
   public boolean isUseMSLAltitude() {
     return useMSLAltitude;
   }
+
+  public PositionDeliveryPolicy getDeliveryPolicy() {
+    return deliveryPolicy;
+  }
+
+  public long getDeliveryInterval() {
+    return deliveryInterval;
+  }
+
+  /**
+   * The maximum time in milliseconds positions may be batched before they are delivered, or 0 when
+   * positions should be delivered as soon as they are available.
+   */
+  public long getMaxUpdateDelay() {
+    return maxUpdateDelay;
+  }
+
+  /**
+   * The bit mask of the {@link PositionField}s which should be included in the positions sent to
+   * the caller.
+   */
+  public int getFields() {
+    return fields;
+  }
+
+  public PositionEncoding getEncoding() {
+    return encoding;
+  }
+
+  /**
+   * The number of quantization steps per degree used when encoding coordinates using {@link
+   * PositionEncoding#delta}, e.g. 10^7 for a precision of 1e-7 degrees.
+   */
+  public long getCoordinateScale() {
+    return coordinateScale;
+  }
+
+  public PositionTransport getTransport() {
+    return transport;
+  }
+
+  /**
+   * The displacement in meters after which a significant location change is reported, or 0 when
+   * positions are not limited to significant location changes.
+   */
+  public long getSignificantChangeDistance() {
+    return significantChangeDistance;
+  }
+
+  /**
+   * The interval in milliseconds at which a precise window is opened for a dual-rate subscription,
+   * or 0 when positions are only delivered at the requested accuracy.
+   */
+  public long getPreciseInterval() {
+    return preciseInterval;
+  }
+
+  /** The maximum duration in milliseconds of a precise window of a dual-rate subscription. */
+  public long getPreciseWindow() {
+    return preciseWindow;
+  }
+
+  /**
+   * Returns why these options can't be used for a position stream, or {@code null} when they can.
+   *
+   * <p>The tier of the positions of a dual-rate stream is only carried by map encoded positions on
+   * the channel transport, and precise positions may not be replaced by later coarse positions
+   * before delivery.
+   */
+  @Nullable
+  public String validateStreamOptions() {
+    if (preciseInterval > 0
+        && (deliveryPolicy != PositionDeliveryPolicy.all
+            || encoding != PositionEncoding.map
+            || transport != PositionTransport.channel)) {
+      return "Dual-rate position streams require the 'all' delivery policy, the 'map' encoding and"
+          + " the 'channel' transport.";
+    }
+    return null;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof LocationOptions)) return false;
+
+    LocationOptions that = (LocationOptions) o;
+    return accuracy == that.accuracy
+        && distanceFilter == that.distanceFilter
+        && timeInterval == that.timeInterval
+        && useMSLAltitude == that.useMSLAltitude
+        && deliveryPolicy == that.deliveryPolicy
+        && deliveryInterval == that.deliveryInterval
+        && maxUpdateDelay == that.maxUpdateDelay
+        && fields == that.fields
+        && encoding == that.encoding
+        && coordinateScale == that.coordinateScale
+        && transport == that.transport
+        && significantChangeDistance == that.significantChangeDistance
+        && preciseInterval == that.preciseInterval
+        && preciseWindow == that.preciseWindow;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = accuracy.hashCode();
+    result = 31 * result + (int) (distanceFilter ^ (distanceFilter >>> 32));
+    result = 31 * result + (int) (timeInterval ^ (timeInterval >>> 32));
+    result = 31 * result + (useMSLAltitude ? 1 : 0);
+    result = 31 * result + deliveryPolicy.hashCode();
+    result = 31 * result + (int) (deliveryInterval ^ (deliveryInterval >>> 32));
+    result = 31 * result + (int) (maxUpdateDelay ^ (maxUpdateDelay >>> 32));
+    result = 31 * result + fields;
+    result = 31 * result + encoding.hashCode();
+    result = 31 * result + (int) (coordinateScale ^ (coordinateScale >>> 32));
+    result = 31 * result + transport.hashCode();
+    result =
+        31 * result + (int) (significantChangeDistance ^ (significantChangeDistance >>> 32));
+    result = 31 * result + (int) (preciseInterval ^ (preciseInterval >>> 32));
+    result = 31 * result + (int) (preciseWindow ^ (preciseWindow >>> 32));
+    return result;
+  }
 }
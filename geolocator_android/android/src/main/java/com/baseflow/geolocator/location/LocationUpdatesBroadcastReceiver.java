@@ -0,0 +1,76 @@
+package com.baseflow.geolocator.location;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.location.Location;
+import android.location.LocationManager;
+import android.os.Build;
+import android.os.Parcelable;
+
+import com.google.android.gms.location.LocationResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Receives the batches of positions requested by {@link BackgroundLocationUpdates}.
+ *
+ * <p>The receiver is registered in the manifest, so it is also invoked when the app process was
+ * not running when the batch was delivered.
+ */
+public class LocationUpdatesBroadcastReceiver extends BroadcastReceiver {
+
+  @Override
+  public void onReceive(Context context, Intent intent) {
+    if (intent == null
+        || !BackgroundLocationUpdates.ACTION_LOCATION_UPDATES.equals(intent.getAction())) {
+      return;
+    }
+
+    List<Location> locations = extractLocations(intent);
+    LastKnownPositionStore lastKnownPositionStore = LastKnownPositionStore.getInstance(context);
+    for (Location location : locations) {
+      lastKnownPositionStore.record(location);
+    }
+    if (locations.isEmpty() || BackgroundLocationUpdates.dispatch(locations)) {
+      return;
+    }
+
+    // No Flutter engine is listening, store the positions until they are requested.
+    PendingResult pendingResult = goAsync();
+    BackgroundLocationBuffer.getInstance(context).append(locations, pendingResult::finish);
+  }
+
+  @SuppressWarnings("deprecation")
+  private static List<Location> extractLocations(Intent intent) {
+    try {
+      if (LocationResult.hasResult(intent)) {
+        LocationResult locationResult = LocationResult.extractResult(intent);
+        if (locationResult != null) {
+          return locationResult.getLocations();
+        }
+      }
+    } catch (NoClassDefFoundError e) {
+      // Google Play Services have been excluded, the positions come from the LocationManager.
+    }
+
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S
+        && intent.hasExtra(LocationManager.KEY_LOCATIONS)) {
+      Parcelable[] parcelables = intent.getParcelableArrayExtra(LocationManager.KEY_LOCATIONS);
+      List<Location> locations = new ArrayList<>();
+      if (parcelables != null) {
+        for (Parcelable parcelable : parcelables) {
+          if (parcelable instanceof Location) {
+            locations.add((Location) parcelable);
+          }
+        }
+      }
+      return locations;
+    }
+
+    Location location = intent.getParcelableExtra(LocationManager.KEY_LOCATION_CHANGED);
+    return location != null ? Collections.singletonList(location) : Collections.<Location>emptyList();
+  }
+}
@@ -20,7 +20,7 @@ public class NmeaClient {
 
   private final Context context;
   private final LocationManager locationManager;
-  @Nullable private final LocationOptions locationOptions;
+  @Nullable private LocationOptions locationOptions;
 
   @TargetApi(Build.VERSION_CODES.N)
   private OnNmeaMessageListener nmeaMessageListener;
@@ -35,13 +35,35 @@ public class NmeaClient {
     this.locationManager = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
 
     if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
-      nmeaMessageListener =
-          (message, timestamp) -> {
-            if (message.startsWith("$GPGGA")) {
-              lastNmeaMessage = message;
-              lastNmeaMessageTime = Calendar.getInstance();
-            }
-          };
+      nmeaMessageListener = (message, timestamp) -> onNmeaMessage(message);
+    }
+  }
+
+  /** Replaces the options of this client, should only be called while the client is stopped. */
+  void setLocationOptions(@Nullable LocationOptions locationOptions) {
+    this.locationOptions = locationOptions;
+    this.lastNmeaMessage = null;
+    this.lastNmeaMessageTime = null;
+  }
+
+  /**
+   * Processes a single NMEA sentence, either received from the {@link LocationManager} or replayed
+   * by the {@link ReplayLocationClient}.
+   */
+  void onNmeaMessage(@NonNull String message) {
+    if (message.startsWith("$GPGGA")) {
+      lastNmeaMessage = message;
+      lastNmeaMessageTime = Calendar.getInstance();
+    }
+  }
+
+  /**
+   * Enables enrichment using sentences supplied through {@link #onNmeaMessage(String)} instead of
+   * registering a listener with the {@link LocationManager}.
+   */
+  void startReplay() {
+    if (locationOptions != null && locationOptions.isUseMSLAltitude()) {
+      listenerAdded = true;
     }
   }
 
@@ -63,9 +85,9 @@ public class NmeaClient {
     if (locationOptions != null && locationOptions.isUseMSLAltitude()) {
       if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N && locationManager != null) {
         locationManager.removeNmeaListener(nmeaMessageListener);
-        listenerAdded = false;
       }
     }
+    listenerAdded = false;
   }
 
   public void enrichExtrasWithNmea(@Nullable Location location) {
@@ -0,0 +1,15 @@
+package com.baseflow.geolocator.location;
+
+/** Describes how positions are handed over to the Dart side of a position stream. */
+public enum PositionDeliveryPolicy {
+  /** Every position is delivered, regardless of whether the Dart side keeps up. */
+  all,
+  /**
+   * Only one position is in flight at any time. Positions arriving in the meantime replace each
+   * other and only the most recent one is delivered once the Dart side acknowledged the previous
+   * event.
+   */
+  latestOnly,
+  /** The most recent position is delivered at most once every delivery interval. */
+  sampled
+}
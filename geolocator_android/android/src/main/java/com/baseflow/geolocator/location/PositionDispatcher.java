@@ -0,0 +1,293 @@
+package com.baseflow.geolocator.location;
+
+import android.app.Activity;
+import android.content.Context;
+import android.location.Location;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.baseflow.geolocator.errors.ErrorCodes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves any number of keyed {@link PositionSubscription}s from a single native dispatch loop.
+ *
+ * <p>Subscriptions using the same kind of location client share one provider registration, which
+ * is configured to satisfy the most demanding of them. The registration is only restarted when
+ * the combined request actually changes.
+ *
+ * <p>The dispatcher is not thread safe and should only be used from the main thread.
+ */
+public class PositionDispatcher {
+  public static final String STATIONARY_EXTRA = "geolocator_stationary";
+  private static final String TAG = "PositionDispatcher";
+
+  private final Context context;
+  private final GeolocationManager geolocationManager;
+  private final Map<Boolean, Registration> registrations = new HashMap<>();
+  private final List<PositionChangedCallback> positionListeners = new ArrayList<>();
+  private final Handler handler = new Handler(Looper.getMainLooper());
+
+  @Nullable private Activity activity;
+  private boolean stationary = false;
+
+  public PositionDispatcher(
+      @NonNull Context context, @NonNull GeolocationManager geolocationManager) {
+    this.context = context;
+    this.geolocationManager = geolocationManager;
+  }
+
+  public void setActivity(@Nullable Activity activity) {
+    this.activity = activity;
+  }
+
+  public void addSubscription(@NonNull PositionSubscription subscription) {
+    removeSubscription(subscription.getId());
+
+    Registration registration = registrations.get(subscription.isForceLocationManager());
+    if (registration == null) {
+      registration = new Registration(subscription.isForceLocationManager());
+      registrations.put(subscription.isForceLocationManager(), registration);
+    }
+
+    registration.subscriptions.put(subscription.getId(), subscription);
+    subscription.start(registration::update);
+    registration.update();
+  }
+
+  public void removeSubscription(int id) {
+    Iterator<Registration> iterator = registrations.values().iterator();
+    while (iterator.hasNext()) {
+      Registration registration = iterator.next();
+      PositionSubscription subscription = registration.subscriptions.remove(id);
+      if (subscription == null) {
+        continue;
+      }
+
+      subscription.stop();
+      registration.update();
+      if (registration.subscriptions.isEmpty()) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Adds a listener which observes every position received by the provider registrations, before
+   * the positions are filtered and handed to the subscriptions.
+   *
+   * <p>Listeners do not influence the provider registrations. Adding a listener which was already
+   * added has no effect.
+   */
+  public void addPositionListener(@NonNull PositionChangedCallback listener) {
+    if (!positionListeners.contains(listener)) {
+      positionListeners.add(listener);
+    }
+  }
+
+  public void removePositionListener(@NonNull PositionChangedCallback listener) {
+    positionListeners.remove(listener);
+  }
+
+  /**
+   * Serves a single position from a running registration of the requested kind whose accuracy
+   * satisfies {@code locationOptions}, so no additional provider registration is needed. Only
+   * registrations without a distance filter, requesting positions at least every {@code maxAge}
+   * milliseconds, are used, as others may not receive a position for a long time.
+   *
+   * <p>The last position received by the registration is used when it is at most {@code maxAge}
+   * milliseconds old, otherwise the next position of the registration is awaited. The listener is
+   * abandoned when no position arrived within {@code maxAge} milliseconds.
+   *
+   * @return false when no compatible registration is running, in which case the listener is not
+   *     called.
+   */
+  public boolean requestSinglePosition(
+      boolean forceLocationManager,
+      @NonNull LocationOptions locationOptions,
+      long maxAge,
+      @NonNull SinglePositionListener listener) {
+    Registration registration = registrations.get(forceLocationManager);
+    if (registration == null
+        || registration.locationOptions == null
+        || stationary
+        || registration.locationOptions.getAccuracy().ordinal()
+            < locationOptions.getAccuracy().ordinal()
+        || registration.locationOptions.getDistanceFilter() != 0
+        || registration.locationOptions.getTimeInterval() > maxAge) {
+      return false;
+    }
+
+    Location lastLocation = registration.lastLocation;
+    if (lastLocation != null && LastKnownPositionStore.getAge(lastLocation) <= maxAge) {
+      listener.onPositionChanged(lastLocation);
+      return true;
+    }
+
+    registration.singlePositionListeners.add(listener);
+    handler.postDelayed(
+        () -> {
+          if (registration.singlePositionListeners.remove(listener)) {
+            listener.onAbandoned();
+          }
+        },
+        maxAge);
+    return true;
+  }
+
+  /**
+   * Lowers all provider registrations to passive positions while the device is stationary, or
+   * restores the requested accuracy once it moves again.
+   *
+   * <p>When becoming stationary every subscription receives the last position of its registration
+   * once more, marked with {@link #STATIONARY_EXTRA}, so the subscriber knows why positions stop.
+   */
+  public void setStationary(boolean stationary) {
+    if (this.stationary == stationary) {
+      return;
+    }
+
+    this.stationary = stationary;
+    for (Registration registration : new ArrayList<>(registrations.values())) {
+      Location lastLocation = registration.lastLocation;
+      registration.update();
+      if (!stationary || lastLocation == null) {
+        continue;
+      }
+
+      Location marked = new Location(lastLocation);
+      Bundle extras = marked.getExtras() != null ? marked.getExtras() : new Bundle();
+      extras.putBoolean(STATIONARY_EXTRA, true);
+      marked.setExtras(extras);
+      for (PositionSubscription subscription :
+          new ArrayList<>(registration.subscriptions.values())) {
+        subscription.onStationary(marked);
+      }
+    }
+  }
+
+  public boolean hasSubscriptions() {
+    return !registrations.isEmpty();
+  }
+
+  /** Removes all subscriptions and stops the underlying provider registrations. */
+  public void dispose() {
+    for (Registration registration : registrations.values()) {
+      for (PositionSubscription subscription : registration.subscriptions.values()) {
+        subscription.stop();
+      }
+      registration.subscriptions.clear();
+      registration.update();
+    }
+    registrations.clear();
+  }
+
+  private class Registration {
+    private final boolean forceLocationManager;
+    private final Map<Integer, PositionSubscription> subscriptions = new LinkedHashMap<>();
+    private final List<SinglePositionListener> singlePositionListeners = new ArrayList<>();
+
+    @Nullable private LocationClient locationClient;
+    @Nullable private LocationOptions locationOptions;
+    @Nullable private Location lastLocation;
+
+    Registration(boolean forceLocationManager) {
+      this.forceLocationManager = forceLocationManager;
+    }
+
+    void update() {
+      if (subscriptions.isEmpty()) {
+        stop();
+        for (SinglePositionListener listener : takeSinglePositionListeners()) {
+          listener.onAbandoned();
+        }
+        return;
+      }
+
+      List<LocationOptions> options = new ArrayList<>();
+      for (PositionSubscription subscription : subscriptions.values()) {
+        options.add(subscription.getRequestedOptions());
+      }
+
+      LocationOptions mergedOptions = LocationOptions.merge(options);
+      if (stationary) {
+        mergedOptions = mergedOptions.toPassiveOptions();
+      }
+      if (locationClient != null && mergedOptions.equals(locationOptions)) {
+        return;
+      }
+
+      stop();
+      Log.d(TAG, "Starting shared registration for " + subscriptions.size() + " subscriptions.");
+
+      final LocationClient client =
+          geolocationManager.createLocationClient(context, forceLocationManager, mergedOptions);
+      locationClient = client;
+      locationOptions = mergedOptions;
+
+      geolocationManager.startPositionUpdates(
+          client,
+          activity,
+          (Location location) -> {
+            if (client == locationClient) {
+              onPositionChanged(location);
+            }
+          },
+          (ErrorCodes errorCode) -> {
+            if (client == locationClient) {
+              onError(errorCode);
+            }
+          });
+    }
+
+    void stop() {
+      if (locationClient != null) {
+        geolocationManager.stopPositionUpdates(locationClient);
+        locationClient = null;
+        locationOptions = null;
+        lastLocation = null;
+      }
+    }
+
+    private List<SinglePositionListener> takeSinglePositionListeners() {
+      List<SinglePositionListener> listeners = new ArrayList<>(singlePositionListeners);
+      singlePositionListeners.clear();
+      return listeners;
+    }
+
+    private void onPositionChanged(Location location) {
+      if (location != null) {
+        lastLocation = location;
+        for (SinglePositionListener listener : takeSinglePositionListeners()) {
+          listener.onPositionChanged(location);
+        }
+      }
+      for (PositionChangedCallback listener : new ArrayList<>(positionListeners)) {
+        listener.onPositionChanged(location);
+      }
+      for (PositionSubscription subscription : new ArrayList<>(subscriptions.values())) {
+        subscription.onPositionChanged(location);
+      }
+    }
+
+    private void onError(ErrorCodes errorCode) {
+      for (SinglePositionListener listener : takeSinglePositionListeners()) {
+        listener.onError(errorCode);
+      }
+      for (PositionSubscription subscription : new ArrayList<>(subscriptions.values())) {
+        subscription.onError(errorCode);
+      }
+    }
+  }
+}
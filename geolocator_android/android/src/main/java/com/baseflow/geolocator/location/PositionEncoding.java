@@ -0,0 +1,12 @@
+package com.baseflow.geolocator.location;
+
+/** Describes how positions are encoded when they are sent to the Dart side of a position stream. */
+public enum PositionEncoding {
+  /** Every position is sent as a map containing the absolute values of its fields. */
+  map,
+  /**
+   * Positions are sent as compact binary records containing the quantized difference with the
+   * previously sent position, with a full (key frame) record sent periodically.
+   */
+  delta
+}
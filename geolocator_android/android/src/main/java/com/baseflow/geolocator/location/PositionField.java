@@ -0,0 +1,31 @@
+package com.baseflow.geolocator.location;
+
+/**
+ * The optional fields of a position, which can be requested using a bit mask where the bit of a
+ * field is {@code 1 << ordinal()}. The latitude and longitude are always included.
+ */
+public enum PositionField {
+  timestamp,
+  altitude,
+  accuracy,
+  heading,
+  speed,
+  speedAccuracy,
+  isMocked,
+  /**
+   * The provider which determined the position and the age of the position when it is sent. Only
+   * included in map encoded positions; the delta encoding, ring buffer and typed messages don't
+   * carry it.
+   */
+  source;
+
+  /** The bit mask including all fields, except {@link #source} which is only sent on request. */
+  public static final int ALL = (1 << source.ordinal()) - 1;
+
+  /** The bit mask including all fields which can be requested. */
+  public static final int REQUESTABLE = (1 << values().length) - 1;
+
+  public boolean isIn(int fields) {
+    return (fields & (1 << ordinal())) != 0;
+  }
+}
@@ -0,0 +1,11 @@
+package com.baseflow.geolocator.location;
+
+/** Where a last known position returned by the {@link GeolocationManager} came from. */
+public enum PositionSource {
+  /** A position received by the plugin since the process started. */
+  memory,
+  /** A position stored by the {@link LastKnownPositionStore} before the process started. */
+  disk,
+  /** The last known position of the platform location provider. */
+  platform,
+}
@@ -0,0 +1,241 @@
+package com.baseflow.geolocator.location;
+
+import android.location.Location;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.baseflow.geolocator.errors.ErrorCallback;
+import com.baseflow.geolocator.errors.ErrorCodes;
+
+/**
+ * A keyed request for position updates served by the {@link PositionDispatcher}.
+ *
+ * <p>Positions coming from the shared provider registration are filtered using the time interval
+ * and distance filter of this subscription before they are handed to the subscriber.
+ *
+ * <p>A dual-rate subscription ({@link LocationOptions#getPreciseInterval()}) additionally opens a
+ * short precise window once per precise interval, during which the registration is asked for the
+ * best accuracy. The best position of the window is delivered as {@link PositionTier#precise},
+ * all other positions as {@link PositionTier#coarse}, so every position is delivered at most once.
+ * The best position so far is held back until a better one replaces it or the window closes. The
+ * tier is stored in the extras of a copy of the position under {@link #TIER_EXTRA}.
+ */
+public class PositionSubscription {
+  public static final String TIER_EXTRA = "geolocator_tier";
+
+  // Positions arriving slightly earlier than the requested interval are still accepted to
+  // compensate for jitter in the delivery of the provider.
+  private static final long INTERVAL_TOLERANCE_DIVISOR = 10;
+  // A position at least this accurate (in meters) closes a precise window early.
+  private static final float PRECISE_ACCURACY = 20;
+
+  private final int id;
+  private final boolean forceLocationManager;
+  @NonNull private final LocationOptions locationOptions;
+  @NonNull private final PositionChangedCallback positionChangedCallback;
+  @NonNull private final ErrorCallback errorCallback;
+  @Nullable private final LocationOptions preciseOptions;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Runnable preciseWindowStart = this::startPreciseWindow;
+  private final Runnable preciseWindowTimeout = this::closePreciseWindow;
+
+  @Nullable private Location lastLocation;
+  @Nullable private Runnable requestChangedListener;
+  @Nullable private Location bestPreciseLocation;
+  private boolean preciseWindowOpen = false;
+  private long preciseWindowOpenedAt = 0;
+
+  public PositionSubscription(
+      int id,
+      boolean forceLocationManager,
+      @NonNull LocationOptions locationOptions,
+      @NonNull PositionChangedCallback positionChangedCallback,
+      @NonNull ErrorCallback errorCallback) {
+    this.id = id;
+    this.forceLocationManager = forceLocationManager;
+    this.locationOptions = locationOptions;
+    this.positionChangedCallback = positionChangedCallback;
+    this.errorCallback = errorCallback;
+    this.preciseOptions =
+        locationOptions.getPreciseInterval() > 0 ? locationOptions.toPreciseOptions() : null;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  public boolean isForceLocationManager() {
+    return forceLocationManager;
+  }
+
+  @NonNull
+  public LocationOptions getLocationOptions() {
+    return locationOptions;
+  }
+
+  /** The options the provider registration should currently satisfy for this subscription. */
+  @NonNull
+  LocationOptions getRequestedOptions() {
+    return preciseWindowOpen && preciseOptions != null ? preciseOptions : locationOptions;
+  }
+
+  /**
+   * Starts scheduling the precise windows of a dual-rate subscription, the first of which opens
+   * immediately. {@code requestChangedListener} is called whenever {@link #getRequestedOptions()}
+   * changes afterwards. Does nothing for other subscriptions.
+   */
+  void start(@NonNull Runnable requestChangedListener) {
+    if (preciseOptions == null) {
+      return;
+    }
+
+    this.requestChangedListener = requestChangedListener;
+    openPreciseWindow();
+  }
+
+  /** Stops scheduling precise windows, discarding the window currently open (if any). */
+  void stop() {
+    requestChangedListener = null;
+    handler.removeCallbacks(preciseWindowStart);
+    handler.removeCallbacks(preciseWindowTimeout);
+    preciseWindowOpen = false;
+    bestPreciseLocation = null;
+  }
+
+  void onPositionChanged(@Nullable Location location) {
+    if (location == null) {
+      return;
+    }
+
+    if (preciseWindowOpen && collectPrecisePosition(location)) {
+      return;
+    }
+
+    deliverCoarse(location);
+  }
+
+  /** Hands the position to the subscriber without filtering it. */
+  void onStationary(@NonNull Location location) {
+    positionChangedCallback.onPositionChanged(location);
+  }
+
+  void onError(ErrorCodes errorCode) {
+    errorCallback.onError(errorCode);
+  }
+
+  private void startPreciseWindow() {
+    openPreciseWindow();
+    notifyRequestChanged();
+  }
+
+  private void openPreciseWindow() {
+    handler.removeCallbacks(preciseWindowTimeout);
+    preciseWindowOpen = true;
+    preciseWindowOpenedAt = SystemClock.elapsedRealtime();
+    bestPreciseLocation = null;
+    handler.postDelayed(preciseWindowTimeout, locationOptions.getPreciseWindow());
+    handler.postDelayed(preciseWindowStart, locationOptions.getPreciseInterval());
+  }
+
+  private void deliverCoarse(@NonNull Location location) {
+    if (!accepts(location)) {
+      return;
+    }
+
+    lastLocation = location;
+    positionChangedCallback.onPositionChanged(
+        preciseOptions != null ? tag(location, PositionTier.coarse) : location);
+  }
+
+  /**
+   * Keeps the most accurate position determined since the window opened, closing the window once
+   * a position is accurate enough. The position it replaces is delivered as coarse instead.
+   * Positions cached by the provider before the window opened are ignored.
+   *
+   * @return true when the position is held back as the best position of the window.
+   */
+  private boolean collectPrecisePosition(@NonNull Location location) {
+    long windowAge = SystemClock.elapsedRealtime() - preciseWindowOpenedAt;
+    if (!location.hasAccuracy() || LastKnownPositionStore.getAge(location) > windowAge) {
+      return false;
+    }
+
+    Location previousBest = bestPreciseLocation;
+    if (previousBest != null && location.getAccuracy() > previousBest.getAccuracy()) {
+      return false;
+    }
+
+    bestPreciseLocation = location;
+    if (previousBest != null) {
+      deliverCoarse(previousBest);
+    }
+    if (location.getAccuracy() <= PRECISE_ACCURACY) {
+      closePreciseWindow();
+    }
+    return true;
+  }
+
+  private void closePreciseWindow() {
+    handler.removeCallbacks(preciseWindowTimeout);
+    Location location = bestPreciseLocation;
+    preciseWindowOpen = false;
+    bestPreciseLocation = null;
+
+    if (location != null) {
+      positionChangedCallback.onPositionChanged(tag(location, PositionTier.precise));
+    }
+    notifyRequestChanged();
+  }
+
+  private void notifyRequestChanged() {
+    if (requestChangedListener != null) {
+      requestChangedListener.run();
+    }
+  }
+
+  /** Returns a copy of the position carrying the tier, leaving the shared position untouched. */
+  private static Location tag(@NonNull Location location, @NonNull PositionTier tier) {
+    Location tagged = new Location(location);
+    Bundle extras = tagged.getExtras() != null ? tagged.getExtras() : new Bundle();
+    extras.putInt(TIER_EXTRA, tier.ordinal());
+    tagged.setExtras(extras);
+    return tagged;
+  }
+
+  private boolean accepts(@NonNull Location location) {
+    long significantChangeDistance = locationOptions.getSignificantChangeDistance();
+    if (significantChangeDistance > 0) {
+      return isSignificantChange(location, significantChangeDistance);
+    }
+
+    if (lastLocation == null) {
+      return true;
+    }
+
+    long timeInterval = locationOptions.getTimeInterval();
+    long minimumInterval = timeInterval - timeInterval / INTERVAL_TOLERANCE_DIVISOR;
+    if (location.getTime() - lastLocation.getTime() < minimumInterval) {
+      return false;
+    }
+
+    return location.distanceTo(lastLocation) >= locationOptions.getDistanceFilter();
+  }
+
+  /**
+   * Accepts a position once the device moved at least {@code distance} meters since the last
+   * accepted position, regardless of the time passed. Positions less accurate than the distance
+   * itself can't establish such a displacement and are ignored.
+   */
+  private boolean isSignificantChange(@NonNull Location location, long distance) {
+    if (location.hasAccuracy() && location.getAccuracy() > distance) {
+      return false;
+    }
+
+    return lastLocation == null || location.distanceTo(lastLocation) >= distance;
+  }
+}
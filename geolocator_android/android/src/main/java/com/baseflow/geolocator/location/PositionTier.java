@@ -0,0 +1,9 @@
+package com.baseflow.geolocator.location;
+
+/** The tier of a dual-rate {@link PositionSubscription} a position was delivered for. */
+public enum PositionTier {
+  /** A frequent position determined with the accuracy requested for the subscription. */
+  coarse,
+  /** The best position of a short high accuracy window, opened once per precise interval. */
+  precise,
+}
@@ -0,0 +1,12 @@
+package com.baseflow.geolocator.location;
+
+/** Describes how positions are handed over to the Dart side of a position stream. */
+public enum PositionTransport {
+  /** Every position is sent as a separate event, encoded using the {@link PositionEncoding}. */
+  channel,
+  /**
+   * Positions are written as fixed-size records into a ring buffer. Only a single event is in
+   * flight at any time, which carries all records written since the previous event.
+   */
+  ringBuffer
+}
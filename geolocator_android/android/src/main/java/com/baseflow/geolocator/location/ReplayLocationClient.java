@@ -0,0 +1,215 @@
+package com.baseflow.geolocator.location;
+
+import android.app.Activity;
+import android.content.Context;
+import android.location.Location;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.baseflow.geolocator.errors.ErrorCallback;
+import com.baseflow.geolocator.errors.ErrorCodes;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A {@link LocationClient} which replays a recorded {@link ReplayTrace} instead of using the
+ * location providers of the device.
+ *
+ * <p>Samples are delivered on the main thread at the recorded pace divided by the replay speed.
+ * Replayed positions keep their recorded timestamps (shifted by the trace duration for every loop)
+ * so time based filtering behaves the same regardless of the replay speed. Raw NMEA sentences in
+ * the trace are passed to the {@link NmeaClient} before the positions they precede.
+ */
+class ReplayLocationClient implements LocationClient {
+  private static final String TAG = "FlutterGeolocator";
+  private static final List<ReplayLocationClient> activeClients = new CopyOnWriteArrayList<>();
+  private static final ExecutorService loader = Executors.newSingleThreadExecutor();
+
+  private final ReplayOptions replayOptions;
+  private final NmeaClient nmeaClient;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Runnable playbackRunnable = this::onPlaybackTick;
+
+  @Nullable private ReplayTrace trace;
+  @Nullable private PositionChangedCallback positionChangedCallback;
+  private boolean isListening = false;
+  private int index;
+  // The uptime at which the sample at traceTimeBase is due.
+  private long playbackStart;
+  private long traceTimeBase;
+  private long timeShift;
+
+  ReplayLocationClient(
+      @NonNull Context context,
+      @Nullable LocationOptions locationOptions,
+      @NonNull ReplayOptions replayOptions) {
+    this.replayOptions = replayOptions;
+    this.nmeaClient = new NmeaClient(context, locationOptions);
+  }
+
+  /**
+   * Moves all running replays to the supplied offset (in milliseconds) from the start of their
+   * trace.
+   */
+  static void seekActiveClients(long offset) {
+    for (ReplayLocationClient client : activeClients) {
+      client.handler.post(() -> client.seekTo(offset));
+    }
+  }
+
+  @Override
+  public void isLocationServiceEnabled(LocationServiceListener listener) {
+    listener.onLocationServiceResult(true);
+  }
+
+  @Override
+  public void getLastKnownPosition(
+      PositionChangedCallback positionChangedCallback, ErrorCallback errorCallback) {
+    loadTrace(
+        loadedTrace -> {
+          Location location = loadedTrace.locationAt(replayOptions.getStartOffset());
+          positionChangedCallback.onPositionChanged(location != null ? copy(location) : null);
+        },
+        errorCallback);
+  }
+
+  @Override
+  public boolean onActivityResult(int requestCode, int resultCode) {
+    return false;
+  }
+
+  @Override
+  public void startPositionUpdates(
+      Activity activity,
+      PositionChangedCallback positionChangedCallback,
+      ErrorCallback errorCallback) {
+    this.positionChangedCallback = positionChangedCallback;
+    this.isListening = true;
+    this.nmeaClient.startReplay();
+    activeClients.add(this);
+
+    loadTrace(
+        loadedTrace -> {
+          if (!isListening) {
+            return;
+          }
+
+          trace = loadedTrace;
+          timeShift = 0;
+          seekTo(replayOptions.getStartOffset());
+        },
+        errorCallback);
+  }
+
+  @Override
+  public void stopPositionUpdates() {
+    isListening = false;
+    activeClients.remove(this);
+    handler.removeCallbacks(playbackRunnable);
+    nmeaClient.stop();
+  }
+
+  private void loadTrace(TraceCallback onLoaded, ErrorCallback onError) {
+    loader.execute(
+        () -> {
+          try {
+            ReplayTrace loadedTrace = replayOptions.getTrace();
+            handler.post(() -> onLoaded.onTrace(loadedTrace));
+          } catch (IOException e) {
+            Log.e(TAG, "Unable to load replay trace " + replayOptions.getPath(), e);
+            handler.post(() -> onError.onError(ErrorCodes.errorWhileAcquiringPosition));
+          }
+        });
+  }
+
+  private void seekTo(long offset) {
+    if (!isListening || trace == null) {
+      return;
+    }
+
+    handler.removeCallbacks(playbackRunnable);
+    index = trace.indexOf(offset);
+    traceTimeBase = trace.getStartTime() + Math.max(0, offset);
+    playbackStart = SystemClock.uptimeMillis();
+    scheduleNext();
+  }
+
+  private void scheduleNext() {
+    if (trace == null) {
+      return;
+    }
+
+    List<ReplayTrace.Sample> samples = trace.getSamples();
+    if (index >= samples.size()) {
+      if (!replayOptions.isLoop()) {
+        Log.d(TAG, "Reached the end of replay trace " + replayOptions.getPath());
+        return;
+      }
+
+      // Continue one average sample interval after the last sample of the previous iteration.
+      long duration = trace.getDuration();
+      timeShift += duration + (samples.size() > 1 ? duration / (samples.size() - 1) : 1000);
+      index = 0;
+      traceTimeBase = trace.getStartTime();
+      playbackStart = SystemClock.uptimeMillis();
+    }
+
+    handler.postAtTime(playbackRunnable, dueTime(samples.get(index)));
+  }
+
+  private void onPlaybackTick() {
+    if (!isListening || trace == null) {
+      return;
+    }
+
+    // Deliver all samples that are due, so high replay speeds don't need a message per sample.
+    List<ReplayTrace.Sample> samples = trace.getSamples();
+    long now = SystemClock.uptimeMillis();
+    while (isListening && index < samples.size() && dueTime(samples.get(index)) <= now) {
+      deliver(samples.get(index++));
+    }
+
+    if (isListening) {
+      scheduleNext();
+    }
+  }
+
+  private long dueTime(ReplayTrace.Sample sample) {
+    return playbackStart + (long) ((sample.time - traceTimeBase) / replayOptions.getSpeed());
+  }
+
+  private void deliver(ReplayTrace.Sample sample) {
+    if (sample.nmeaMessage != null) {
+      nmeaClient.onNmeaMessage(sample.nmeaMessage);
+    }
+
+    if (sample.location != null && positionChangedCallback != null) {
+      Location location = copy(sample.location);
+      location.setTime(sample.time + timeShift);
+      nmeaClient.enrichExtrasWithNmea(location);
+      positionChangedCallback.onPositionChanged(location);
+    }
+  }
+
+  private static Location copy(Location recorded) {
+    Location location = new Location(recorded);
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+      location.setElapsedRealtimeNanos(SystemClock.elapsedRealtimeNanos());
+    }
+    return location;
+  }
+
+  private interface TraceCallback {
+    void onTrace(ReplayTrace trace);
+  }
+}
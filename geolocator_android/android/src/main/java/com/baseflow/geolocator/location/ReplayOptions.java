@@ -0,0 +1,70 @@
+package com.baseflow.geolocator.location;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Map;
+
+/** Describes the recorded trace replayed by the {@link ReplayLocationClient}. */
+public class ReplayOptions {
+  private final String path;
+  private final double speed;
+  private final long startOffset;
+  private final boolean loop;
+
+  @Nullable private ReplayTrace trace;
+
+  private ReplayOptions(String path, double speed, long startOffset, boolean loop) {
+    this.path = path;
+    this.speed = speed;
+    this.startOffset = startOffset;
+    this.loop = loop;
+  }
+
+  @Nullable
+  public static ReplayOptions parseArguments(@Nullable Map<String, Object> arguments) {
+    if (arguments == null || arguments.get("path") == null) {
+      return null;
+    }
+
+    final String path = (String) arguments.get("path");
+    final Number speed = (Number) arguments.get("speed");
+    final Number startOffset = (Number) arguments.get("startOffset");
+    final Boolean loop = (Boolean) arguments.get("loop");
+
+    return new ReplayOptions(
+        path,
+        speed != null && speed.doubleValue() > 0 ? speed.doubleValue() : 1,
+        startOffset != null ? startOffset.longValue() : 0,
+        loop != null && loop);
+  }
+
+  /** Returns the trace, which is parsed the first time it is requested. */
+  @NonNull
+  public synchronized ReplayTrace getTrace() throws IOException {
+    if (trace == null) {
+      trace = ReplayTrace.load(path);
+    }
+    return trace;
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  /** Returns the replay speed relative to the recorded speed, e.g. 100 for 100 times faster. */
+  public double getSpeed() {
+    return speed;
+  }
+
+  /** Returns the offset into the trace in milliseconds at which the replay starts. */
+  public long getStartOffset() {
+    return startOffset;
+  }
+
+  /** Returns whether the replay restarts at the beginning once the end of the trace is reached. */
+  public boolean isLoop() {
+    return loop;
+  }
+}
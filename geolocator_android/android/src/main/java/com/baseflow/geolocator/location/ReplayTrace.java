@@ -0,0 +1,404 @@
+package com.baseflow.geolocator.location;
+
+import android.location.Location;
+import android.util.Xml;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * A recorded position trace which can be replayed by the {@link ReplayLocationClient}.
+ *
+ * <p>Supported formats are GPX (track, route and way points), CSV ({@code
+ * time,latitude,longitude[,altitude,accuracy,bearing,speed]} where time is in milliseconds since
+ * epoch, which includes the format written by the {@link BackgroundLocationBuffer}) and raw NMEA
+ * ({@code RMC} sentences provide positions, {@code GGA} sentences altitude and accuracy). The raw
+ * NMEA sentences are replayed as well, so the {@link NmeaClient} enrichment can be exercised.
+ */
+public class ReplayTrace {
+  static final String PROVIDER = "replay";
+
+  // Spacing used for GPX points without a timestamp.
+  private static final long DEFAULT_SAMPLE_INTERVAL = 1000;
+  private static final long DAY = 24 * 60 * 60 * 1000L;
+  private static final float KNOTS_TO_METERS_PER_SECOND = 0.514444f;
+  // Approximation of the user equivalent range error used to convert HDOP to an accuracy in meters.
+  private static final float HDOP_TO_METERS = 5f;
+
+  private final List<Sample> samples;
+
+  private ReplayTrace(List<Sample> samples) {
+    this.samples = Collections.unmodifiableList(samples);
+  }
+
+  /** Parses the trace stored at {@code path}, the format is derived from the file contents. */
+  public static ReplayTrace load(@NonNull String path) throws IOException {
+    File file = new File(path);
+
+    try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+      reader.mark(1024);
+      int firstCharacter;
+      do {
+        firstCharacter = reader.read();
+      } while (firstCharacter != -1 && Character.isWhitespace(firstCharacter));
+      reader.reset();
+
+      List<Sample> samples;
+      if (firstCharacter == '<') {
+        samples = parseGpx(reader);
+      } else if (firstCharacter == '$' || firstCharacter == '!') {
+        samples = parseNmea(reader);
+      } else {
+        samples = parseCsv(reader);
+      }
+
+      if (samples.isEmpty()) {
+        throw new IOException("The trace " + path + " does not contain any positions.");
+      }
+      return new ReplayTrace(samples);
+    }
+  }
+
+  @NonNull
+  List<Sample> getSamples() {
+    return samples;
+  }
+
+  /** Returns the time of the first sample in milliseconds since epoch. */
+  long getStartTime() {
+    return samples.get(0).time;
+  }
+
+  /** Returns the duration of the trace in milliseconds. */
+  long getDuration() {
+    return samples.get(samples.size() - 1).time - getStartTime();
+  }
+
+  /** Returns the index of the first sample at or after {@code offset} milliseconds. */
+  int indexOf(long offset) {
+    long time = getStartTime() + Math.max(0, offset);
+    int low = 0;
+    int high = samples.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (samples.get(middle).time < time) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /** Returns the most recent position at or before {@code offset} milliseconds. */
+  @Nullable
+  Location locationAt(long offset) {
+    int index = Math.min(indexOf(offset), samples.size() - 1);
+    for (int i = index; i >= 0; i--) {
+      if (samples.get(i).location != null) {
+        return samples.get(i).location;
+      }
+    }
+    for (Sample sample : samples) {
+      if (sample.location != null) {
+        return sample.location;
+      }
+    }
+    return null;
+  }
+
+  private static List<Sample> parseCsv(BufferedReader reader) throws IOException {
+    List<Sample> samples = new ArrayList<>();
+    String line;
+    while ((line = reader.readLine()) != null) {
+      String[] tokens = line.trim().split(",", -1);
+      if (tokens.length < 3) {
+        continue;
+      }
+
+      try {
+        long time = Long.parseLong(tokens[0].trim());
+        Location location = new Location(PROVIDER);
+        location.setTime(time);
+        location.setLatitude(Double.parseDouble(tokens[1].trim()));
+        location.setLongitude(Double.parseDouble(tokens[2].trim()));
+        if (hasToken(tokens, 3)) location.setAltitude(Double.parseDouble(tokens[3].trim()));
+        if (hasToken(tokens, 4)) location.setAccuracy(Float.parseFloat(tokens[4].trim()));
+        if (hasToken(tokens, 5)) location.setBearing(Float.parseFloat(tokens[5].trim()));
+        if (hasToken(tokens, 6)) location.setSpeed(Float.parseFloat(tokens[6].trim()));
+        samples.add(new Sample(time, location, null));
+      } catch (NumberFormatException e) {
+        // Skip the header and malformed lines.
+      }
+    }
+
+    sortByTime(samples);
+    return samples;
+  }
+
+  private static List<Sample> parseGpx(Reader reader) throws IOException {
+    List<Sample> samples = new ArrayList<>();
+
+    try {
+      XmlPullParser parser = Xml.newPullParser();
+      parser.setInput(reader);
+
+      Location location = null;
+      long time = 0;
+      boolean hasTime = false;
+      String element = null;
+
+      for (int event = parser.getEventType();
+          event != XmlPullParser.END_DOCUMENT;
+          event = parser.next()) {
+        if (event == XmlPullParser.START_TAG) {
+          element = parser.getName();
+          if (isGpxPoint(element)) {
+            location = new Location(PROVIDER);
+            location.setLatitude(Double.parseDouble(parser.getAttributeValue(null, "lat")));
+            location.setLongitude(Double.parseDouble(parser.getAttributeValue(null, "lon")));
+            hasTime = false;
+          }
+        } else if (event == XmlPullParser.TEXT && location != null && element != null) {
+          String text = parser.getText().trim();
+          if (text.isEmpty()) {
+            continue;
+          }
+
+          switch (element) {
+            case "ele":
+              location.setAltitude(Double.parseDouble(text));
+              break;
+            case "time":
+              time = parseIsoTime(text);
+              hasTime = true;
+              break;
+            case "speed":
+              location.setSpeed(Float.parseFloat(text));
+              break;
+            case "course":
+              location.setBearing(Float.parseFloat(text));
+              break;
+            case "hdop":
+              location.setAccuracy(Float.parseFloat(text) * HDOP_TO_METERS);
+              break;
+            default:
+              break;
+          }
+        } else if (event == XmlPullParser.END_TAG) {
+          element = null;
+          if (location != null && isGpxPoint(parser.getName())) {
+            if (!hasTime && !samples.isEmpty()) {
+              time = samples.get(samples.size() - 1).time + DEFAULT_SAMPLE_INTERVAL;
+            }
+            location.setTime(time);
+            samples.add(new Sample(time, location, null));
+            location = null;
+          }
+        }
+      }
+    } catch (XmlPullParserException | RuntimeException e) {
+      throw new IOException("Unable to parse GPX trace.", e);
+    }
+
+    sortByTime(samples);
+    return samples;
+  }
+
+  private static List<Sample> parseNmea(BufferedReader reader) throws IOException {
+    List<Sample> samples = new ArrayList<>();
+    long time = 0;
+    long date = 0;
+    long firstDate = 0;
+    Double altitude = null;
+    Float accuracy = null;
+
+    String line;
+    while ((line = reader.readLine()) != null) {
+      String sentence = line.trim();
+      if (sentence.length() < 6 || sentence.charAt(0) != '$') {
+        continue;
+      }
+
+      String[] tokens = stripChecksum(sentence).split(",", -1);
+      String type = tokens[0].substring(3);
+      Location location = null;
+
+      try {
+        if (type.equals("RMC") && tokens.length > 9) {
+          date = parseNmeaDate(tokens[9], date);
+          if (firstDate == 0) {
+            firstDate = date;
+          }
+          time = nextNmeaTime(date, tokens[1], time);
+          if (tokens[2].equals("A")) {
+            location = new Location(PROVIDER);
+            location.setTime(time);
+            location.setLatitude(parseNmeaCoordinate(tokens[3], tokens[4]));
+            location.setLongitude(parseNmeaCoordinate(tokens[5], tokens[6]));
+            if (!tokens[7].isEmpty()) {
+              location.setSpeed(Float.parseFloat(tokens[7]) * KNOTS_TO_METERS_PER_SECOND);
+            }
+            if (!tokens[8].isEmpty()) location.setBearing(Float.parseFloat(tokens[8]));
+            if (altitude != null) location.setAltitude(altitude);
+            if (accuracy != null) location.setAccuracy(accuracy);
+          }
+        } else if (type.equals("GGA") && tokens.length > 11) {
+          if (!tokens[1].isEmpty()) {
+            time = nextNmeaTime(date, tokens[1], time);
+          }
+          altitude =
+              tokens[9].isEmpty()
+                  ? null
+                  : Double.parseDouble(tokens[9])
+                      + (tokens[11].isEmpty() ? 0 : Double.parseDouble(tokens[11]));
+          accuracy = tokens[8].isEmpty() ? null : Float.parseFloat(tokens[8]) * HDOP_TO_METERS;
+        }
+      } catch (RuntimeException e) {
+        continue;
+      }
+
+      samples.add(new Sample(time, null, sentence));
+      if (location != null) {
+        samples.add(new Sample(time, location, null));
+      }
+    }
+
+    // Sentences received before the first date was known only carry the time of day.
+    if (firstDate != 0) {
+      for (int i = 0; i < samples.size(); i++) {
+        Sample sample = samples.get(i);
+        if (sample.time >= DAY) {
+          break;
+        }
+        samples.set(i, new Sample(sample.time + firstDate, sample.location, sample.nmeaMessage));
+      }
+    }
+
+    return samples;
+  }
+
+  // Combines the date and time of day, rolling over to the next day when the time wraps around
+  // midnight before a sentence with the new date has been received.
+  private static long nextNmeaTime(long date, String timeOfDay, long previousTime) {
+    long time = date + parseNmeaTime(timeOfDay);
+    while (time < previousTime - DAY / 2) {
+      time += DAY;
+    }
+    return time;
+  }
+
+  private static boolean isGpxPoint(String element) {
+    return "trkpt".equals(element) || "rtept".equals(element) || "wpt".equals(element);
+  }
+
+  private static boolean hasToken(String[] tokens, int index) {
+    return tokens.length > index && !tokens[index].trim().isEmpty();
+  }
+
+  private static void sortByTime(List<Sample> samples) {
+    // The sort is stable, so samples sharing a timestamp keep their recorded order.
+    Collections.sort(samples, (a, b) -> a.time < b.time ? -1 : (a.time == b.time ? 0 : 1));
+  }
+
+  private static String stripChecksum(String sentence) {
+    int checksumIndex = sentence.indexOf('*');
+    return checksumIndex < 0 ? sentence : sentence.substring(0, checksumIndex);
+  }
+
+  private static double parseNmeaCoordinate(String value, String hemisphere) {
+    double raw = Double.parseDouble(value);
+    double degrees = Math.floor(raw / 100);
+    double coordinate = degrees + (raw - degrees * 100) / 60;
+    return hemisphere.equals("S") || hemisphere.equals("W") ? -coordinate : coordinate;
+  }
+
+  // Returns the milliseconds since midnight for a hhmmss.sss formatted time.
+  private static long parseNmeaTime(String value) {
+    if (value.length() < 6) {
+      return 0;
+    }
+
+    long hours = Long.parseLong(value.substring(0, 2));
+    long minutes = Long.parseLong(value.substring(2, 4));
+    double seconds = Double.parseDouble(value.substring(4));
+    return (hours * 3600 + minutes * 60) * 1000 + Math.round(seconds * 1000);
+  }
+
+  // Returns the milliseconds since epoch for a ddmmyy formatted date.
+  private static long parseNmeaDate(String value, long fallback) {
+    if (value.length() != 6) {
+      return fallback;
+    }
+
+    Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    calendar.clear();
+    calendar.set(
+        2000 + Integer.parseInt(value.substring(4, 6)),
+        Integer.parseInt(value.substring(2, 4)) - 1,
+        Integer.parseInt(value.substring(0, 2)));
+    return calendar.getTimeInMillis();
+  }
+
+  // Parses the ISO 8601 timestamps used by GPX, e.g. 2022-01-31T12:30:05.250Z.
+  private static long parseIsoTime(String value) {
+    Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    calendar.clear();
+    calendar.set(
+        Integer.parseInt(value.substring(0, 4)),
+        Integer.parseInt(value.substring(5, 7)) - 1,
+        Integer.parseInt(value.substring(8, 10)),
+        Integer.parseInt(value.substring(11, 13)),
+        Integer.parseInt(value.substring(14, 16)),
+        Integer.parseInt(value.substring(17, 19)));
+    long time = calendar.getTimeInMillis();
+
+    int index = 19;
+    if (index < value.length() && value.charAt(index) == '.') {
+      int start = ++index;
+      while (index < value.length() && Character.isDigit(value.charAt(index))) {
+        index++;
+      }
+      String fraction = (value.substring(start, index) + "000").substring(0, 3);
+      time += Integer.parseInt(fraction);
+    }
+
+    if (index < value.length() && (value.charAt(index) == '+' || value.charAt(index) == '-')) {
+      int sign = value.charAt(index) == '+' ? 1 : -1;
+      String offset = value.substring(index + 1).replace(":", "");
+      long offsetMinutes =
+          Long.parseLong(offset.substring(0, 2)) * 60
+              + (offset.length() >= 4 ? Long.parseLong(offset.substring(2, 4)) : 0);
+      time -= sign * offsetMinutes * 60000;
+    }
+
+    return time;
+  }
+
+  /** A single recorded event, either a position or a raw NMEA sentence. */
+  static class Sample {
+    final long time;
+    @Nullable final Location location;
+    @Nullable final String nmeaMessage;
+
+    Sample(long time, @Nullable Location location, @Nullable String nmeaMessage) {
+      this.time = time;
+      this.location = location;
+      this.nmeaMessage = nmeaMessage;
+    }
+  }
+}
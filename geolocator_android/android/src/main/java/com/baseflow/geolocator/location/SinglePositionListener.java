@@ -0,0 +1,11 @@
+package com.baseflow.geolocator.location;
+
+import com.baseflow.geolocator.errors.ErrorCallback;
+
+/**
+ * Receives the result of {@link PositionDispatcher#requestSinglePosition}: either a position, an
+ * error, or a notification that the registration stopped or no position arrived in time.
+ */
+public interface SinglePositionListener extends PositionChangedCallback, ErrorCallback {
+  void onAbandoned();
+}
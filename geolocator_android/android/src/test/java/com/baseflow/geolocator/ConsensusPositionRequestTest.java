@@ -0,0 +1,137 @@
+package com.baseflow.geolocator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import android.app.Activity;
+import android.content.Context;
+import android.location.Location;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.baseflow.geolocator.errors.ErrorCallback;
+import com.baseflow.geolocator.location.GeolocationManager;
+import com.baseflow.geolocator.location.LocationClient;
+import com.baseflow.geolocator.location.LocationOptions;
+import com.baseflow.geolocator.location.LocationServiceListener;
+import com.baseflow.geolocator.location.PositionChangedCallback;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.flutter.plugin.common.MethodChannel;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ConsensusPositionRequestTest {
+  @Nullable private PositionChangedCallback positionChangedCallback;
+  @Nullable private Map<String, Object> position;
+
+  @Test
+  public void rejectsAFarOutlierAndCombinesTheRemainingFixes() {
+    // Arrange
+    new ConsensusPositionRequest(
+            RuntimeEnvironment.getApplication(),
+            null,
+            new FakeGeolocationManager(),
+            false,
+            LocationOptions.parseArguments(new HashMap<>()),
+            4,
+            10000,
+            new RecordingResult())
+        .start();
+
+    // Act
+    positionChangedCallback.onPositionChanged(location(1000, 52.0, 5, 10));
+    positionChangedCallback.onPositionChanged(location(2000, 52.00001, 5, 12));
+    positionChangedCallback.onPositionChanged(location(3000, 51.99999, 5, 14));
+    positionChangedCallback.onPositionChanged(location(4000, 52.01, 50, 500));
+
+    // Assert
+    assertNotNull(position);
+    assertEquals(52.0, (double) position.get("latitude"), 1e-7);
+    assertEquals(5.0, (double) position.get("longitude"), 1e-7);
+    // The combined accuracy of three fixes of 5 meters, which outweighs their spread.
+    assertEquals(5 / Math.sqrt(3), (double) position.get("accuracy"), 0.001);
+    assertEquals(12.0, (double) position.get("altitude"), 0.001);
+    assertEquals(3000L, position.get("timestamp"));
+  }
+
+  private static Location location(long time, double latitude, float accuracy, double altitude) {
+    Location location = new Location("fused");
+    location.setTime(time);
+    location.setLatitude(latitude);
+    location.setLongitude(5);
+    location.setAccuracy(accuracy);
+    location.setAltitude(altitude);
+    return location;
+  }
+
+  private class FakeGeolocationManager extends GeolocationManager {
+    @Override
+    public LocationClient acquireLocationClient(
+        Context context,
+        boolean forceAndroidLocationManager,
+        @Nullable LocationOptions locationOptions) {
+      return new LocationClient() {
+        @Override
+        public void isLocationServiceEnabled(LocationServiceListener listener) {}
+
+        @Override
+        public void getLastKnownPosition(
+            PositionChangedCallback positionChangedCallback, ErrorCallback errorCallback) {}
+
+        @Override
+        public boolean onActivityResult(int requestCode, int resultCode) {
+          return false;
+        }
+
+        @Override
+        public void startPositionUpdates(
+            Activity activity,
+            PositionChangedCallback positionChangedCallback,
+            ErrorCallback errorCallback) {}
+
+        @Override
+        public void stopPositionUpdates() {}
+      };
+    }
+
+    @Override
+    public void startPositionUpdates(
+        @NonNull LocationClient locationClient,
+        @Nullable Activity activity,
+        @NonNull PositionChangedCallback positionChangedCallback,
+        @NonNull ErrorCallback errorCallback) {
+      ConsensusPositionRequestTest.this.positionChangedCallback = positionChangedCallback;
+    }
+
+    @Override
+    public void stopPositionUpdates(@NonNull LocationClient locationClient) {}
+
+    @Override
+    public void releaseLocationClient(@NonNull LocationClient locationClient) {}
+  }
+
+  private class RecordingResult implements MethodChannel.Result {
+    @Override
+    @SuppressWarnings("unchecked")
+    public void success(@Nullable Object result) {
+      position = (Map<String, Object>) result;
+    }
+
+    @Override
+    public void error(
+        @NonNull String errorCode, @Nullable String errorMessage, @Nullable Object errorDetails) {}
+
+    @Override
+    public void notImplemented() {}
+  }
+}
@@ -0,0 +1,261 @@
+package com.baseflow.geolocator;
+
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.baseflow.geolocator.location.GeolocationManager;
+import com.baseflow.geolocator.location.LocationClient;
+import com.baseflow.geolocator.location.LocationOptions;
+import com.baseflow.geolocator.location.SyntheticLocationClient;
+import com.baseflow.geolocator.permission.PermissionManager;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.StandardMethodCodec;
+
+/**
+ * Measures the throughput of the position stream pipeline by pushing synthetic positions at a
+ * fixed rate through a {@link StreamHandlerImpl} which is connected to a recording {@link
+ * BinaryMessenger} instead of a Flutter engine.
+ *
+ * <p>Everything from the {@link com.baseflow.geolocator.location.PositionDispatcher} up to the
+ * encoded event channel envelopes is exercised, only the Dart side is replaced by an immediate
+ * acknowledgement. The main looper is advanced by Robolectric, so a run takes as long as the
+ * pipeline needs to handle the positions rather than the simulated duration.
+ */
+class ThroughputHarness {
+  private static final String TAG = "ThroughputHarness";
+  // Time allowed for positions still in the pipeline to be delivered after the last emission.
+  private static final long DRAIN_TIMEOUT = 500;
+
+  private final Context context;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+
+  ThroughputHarness(@NonNull Context context) {
+    this.context = context;
+  }
+
+  /**
+   * Runs a single measurement and returns its report.
+   *
+   * @param settings the settings of the measured position stream, as sent by the Dart side.
+   * @param rate the number of positions per second.
+   * @param duration the time during which positions are emitted, in milliseconds.
+   */
+  Map<String, Object> run(@NonNull Map<String, Object> settings, double rate, long duration) {
+    int positionCount = (int) Math.ceil(rate * duration / 1000);
+    SyntheticLocationClient locationClient = new SyntheticLocationClient(rate, positionCount);
+    RecordingBinaryMessenger messenger = new RecordingBinaryMessenger(handler, positionCount);
+    StreamHandlerImpl streamHandler =
+        new StreamHandlerImpl(
+            new PermissionManager() {
+              @Override
+              public boolean hasPermission(Context context) {
+                // Synthetic positions don't require access to the location of the device.
+                return true;
+              }
+            },
+            new GeolocationManager() {
+              @Override
+              public LocationClient createLocationClient(
+                  Context context,
+                  boolean forceAndroidLocationManager,
+                  @Nullable LocationOptions locationOptions) {
+                return locationClient;
+              }
+            });
+
+    streamHandler.startListening(context, messenger);
+    Integer streamId = streamHandler.createPositionStream();
+    String channelName = StreamHandlerImpl.CHANNEL_NAME + "/" + streamId;
+
+    long allocatedBytesAtStart = getAllocatedBytes();
+    long startTime = System.nanoTime();
+    messenger.dispatch(channelName, new MethodCall("listen", settings));
+    shadowOf(Looper.getMainLooper()).idleFor(duration + DRAIN_TIMEOUT, TimeUnit.MILLISECONDS);
+    messenger.dispatch(channelName, new MethodCall("cancel", null));
+    long elapsedTime = System.nanoTime() - startTime;
+    long allocatedBytes =
+        allocatedBytesAtStart < 0 ? -1 : getAllocatedBytes() - allocatedBytesAtStart;
+    streamHandler.stopListening();
+
+    Map<String, Object> report =
+        createReport(locationClient, messenger, elapsedTime, allocatedBytes);
+    Log.i(TAG, "Throughput at " + rate + " Hz: " + report);
+    return report;
+  }
+
+  private static Map<String, Object> createReport(
+      SyntheticLocationClient locationClient,
+      RecordingBinaryMessenger messenger,
+      long elapsedTime,
+      long allocatedBytes) {
+    int emittedCount = locationClient.getEmittedCount();
+    int deliveredCount = messenger.getEventCount();
+    double elapsedSeconds = elapsedTime / 1e9;
+
+    // Positions are identified by their timestamp, which is the base time plus the sequence.
+    long[] latencies = new long[deliveredCount];
+    int latencyCount = 0;
+    for (int i = 0; i < deliveredCount; i++) {
+      Long timestamp = messenger.decodeTimestamp(i);
+      if (timestamp == null) {
+        continue;
+      }
+
+      int sequence = (int) (timestamp - locationClient.getBaseTime());
+      if (sequence >= 0 && sequence < emittedCount) {
+        latencies[latencyCount++] =
+            messenger.getEventTime(i) - locationClient.getEmissionTime(sequence);
+      }
+    }
+    Arrays.sort(latencies, 0, latencyCount);
+
+    Map<String, Object> report = new HashMap<>();
+    report.put("emittedCount", emittedCount);
+    report.put("deliveredCount", deliveredCount);
+    report.put("deliveredBytes", messenger.getEventBytes());
+    report.put("elapsedMillis", elapsedTime / 1000000);
+    report.put("throughput", deliveredCount / elapsedSeconds);
+    report.put("latencyP50Micros", percentile(latencies, latencyCount, 0.5) / 1000);
+    report.put("latencyP99Micros", percentile(latencies, latencyCount, 0.99) / 1000);
+    report.put("latencyMaxMicros", percentile(latencies, latencyCount, 1) / 1000);
+    report.put(
+        "allocatedBytesPerSecond", allocatedBytes < 0 ? -1 : allocatedBytes / elapsedSeconds);
+    report.put(
+        "allocatedBytesPerPosition",
+        allocatedBytes < 0 || emittedCount == 0 ? -1 : allocatedBytes / (double) emittedCount);
+    return report;
+  }
+
+  private static long percentile(long[] sorted, int count, double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+
+    int index = (int) Math.ceil(percentile * count) - 1;
+    return sorted[Math.max(0, Math.min(count - 1, index))];
+  }
+
+  /** Returns the number of bytes allocated by the current thread, or -1 when not available. */
+  private static long getAllocatedBytes() {
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+      return -1;
+    }
+
+    return ((com.sun.management.ThreadMXBean) threadMXBean)
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * A {@link BinaryMessenger} standing in for a Flutter engine which records the events sent to it
+   * and acknowledges them immediately.
+   */
+  private static class RecordingBinaryMessenger implements BinaryMessenger {
+    private final Handler handler;
+    private final Map<String, BinaryMessageHandler> messageHandlers = new HashMap<>();
+    private final List<ByteBuffer> events;
+    private long[] eventTimes;
+    private long eventBytes = 0;
+
+    RecordingBinaryMessenger(Handler handler, int expectedEventCount) {
+      this.handler = handler;
+      this.events = new ArrayList<>(expectedEventCount);
+      this.eventTimes = new long[Math.max(16, expectedEventCount)];
+    }
+
+    @Override
+    public void send(@NonNull String channel, @Nullable ByteBuffer message) {
+      send(channel, message, null);
+    }
+
+    @Override
+    public void send(
+        @NonNull String channel,
+        @Nullable ByteBuffer message,
+        @Nullable BinaryMessenger.BinaryReply callback) {
+      long time = System.nanoTime();
+      if (message != null) {
+        if (events.size() == eventTimes.length) {
+          eventTimes = Arrays.copyOf(eventTimes, eventTimes.length * 2);
+        }
+        eventTimes[events.size()] = time;
+        events.add(message);
+        eventBytes += message.position();
+      }
+
+      if (callback != null) {
+        // The Dart side replies asynchronously once the event has been handled.
+        handler.post(() -> callback.reply(null));
+      }
+    }
+
+    @Override
+    public void setMessageHandler(@NonNull String channel, @Nullable BinaryMessageHandler handler) {
+      if (handler == null) {
+        messageHandlers.remove(channel);
+      } else {
+        messageHandlers.put(channel, handler);
+      }
+    }
+
+    /** Sends a method call to the handler registered on {@code channel}, like the engine does. */
+    void dispatch(String channel, MethodCall methodCall) {
+      BinaryMessageHandler messageHandler = messageHandlers.get(channel);
+      if (messageHandler != null) {
+        ByteBuffer message = StandardMethodCodec.INSTANCE.encodeMethodCall(methodCall);
+        message.flip();
+        messageHandler.onMessage(message, reply -> {});
+      }
+    }
+
+    int getEventCount() {
+      return events.size();
+    }
+
+    long getEventTime(int index) {
+      return eventTimes[index];
+    }
+
+    long getEventBytes() {
+      return eventBytes;
+    }
+
+    @Nullable
+    Long decodeTimestamp(int index) {
+      // Envelopes are handed over with their position at the end of the encoded data.
+      ByteBuffer envelope = events.get(index).duplicate();
+      envelope.flip();
+      envelope.order(ByteOrder.nativeOrder());
+      try {
+        Object position = StandardMethodCodec.INSTANCE.decodeEnvelope(envelope);
+        if (position instanceof Map) {
+          Object timestamp = ((Map<?, ?>) position).get("timestamp");
+          return timestamp instanceof Number ? ((Number) timestamp).longValue() : null;
+        }
+      } catch (RuntimeException e) {
+        Log.w(TAG, "Unable to decode recorded event", e);
+      }
+      return null;
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package com.baseflow.geolocator;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ThroughputHarnessTest {
+  @Test
+  public void deliversEveryPositionAtOneKilohertz() {
+    // Arrange
+    ThroughputHarness harness = new ThroughputHarness(RuntimeEnvironment.getApplication());
+    Map<String, Object> settings = new HashMap<>();
+    settings.put("accuracy", 4);
+    settings.put("timeInterval", 0);
+
+    // Act
+    Map<String, Object> report = harness.run(settings, 1000, 1000);
+
+    // Assert
+    assertEquals(1000, report.get("emittedCount"));
+    assertEquals(1000, report.get("deliveredCount"));
+  }
+}
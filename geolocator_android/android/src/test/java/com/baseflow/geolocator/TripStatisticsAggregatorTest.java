@@ -0,0 +1,108 @@
+package com.baseflow.geolocator;
+
+import static org.junit.Assert.assertEquals;
+
+import android.location.Location;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Map;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class TripStatisticsAggregatorTest {
+  @Test
+  public void positionsReceivedTwiceWhileStationaryAreCountedOnce() {
+    // Arrange
+    TripStatisticsAggregator aggregator = new TripStatisticsAggregator();
+    aggregator.start();
+    aggregator.onPositionChanged(location(1000, 0));
+
+    // Act
+    aggregator.onPositionChanged(location(2000, 0));
+    aggregator.onPositionChanged(location(2000, 0));
+    aggregator.onPositionChanged(location(3000, 0));
+
+    // Assert
+    assertEquals(3, aggregator.toHashMap().get("positionCount"));
+  }
+
+  @Test
+  public void rejectedPositionsReceivedTwiceAreCountedOnce() {
+    // Arrange
+    TripStatisticsAggregator aggregator = new TripStatisticsAggregator();
+    aggregator.start();
+    Location inaccurate = location(1000, 0);
+    inaccurate.setAccuracy(100);
+
+    // Act
+    aggregator.onPositionChanged(inaccurate);
+    aggregator.onPositionChanged(inaccurate);
+
+    // Assert
+    assertEquals(1, aggregator.toHashMap().get("rejectedCount"));
+  }
+
+  @Test
+  public void positionsWithinTheirAccuracyDoNotAddDistance() {
+    // Arrange
+    TripStatisticsAggregator aggregator = new TripStatisticsAggregator();
+    aggregator.start();
+    aggregator.onPositionChanged(location(1000, 0));
+
+    // Act
+    aggregator.onPositionChanged(location(2000, 0.00005));
+    aggregator.onPositionChanged(location(11000, 0.001));
+
+    // Assert
+    Map<String, Object> statistics = aggregator.toHashMap();
+    assertEquals(111.2, (double) statistics.get("distance"), 0.5);
+    assertEquals(10000L, statistics.get("movingTime"));
+  }
+
+  @Test
+  public void slowSegmentsAddDistanceButNoMovingTime() {
+    // Arrange
+    TripStatisticsAggregator aggregator = new TripStatisticsAggregator();
+    aggregator.start();
+    aggregator.onPositionChanged(location(1000, 0));
+
+    // Act
+    aggregator.onPositionChanged(location(1001000, 0.001));
+
+    // Assert
+    Map<String, Object> statistics = aggregator.toHashMap();
+    assertEquals(111.2, (double) statistics.get("distance"), 0.5);
+    assertEquals(0L, statistics.get("movingTime"));
+  }
+
+  @Test
+  public void elevationGainIgnoresChangesBelowTheThreshold() {
+    // Arrange
+    TripStatisticsAggregator aggregator = new TripStatisticsAggregator();
+    aggregator.start();
+    double[] altitudes = {100, 103, 104, 106, 102, 100, 105};
+
+    // Act
+    for (int i = 0; i < altitudes.length; i++) {
+      Location location = location(1000 * (i + 1), 0);
+      location.setAltitude(altitudes[i]);
+      aggregator.onPositionChanged(location);
+    }
+
+    // Assert
+    assertEquals(11, (double) aggregator.toHashMap().get("elevationGain"), 0.001);
+  }
+
+  private static Location location(long time, double latitude) {
+    Location location = new Location("fused");
+    location.setTime(time);
+    location.setLatitude(latitude);
+    location.setLongitude(0);
+    location.setAccuracy(5);
+    return location;
+  }
+}
@@ -0,0 +1,64 @@
+package com.baseflow.geolocator.location;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class ForegroundNotificationOptionsTest {
+  @Test
+  public void stationaryTimeoutAcceptsTheMapEncodingOnTheChannel() {
+    // Arrange
+    ForegroundNotificationOptions options = createOptions(60000);
+
+    // Act
+    String invalidOptions =
+        options.validateStreamOptions(LocationOptions.parseArguments(new HashMap<>()));
+
+    // Assert
+    assertNull(invalidOptions);
+  }
+
+  @Test
+  public void stationaryTimeoutRejectsTheRingBufferTransport() {
+    // Arrange
+    ForegroundNotificationOptions options = createOptions(60000);
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put("transport", 1);
+
+    // Act
+    String invalidOptions =
+        options.validateStreamOptions(LocationOptions.parseArguments(arguments));
+
+    // Assert
+    assertNotNull(invalidOptions);
+  }
+
+  @Test
+  public void withoutStationaryTimeoutAnyEncodingIsAccepted() {
+    // Arrange
+    ForegroundNotificationOptions options = createOptions(null);
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put("encoding", 1);
+
+    // Act
+    String invalidOptions =
+        options.validateStreamOptions(LocationOptions.parseArguments(arguments));
+
+    // Assert
+    assertNull(invalidOptions);
+  }
+
+  private static ForegroundNotificationOptions createOptions(Integer stationaryTimeout) {
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put("notificationTitle", "Title");
+    arguments.put("notificationText", "Text");
+    arguments.put("enableWifiLock", false);
+    arguments.put("enableWakeLock", false);
+    arguments.put("stationaryTimeout", stationaryTimeout);
+    return ForegroundNotificationOptions.parseArguments(arguments);
+  }
+}
@@ -0,0 +1,91 @@
+package com.baseflow.geolocator.location;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
+
+public class LocationOptionsTest {
+  @Test
+  public void dualRateStreamAcceptsTheMapEncodingOnTheChannel() {
+    // Arrange
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put("preciseInterval", 60000);
+
+    // Act
+    LocationOptions locationOptions = LocationOptions.parseArguments(arguments);
+
+    // Assert
+    assertNull(locationOptions.validateStreamOptions());
+    assertEquals(LocationAccuracy.medium, locationOptions.getAccuracy());
+  }
+
+  @Test
+  public void dualRateStreamRejectsTheDeltaEncoding() {
+    // Arrange
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put("preciseInterval", 60000);
+    arguments.put("encoding", 1);
+
+    // Act
+    LocationOptions locationOptions = LocationOptions.parseArguments(arguments);
+
+    // Assert
+    assertNotNull(locationOptions.validateStreamOptions());
+  }
+
+  @Test
+  public void significantChangeRequestsLowPowerPositionsEveryFiveMinutes() {
+    // Arrange
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put("accuracy", 4);
+    arguments.put("distanceFilter", 100);
+    arguments.put("significantChangeDistance", 500);
+
+    // Act
+    LocationOptions locationOptions = LocationOptions.parseArguments(arguments);
+
+    // Assert
+    assertEquals(LocationAccuracy.low, locationOptions.getAccuracy());
+    assertEquals(300000, locationOptions.getTimeInterval());
+    assertEquals(500, locationOptions.getDistanceFilter());
+    assertEquals(500, locationOptions.getSignificantChangeDistance());
+  }
+
+  @Test
+  public void significantChangeKeepsTheLowestAccuracy() {
+    // Arrange
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put("accuracy", 0);
+    arguments.put("significantChangeDistance", 500);
+
+    // Act
+    LocationOptions locationOptions = LocationOptions.parseArguments(arguments);
+
+    // Assert
+    assertEquals(LocationAccuracy.lowest, locationOptions.getAccuracy());
+  }
+
+  @Test
+  public void decodeKeepsTheRequestedSourceField() {
+    // Arrange
+    ByteBuffer buffer =
+        ByteBuffer.allocate(LocationOptions.ENCODED_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.put(new byte[4]).putInt(0).putInt(-1).putInt(0).putInt(0);
+    buffer.putInt(PositionField.REQUESTABLE).putDouble(0);
+    buffer.flip();
+
+    // Act
+    LocationOptions locationOptions = LocationOptions.decode(buffer);
+
+    // Assert
+    assertEquals(PositionField.REQUESTABLE, locationOptions.getFields());
+    assertEquals(0, buffer.remaining());
+  }
+}
@@ -0,0 +1,130 @@
+package com.baseflow.geolocator.location;
+
+import static org.junit.Assert.assertEquals;
+
+import android.location.Location;
+import android.os.SystemClock;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class PositionSubscriptionTest {
+  private final List<Location> delivered = new ArrayList<>();
+
+  @Test
+  public void preciseWindowDeliversEveryPositionOnce() {
+    // Arrange
+    PositionSubscription subscription = createDualRateSubscription();
+    subscription.start(() -> {});
+
+    // Act
+    subscription.onPositionChanged(location(1000, 50));
+    subscription.onPositionChanged(location(2000, 30));
+    subscription.onPositionChanged(location(3000, 10));
+
+    // Assert
+    assertEquals(3, delivered.size());
+    assertDelivered(delivered.get(0), 1000, PositionTier.coarse);
+    assertDelivered(delivered.get(1), 2000, PositionTier.coarse);
+    assertDelivered(delivered.get(2), 3000, PositionTier.precise);
+  }
+
+  @Test
+  public void positionsAfterThePreciseWindowAreDeliveredAsCoarse() {
+    // Arrange
+    PositionSubscription subscription = createDualRateSubscription();
+    subscription.start(() -> {});
+    subscription.onPositionChanged(location(1000, 10));
+
+    // Act
+    subscription.onPositionChanged(location(2000, 10));
+
+    // Assert
+    assertEquals(2, delivered.size());
+    assertDelivered(delivered.get(0), 1000, PositionTier.precise);
+    assertDelivered(delivered.get(1), 2000, PositionTier.coarse);
+  }
+
+  @Test
+  public void significantChangeIgnoresPositionsLessAccurateThanTheDistance() {
+    // Arrange
+    PositionSubscription subscription = createSignificantChangeSubscription();
+    subscription.start(() -> {});
+
+    // Act
+    subscription.onPositionChanged(location(1000, 600));
+    subscription.onPositionChanged(location(2000, 50));
+
+    // Assert
+    assertEquals(1, delivered.size());
+    assertEquals(2000, delivered.get(0).getTime());
+  }
+
+  @Test
+  public void significantChangeOnlyDeliversPositionsBeyondTheDistance() {
+    // Arrange
+    PositionSubscription subscription = createSignificantChangeSubscription();
+    subscription.start(() -> {});
+    subscription.onPositionChanged(location(1000, 50));
+
+    // Act
+    subscription.onPositionChanged(location(2000, 50, 0.001));
+    subscription.onPositionChanged(location(3000, 50, 0.005));
+
+    // Assert
+    assertEquals(2, delivered.size());
+    assertEquals(1000, delivered.get(0).getTime());
+    assertEquals(3000, delivered.get(1).getTime());
+  }
+
+  private PositionSubscription createDualRateSubscription() {
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put("accuracy", 2);
+    arguments.put("timeInterval", 1000);
+    arguments.put("preciseInterval", 60000);
+    return createSubscription(arguments);
+  }
+
+  private PositionSubscription createSignificantChangeSubscription() {
+    Map<String, Object> arguments = new HashMap<>();
+    arguments.put("significantChangeDistance", 500);
+    return createSubscription(arguments);
+  }
+
+  private PositionSubscription createSubscription(Map<String, Object> arguments) {
+    return new PositionSubscription(
+        0,
+        false,
+        LocationOptions.parseArguments(arguments),
+        delivered::add,
+        errorCode -> {});
+  }
+
+  private static Location location(long time, float accuracy) {
+    return location(time, accuracy, 0);
+  }
+
+  private static Location location(long time, float accuracy, double latitude) {
+    Location location = new Location("fused");
+    location.setTime(time);
+    location.setLatitude(latitude);
+    location.setElapsedRealtimeNanos(SystemClock.elapsedRealtimeNanos());
+    location.setAccuracy(accuracy);
+    return location;
+  }
+
+  private static void assertDelivered(Location location, long time, PositionTier tier) {
+    assertEquals(time, location.getTime());
+    assertEquals(
+        tier.ordinal(), location.getExtras().getInt(PositionSubscription.TIER_EXTRA, -1));
+  }
+}
@@ -0,0 +1,128 @@
+package com.baseflow.geolocator.location;
+
+import android.app.Activity;
+import android.location.Location;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+
+import com.baseflow.geolocator.errors.ErrorCallback;
+
+/**
+ * A {@link LocationClient} producing synthetic positions at a fixed rate, used to measure the
+ * throughput of the position pipeline without depending on the location providers of the device.
+ *
+ * <p>Positions are delivered on the main thread, like the positions of the other clients. The
+ * timestamp of the n-th position is {@link #getBaseTime()} + n, so a position can be correlated
+ * with the time it was emitted using {@link #getEmissionTime(int)}.
+ */
+public class SyntheticLocationClient implements LocationClient {
+  public static final String PROVIDER = "synthetic";
+
+  // Roughly 1 meter per position at the equator.
+  private static final double DEGREES_PER_POSITION = 0.00001;
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Runnable emitRunnable = this::emit;
+  private final double rate;
+  private final long[] emissionTimes;
+  private final long baseTime = System.currentTimeMillis();
+
+  @Nullable private PositionChangedCallback positionChangedCallback;
+  private long startTime;
+  private int emittedCount = 0;
+
+  /**
+   * @param rate the number of positions per second.
+   * @param maxPositions the number of positions after which the client stops emitting.
+   */
+  public SyntheticLocationClient(double rate, int maxPositions) {
+    this.rate = rate;
+    this.emissionTimes = new long[maxPositions];
+  }
+
+  public long getBaseTime() {
+    return baseTime;
+  }
+
+  public int getEmittedCount() {
+    return emittedCount;
+  }
+
+  /** Returns the {@link System#nanoTime()} at which the n-th position was emitted. */
+  public long getEmissionTime(int sequence) {
+    return emissionTimes[sequence];
+  }
+
+  @Override
+  public void isLocationServiceEnabled(LocationServiceListener listener) {
+    listener.onLocationServiceResult(true);
+  }
+
+  @Override
+  public void getLastKnownPosition(
+      PositionChangedCallback positionChangedCallback, ErrorCallback errorCallback) {
+    positionChangedCallback.onPositionChanged(emittedCount > 0 ? create(emittedCount - 1) : null);
+  }
+
+  @Override
+  public boolean onActivityResult(int requestCode, int resultCode) {
+    return false;
+  }
+
+  @Override
+  public void startPositionUpdates(
+      Activity activity,
+      PositionChangedCallback positionChangedCallback,
+      ErrorCallback errorCallback) {
+    this.positionChangedCallback = positionChangedCallback;
+    this.startTime = SystemClock.uptimeMillis();
+    this.emittedCount = 0;
+    handler.post(emitRunnable);
+  }
+
+  @Override
+  public void stopPositionUpdates() {
+    positionChangedCallback = null;
+    handler.removeCallbacks(emitRunnable);
+  }
+
+  private void emit() {
+    // Catch up on positions that became due while the main thread was busy, so the requested
+    // rate is sustained for as long as the pipeline can keep up.
+    long now = SystemClock.uptimeMillis();
+    while (positionChangedCallback != null
+        && emittedCount < emissionTimes.length
+        && dueTime(emittedCount) <= now) {
+      Location location = create(emittedCount);
+      emissionTimes[emittedCount++] = System.nanoTime();
+      positionChangedCallback.onPositionChanged(location);
+    }
+
+    if (positionChangedCallback != null && emittedCount < emissionTimes.length) {
+      handler.postAtTime(emitRunnable, dueTime(emittedCount));
+    }
+  }
+
+  private long dueTime(int sequence) {
+    return startTime + (long) (sequence * 1000 / rate);
+  }
+
+  private Location create(int sequence) {
+    Location location = new Location(PROVIDER);
+    location.setTime(baseTime + sequence);
+    location.setLatitude(52.0 + sequence * DEGREES_PER_POSITION);
+    location.setLongitude(5.0 + sequence * DEGREES_PER_POSITION);
+    location.setAltitude(10);
+    location.setAccuracy(5);
+    location.setBearing(45);
+    location.setSpeed(1);
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+      location.setElapsedRealtimeNanos(SystemClock.elapsedRealtimeNanos());
+    }
+    return location;
+  }
+}
@@ -16,6 +16,15 @@ export 'package:geolocator_platform_interface/geolocator_platform_interface.dart
         ServiceStatus;
 
 export 'src/geolocator_android.dart';
+export 'src/types/android_position.dart' show AndroidPosition;
 export 'src/types/android_settings.dart' show AndroidSettings;
 export 'src/types/foreground_settings.dart'
     show AndroidResource, ForegroundNotificationConfig;
+export 'src/types/last_known_position.dart' show LastKnownPosition;
+export 'src/types/position_delivery_policy.dart' show PositionDeliveryPolicy;
+export 'src/types/position_encoding.dart' show PositionEncoding;
+export 'src/types/position_field.dart' show PositionField;
+export 'src/types/position_source.dart' show PositionSource;
+export 'src/types/position_tier.dart' show PositionTier;
+export 'src/types/position_transport.dart' show PositionTransport;
+export 'src/types/trip_statistics.dart' show TripStatistics;
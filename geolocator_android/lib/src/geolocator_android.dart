@@ -3,12 +3,26 @@ import 'dart:async';
 import 'package:flutter/services.dart';
 import 'package:geolocator_platform_interface/geolocator_platform_interface.dart';
 
+import 'position_delta_decoder.dart';
+import 'position_ring_reader.dart';
+import 'typed_message_codec.dart';
+import 'types/android_position.dart';
+import 'types/android_settings.dart';
+import 'types/last_known_position.dart';
+import 'types/position_transport.dart';
+import 'types/trip_statistics.dart';
+
 /// An implementation of [GeolocatorPlatform] that uses method channels.
 class GeolocatorAndroid extends GeolocatorPlatform {
   /// The method channel used to interact with the native platform.
   static const _methodChannel =
       MethodChannel('flutter.baseflow.com/geolocator_android');
 
+  /// The message channel used for the calls which are sent using a fixed
+  /// binary layout when [useTypedMessages] is enabled.
+  static const _typedMessageChannel = BasicMessageChannel<ByteData>(
+      'flutter.baseflow.com/geolocator_android/typed', BinaryCodec());
+
   /// The event channel used to receive [Position] updates from the native
   /// platform.
   static const _eventChannel =
@@ -19,6 +33,11 @@ class GeolocatorAndroid extends GeolocatorPlatform {
   static const _serviceStatusEventChannel =
       EventChannel('flutter.baseflow.com/geolocator_service_updates_android');
 
+  /// The event channel used to receive background [Position] updates while
+  /// the application is running.
+  static const _backgroundUpdatesEventChannel = EventChannel(
+      'flutter.baseflow.com/geolocator_background_updates_android');
+
   /// Registers this class as the default instance of [GeolocatorPlatform].
   static void registerWith() {
     GeolocatorPlatform.instance = GeolocatorAndroid();
@@ -30,12 +49,31 @@ class GeolocatorAndroid extends GeolocatorPlatform {
   /// ignored.
   bool forcedLocationManager = false;
 
+  /// Set to true to send [checkPermission], [isLocationServiceEnabled],
+  /// [getLastKnownPosition] and [getCurrentPosition] using a fixed binary
+  /// layout instead of the standard method codec.
+  ///
+  /// This avoids encoding and parsing the method name and argument map of
+  /// every call, which reduces the overhead of issuing many short calls.
+  ///
+  /// The positions are returned as a plain [Position] instead of an
+  /// [AndroidPosition] or [LastKnownPosition], so `PositionField.source` is
+  /// not available, even when it is requested in [AndroidSettings.fields].
+  bool useTypedMessages = false;
+
   Stream<Position>? _positionStream;
   Stream<ServiceStatus>? _serviceStatusStream;
+  Stream<Position>? _backgroundPositionStream;
 
   @override
   Future<LocationPermission> checkPermission() async {
     try {
+      if (useTypedMessages) {
+        final result = await _sendTypedMessage(
+            TypedMessageCodec.encodeCall(TypedMessageCodec.checkPermission));
+        return result.getUint8(0).toLocationPermission();
+      }
+
       // ignore: omit_local_variable_types
       final int permission =
           await _methodChannel.invokeMethod('checkPermission');
@@ -64,15 +102,29 @@ class GeolocatorAndroid extends GeolocatorPlatform {
   }
 
   @override
-  Future<bool> isLocationServiceEnabled() async => _methodChannel
-      .invokeMethod<bool>('isLocationServiceEnabled')
-      .then((value) => value ?? false);
+  Future<bool> isLocationServiceEnabled() async {
+    if (useTypedMessages) {
+      final result = await _sendTypedMessage(TypedMessageCodec.encodeCall(
+          TypedMessageCodec.isLocationServiceEnabled));
+      return result.getUint8(0) != 0;
+    }
+
+    return _methodChannel
+        .invokeMethod<bool>('isLocationServiceEnabled')
+        .then((value) => value ?? false);
+  }
 
   @override
   Future<Position?> getLastKnownPosition({
     bool forceLocationManager = false,
   }) async {
     try {
+      if (useTypedMessages) {
+        final result = await _sendTypedMessage(
+            TypedMessageCodec.encodeGetLastKnownPosition(forceLocationManager));
+        return TypedMessageCodec.decodePosition(result);
+      }
+
       final parameters = <String, dynamic>{
         'forceLocationManager': forceLocationManager,
       };
@@ -88,6 +140,36 @@ class GeolocatorAndroid extends GeolocatorPlatform {
     }
   }
 
+  /// Returns the last known position together with its source and age.
+  ///
+  /// The plugin keeps the best recent position in memory and on disk, so a
+  /// position is also available after a reboot or when the platform location
+  /// providers have none cached. When that position is at most [maxAge] old
+  /// it is returned right away, without asking the platform. Otherwise the
+  /// better of it and the last known position of the platform is returned.
+  ///
+  /// Returns `null` when no position is available at all.
+  Future<LastKnownPosition?> getLastKnownPositionWithSource({
+    bool forceLocationManager = false,
+    Duration maxAge = Duration.zero,
+  }) async {
+    try {
+      final positionMap = await _methodChannel.invokeMethod(
+        'getLastKnownPosition',
+        <String, dynamic>{
+          'forceLocationManager': forceLocationManager,
+          'maxAge': maxAge.inMilliseconds,
+        },
+      );
+
+      return positionMap != null
+          ? LastKnownPosition.fromMap(positionMap)
+          : null;
+    } on PlatformException catch (e) {
+      throw _handlePlatformException(e);
+    }
+  }
+
   @override
   Future<LocationAccuracyStatus> getLocationAccuracy() async {
     final int accuracy =
@@ -104,6 +186,16 @@ class GeolocatorAndroid extends GeolocatorPlatform {
 
       var timeLimit = locationSettings?.timeLimit;
 
+      if (useTypedMessages) {
+        var typedPositionFuture = _sendTypedMessage(
+            TypedMessageCodec.encodeGetCurrentPosition(locationSettings));
+        if (timeLimit != null) {
+          typedPositionFuture = typedPositionFuture.timeout(timeLimit);
+        }
+
+        return TypedMessageCodec.decodePosition(await typedPositionFuture)!;
+      }
+
       if (timeLimit != null) {
         positionFuture = _methodChannel
             .invokeMethod(
@@ -119,7 +211,7 @@ class GeolocatorAndroid extends GeolocatorPlatform {
       }
 
       final positionMap = await positionFuture;
-      return Position.fromMap(positionMap);
+      return AndroidPosition.positionFromMap(positionMap);
     } on PlatformException catch (e) {
       final error = _handlePlatformException(e);
 
@@ -127,6 +219,128 @@ class GeolocatorAndroid extends GeolocatorPlatform {
     }
   }
 
+  /// Returns a position with an accuracy of at least [targetAccuracy] meters
+  /// using as little power as possible.
+  ///
+  /// The position is first requested using low power, and only escalated to
+  /// balanced power and finally high accuracy while no position meeting the
+  /// [targetAccuracy] has been received. When no such position is received
+  /// within the [timeLimit], the most accurate position received so far is
+  /// returned instead.
+  ///
+  /// Throws a [PlatformException] with the code
+  /// `ERROR_WHILE_ACQUIRING_POSITION` when no position at all was received
+  /// within the [timeLimit].
+  Future<Position> getPositionWithAccuracy({
+    required double targetAccuracy,
+    required Duration timeLimit,
+    bool forceLocationManager = false,
+  }) async {
+    try {
+      final positionMap = await _methodChannel.invokeMethod(
+        'getPositionWithAccuracy',
+        <String, dynamic>{
+          'targetAccuracy': targetAccuracy,
+          'timeLimit': timeLimit.inMilliseconds,
+          'forceLocationManager': forceLocationManager,
+        },
+      );
+
+      return Position.fromMap(positionMap);
+    } on PlatformException catch (e) {
+      throw _handlePlatformException(e);
+    }
+  }
+
+  /// Returns a position combined from multiple fixes, for when a single
+  /// noisy fix is not reliable enough.
+  ///
+  /// Fixes are collected from a single location session until [maxSamples]
+  /// fixes were received or the [window] passes. Fixes which are far from the
+  /// others compared to their own accuracy are rejected, and the accuracy
+  /// weighted centroid of the remaining fixes is returned. The accuracy of the
+  /// returned position reflects both the accuracy of the fixes and their
+  /// spread, and its altitude is the weighted mean altitude of the remaining
+  /// fixes. At most 100 fixes are collected, regardless of [maxSamples].
+  ///
+  /// Unless an `AndroidSettings.intervalDuration` is supplied in the
+  /// [locationSettings], a fix is requested every second.
+  Future<Position> getConsensusPosition({
+    required int maxSamples,
+    required Duration window,
+    LocationSettings? locationSettings,
+  }) async {
+    try {
+      final positionMap = await _methodChannel.invokeMethod(
+        'getConsensusPosition',
+        <String, dynamic>{
+          ...?locationSettings?.toJson(),
+          'maxSamples': maxSamples,
+          'window': window.inMilliseconds,
+        },
+      );
+
+      return Position.fromMap(positionMap);
+    } on PlatformException catch (e) {
+      throw _handlePlatformException(e);
+    }
+  }
+
+  /// Starts receiving positions ahead of need, so `getCurrentPosition` calls
+  /// made within [duration] can be answered from the running location session
+  /// instead of waiting for a cold start.
+  ///
+  /// The session uses [locationSettings], or balanced power
+  /// ([LocationAccuracy.medium]) when omitted, and is shared with position
+  /// streams started meanwhile. It stops by itself once [duration] has
+  /// passed. Calling [prewarm] again replaces the settings and restarts the
+  /// duration.
+  Future<void> prewarm({
+    required Duration duration,
+    LocationSettings? locationSettings,
+  }) async {
+    final settings = locationSettings ??
+        const LocationSettings(accuracy: LocationAccuracy.medium);
+
+    try {
+      await _methodChannel.invokeMethod(
+        'prewarm',
+        <String, dynamic>{
+          ...settings.toJson(),
+          'duration': duration.inMilliseconds,
+        },
+      );
+    } on PlatformException catch (e) {
+      throw _handlePlatformException(e);
+    }
+  }
+
+  /// Clears the trip statistics and starts aggregating the positions
+  /// received by all position streams, including the ones using a foreground
+  /// notification.
+  ///
+  /// The statistics are computed natively, so a stream only needs to deliver
+  /// the positions the Dart side actually uses. Use [getTripStatistics] to
+  /// read them.
+  Future<void> startTripStatistics() async {
+    await _methodChannel.invokeMethod('startTripStatistics');
+  }
+
+  /// Returns the statistics aggregated since [startTripStatistics] was
+  /// called.
+  Future<TripStatistics> getTripStatistics() async {
+    final statisticsMap =
+        await _methodChannel.invokeMethod('getTripStatistics');
+    return TripStatistics.fromMap(statisticsMap);
+  }
+
+  /// Stops aggregating positions and returns the final trip statistics.
+  Future<TripStatistics> stopTripStatistics() async {
+    final statisticsMap =
+        await _methodChannel.invokeMethod('stopTripStatistics');
+    return TripStatistics.fromMap(statisticsMap);
+  }
+
   @override
   Stream<ServiceStatus> getServiceStatusStream() {
     if (_serviceStatusStream != null) {
@@ -155,8 +369,12 @@ class GeolocatorAndroid extends GeolocatorPlatform {
     if (_positionStream != null) {
       return _positionStream!;
     }
-    var originalStream = _eventChannel.receiveBroadcastStream(
-      locationSettings?.toJson(),
+    // Decode before the stream is shared, so every event is decoded once.
+    var originalStream = _decodePositionEvents(
+      _eventChannel.receiveBroadcastStream(
+        locationSettings?.toJson(),
+      ),
+      locationSettings,
     );
     var positionStream = _wrapStream(originalStream);
 
@@ -178,7 +396,7 @@ class GeolocatorAndroid extends GeolocatorPlatform {
 
     _positionStream = positionStream
         .map<Position>((dynamic element) =>
-            Position.fromMap(element.cast<String, dynamic>()))
+            AndroidPosition.positionFromMap(element.cast<String, dynamic>()))
         .handleError(
       (error) {
         if (error is PlatformException) {
@@ -190,6 +408,61 @@ class GeolocatorAndroid extends GeolocatorPlatform {
     return _positionStream!;
   }
 
+  /// Creates a new, independent stream of position updates.
+  ///
+  /// Contrary to [getPositionStream], which always returns the same shared
+  /// stream, every call to this method creates a new stream with its own
+  /// [locationSettings]. All streams are served from a single native provider
+  /// registration which satisfies the most demanding of the active streams,
+  /// so a precise and a coarse stream can run side by side without starting
+  /// two GNSS sessions.
+  ///
+  /// The foreground notification configuration is only supported by
+  /// [getPositionStream] and ignored by streams created using this method.
+  Stream<Position> createPositionStream({
+    LocationSettings? locationSettings,
+  }) async* {
+    final int streamId;
+    try {
+      streamId = await _methodChannel.invokeMethod('createPositionStream');
+    } on PlatformException catch (e) {
+      throw _handlePlatformException(e);
+    }
+
+    final eventChannel = EventChannel('${_eventChannel.name}/$streamId');
+    var positionStream = _decodePositionEvents(
+      eventChannel.receiveBroadcastStream(locationSettings?.toJson()),
+      locationSettings,
+    );
+
+    var timeLimit = locationSettings?.timeLimit;
+
+    if (timeLimit != null) {
+      positionStream = positionStream.timeout(
+        timeLimit,
+        onTimeout: (s) {
+          s.addError(TimeoutException(
+            'Time limit reached while waiting for position update.',
+            timeLimit,
+          ));
+          s.close();
+        },
+      );
+    }
+
+    yield* positionStream
+        .map<Position>((dynamic element) =>
+            AndroidPosition.positionFromMap(element.cast<String, dynamic>()))
+        .handleError(
+      (error) {
+        if (error is PlatformException) {
+          error = _handlePlatformException(error);
+        }
+        throw error;
+      },
+    );
+  }
+
   Stream<dynamic> _wrapStream(Stream<dynamic> incoming) {
     return incoming.asBroadcastStream(onCancel: (subscription) {
       subscription.cancel();
@@ -215,6 +488,122 @@ class GeolocatorAndroid extends GeolocatorPlatform {
     }
   }
 
+  /// Starts requesting position updates which are delivered to the
+  /// application through a broadcast instead of a running service.
+  ///
+  /// The updates keep running when the application is in the background and
+  /// no foreground service is active. While a Flutter engine is attached
+  /// positions are emitted on [getBackgroundPositionStream], otherwise they
+  /// are stored on the device and can be retrieved using
+  /// [takeBackgroundPositions].
+  ///
+  /// Use [AndroidSettings.maxUpdateDelay] to allow the platform to batch
+  /// positions, which greatly reduces the number of times the device has to
+  /// wake up.
+  ///
+  /// Note that receiving positions while the application is in the
+  /// background requires the background location permission.
+  Future<void> startBackgroundPositionUpdates({
+    LocationSettings? locationSettings,
+  }) async {
+    try {
+      await _methodChannel.invokeMethod(
+        'startBackgroundPositionUpdates',
+        locationSettings?.toJson(),
+      );
+    } on PlatformException catch (e) {
+      throw _handlePlatformException(e);
+    }
+  }
+
+  /// Stops the position updates started using
+  /// [startBackgroundPositionUpdates].
+  Future<void> stopBackgroundPositionUpdates() async {
+    await _methodChannel.invokeMethod('stopBackgroundPositionUpdates');
+  }
+
+  /// Returns and removes the positions which have been received while no
+  /// Flutter engine was attached, ordered from oldest to newest.
+  Future<List<Position>> takeBackgroundPositions() async {
+    final positions = await _methodChannel
+        .invokeListMethod<dynamic>('takeBackgroundPositions');
+    return (positions ?? <dynamic>[])
+        .map<Position>((dynamic element) =>
+            Position.fromMap(element.cast<String, dynamic>()))
+        .toList();
+  }
+
+  /// Returns a stream emitting the positions received through
+  /// [startBackgroundPositionUpdates] while this Flutter engine is attached.
+  Stream<Position> getBackgroundPositionStream() {
+    if (_backgroundPositionStream != null) {
+      return _backgroundPositionStream!;
+    }
+
+    _backgroundPositionStream = _backgroundUpdatesEventChannel
+        .receiveBroadcastStream()
+        .map<Position>((dynamic element) =>
+            Position.fromMap(element.cast<String, dynamic>()))
+        .asBroadcastStream(onCancel: (subscription) {
+      subscription.cancel();
+      _backgroundPositionStream = null;
+    });
+
+    return _backgroundPositionStream!;
+  }
+
+  /// Replaces the location providers of the device by a recorded trace.
+  ///
+  /// The trace at [path] can be a GPX file, a raw NMEA log or a CSV file
+  /// containing `time,latitude,longitude[,altitude,accuracy,bearing,speed]`
+  /// lines, where time is in milliseconds since epoch. All position requests
+  /// started after calling this method are served from the trace, replayed
+  /// [speed] times faster than recorded starting at [startOffset]. When
+  /// [loop] is `true` the replay restarts once the end of the trace is
+  /// reached.
+  ///
+  /// Pass `null` as [path] to restore the location providers of the device.
+  ///
+  /// This is intended for testing and profiling only.
+  Future<void> setReplayTrace(
+    String? path, {
+    double speed = 1.0,
+    Duration startOffset = Duration.zero,
+    bool loop = false,
+  }) async {
+    await _methodChannel.invokeMethod(
+      'setReplayTrace',
+      path == null
+          ? null
+          : <String, dynamic>{
+              'path': path,
+              'speed': speed,
+              'startOffset': startOffset.inMilliseconds,
+              'loop': loop,
+            },
+    );
+  }
+
+  /// Moves all running replays started using [setReplayTrace] to [offset]
+  /// from the start of the trace.
+  Future<void> seekReplay(Duration offset) async {
+    await _methodChannel.invokeMethod(
+      'seekReplay',
+      <String, dynamic>{'offset': offset.inMilliseconds},
+    );
+  }
+
+  /// Returns the total time the Wakelock of the foreground location service
+  /// has been held since the service was started.
+  ///
+  /// Can be used to measure the effect of
+  /// `ForegroundNotificationConfig.dutyCycleWakeLock`.
+  Future<Duration> getWakeLockHeldTime() async {
+    final heldTime =
+        await _methodChannel.invokeMethod<int>('getWakeLockHeldTime');
+    return Duration(milliseconds: heldTime ?? 0);
+  }
+
   @override
   Future<bool> openAppSettings() async => _methodChannel
       .invokeMethod<bool>('openAppSettings')
@@ -225,7 +614,24 @@ class GeolocatorAndroid extends GeolocatorPlatform {
       .invokeMethod<bool>('openLocationSettings')
       .then((value) => value ?? false);
 
-  Exception _handlePlatformException(PlatformException exception) {
+  /// Converts the binary events of a position stream into position maps,
+  /// according to the transport and encoding in the [locationSettings].
+  Stream<dynamic> _decodePositionEvents(
+    Stream<dynamic> events,
+    LocationSettings? locationSettings,
+  ) {
+    if (locationSettings is AndroidSettings &&
+        locationSettings.transport == PositionTransport.ringBuffer) {
+      return events.expand(PositionRingReader().read);
+    }
+
+    return events.map(PositionDeltaDecoder().decode);
+  }
+
+  Future<ByteData> _sendTypedMessage(ByteData message) async =>
+      TypedMessageCodec.decodeReply(await _typedMessageChannel.send(message));
+
+  Object _handlePlatformException(PlatformException exception) {
     switch (exception.code) {
       case 'ACTIVITY_MISSING':
         return ActivityMissingException(exception.message);
@@ -241,6 +647,8 @@ class GeolocatorAndroid extends GeolocatorPlatform {
         return PermissionRequestInProgressException(exception.message);
       case 'LOCATION_UPDATE_FAILURE':
         return PositionUpdateException(exception.message);
+      case 'INVALID_ARGUMENTS':
+        return ArgumentError(exception.details ?? exception.message);
       default:
         return exception;
     }
@@ -0,0 +1,107 @@
+import 'dart:typed_data';
+
+/// Reconstructs positions sent using `PositionEncoding.delta`.
+///
+/// A decoder keeps the state of a single native position stream and should
+/// receive every event of that stream exactly once, in order. Events which
+/// are not binary records are returned unchanged.
+class PositionDeltaDecoder {
+  static const _keyFrame = 1;
+  static const _timestamp = 1 << 1;
+  static const _altitude = 1 << 2;
+  static const _accuracy = 1 << 3;
+  static const _heading = 1 << 4;
+  static const _speed = 1 << 5;
+  static const _speedAccuracy = 1 << 6;
+  static const _hasIsMocked = 1 << 7;
+  static const _isMocked = 1 << 8;
+
+  int _coordinateScale = 10000000;
+  bool _hasKeyFrame = false;
+  int _latitude = 0;
+  int _longitude = 0;
+  int _timestampValue = 0;
+  int _altitudeValue = 0;
+  int _accuracyValue = 0;
+  int _headingValue = 0;
+  int _speedValue = 0;
+  int _speedAccuracyValue = 0;
+
+  late Uint8List _bytes;
+  int _offset = 0;
+
+  /// Converts a binary record into the map representation of a position.
+  dynamic decode(dynamic event) {
+    if (event is! Uint8List) {
+      return event;
+    }
+
+    _bytes = event;
+    _offset = 0;
+
+    final flags = _readVarint();
+    if (flags & _keyFrame != 0) {
+      _hasKeyFrame = true;
+      _coordinateScale = _readVarint();
+      _latitude = _longitude = _timestampValue = _altitudeValue = 0;
+      _accuracyValue = _headingValue = _speedValue = _speedAccuracyValue = 0;
+    } else if (!_hasKeyFrame) {
+      throw StateError('Received a position delta before the first key frame.');
+    }
+
+    _latitude += _readDelta();
+    _longitude += _readDelta();
+
+    final position = <String, dynamic>{
+      'latitude': _latitude / _coordinateScale,
+      'longitude': _longitude / _coordinateScale,
+    };
+
+    if (flags & _timestamp != 0) {
+      _timestampValue += _readDelta();
+      position['timestamp'] = _timestampValue;
+    }
+    if (flags & _altitude != 0) {
+      _altitudeValue += _readDelta();
+      position['altitude'] = _altitudeValue / 100;
+    }
+    if (flags & _accuracy != 0) {
+      _accuracyValue += _readDelta();
+      position['accuracy'] = _accuracyValue / 100;
+    }
+    if (flags & _heading != 0) {
+      _headingValue += _readDelta();
+      position['heading'] = _headingValue / 100;
+    }
+    if (flags & _speed != 0) {
+      _speedValue += _readDelta();
+      position['speed'] = _speedValue / 100;
+    }
+    if (flags & _speedAccuracy != 0) {
+      _speedAccuracyValue += _readDelta();
+      position['speed_accuracy'] = _speedAccuracyValue / 100;
+    }
+    if (flags & _hasIsMocked != 0) {
+      position['is_mocked'] = flags & _isMocked != 0;
+    }
+
+    return position;
+  }
+
+  int _readDelta() {
+    final value = _readVarint();
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  int _readVarint() {
+    var value = 0;
+    var shift = 0;
+    int byte;
+    do {
+      byte = _bytes[_offset++];
+      value |= (byte & 0x7F) << shift;
+      shift += 7;
+    } while (byte & 0x80 != 0);
+    return value;
+  }
+}
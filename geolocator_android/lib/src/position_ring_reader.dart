@@ -0,0 +1,85 @@
+import 'dart:developer';
+import 'dart:typed_data';
+
+/// Reads the position records sent using `PositionTransport.ringBuffer`.
+///
+/// Every event contains one or more fixed-size records copied from the
+/// native ring buffer. A reader keeps track of the sequence numbers of a
+/// single native position stream, so positions which were overwritten before
+/// they could be delivered are detected. Events which are not binary records
+/// are returned unchanged.
+class PositionRingReader {
+  static const _recordSize = 80;
+  static const _timestamp = 1;
+  static const _altitude = 1 << 1;
+  static const _accuracy = 1 << 2;
+  static const _heading = 1 << 3;
+  static const _speed = 1 << 4;
+  static const _speedAccuracy = 1 << 5;
+  static const _hasIsMocked = 1 << 6;
+  static const _isMocked = 1 << 8;
+
+  int _nextSequence = 0;
+
+  /// The number of positions which were overwritten in the native ring
+  /// buffer before they could be delivered.
+  int droppedCount = 0;
+
+  /// Converts the records in an event into the map representation of the
+  /// positions they contain.
+  Iterable<dynamic> read(dynamic event) {
+    if (event is! Uint8List) {
+      return [event];
+    }
+
+    final records = ByteData.sublistView(event);
+    final positions = <Map<String, dynamic>>[];
+    for (var offset = 0;
+        offset + _recordSize <= records.lengthInBytes;
+        offset += _recordSize) {
+      final sequence = records.getInt64(offset, Endian.little);
+      if (sequence > _nextSequence) {
+        droppedCount += sequence - _nextSequence;
+        log('Dropped ${sequence - _nextSequence} positions which were '
+            'overwritten before they could be delivered.');
+      }
+      _nextSequence = sequence + 1;
+      positions.add(_readRecord(records, offset));
+    }
+
+    return positions;
+  }
+
+  Map<String, dynamic> _readRecord(ByteData records, int offset) {
+    final flags = records.getInt32(offset + 8, Endian.little);
+    final position = <String, dynamic>{
+      'latitude': records.getFloat64(offset + 16, Endian.little),
+      'longitude': records.getFloat64(offset + 24, Endian.little),
+    };
+
+    if (flags & _timestamp != 0) {
+      position['timestamp'] = records.getInt64(offset + 32, Endian.little);
+    }
+    if (flags & _altitude != 0) {
+      position['altitude'] = records.getFloat64(offset + 40, Endian.little);
+    }
+    if (flags & _accuracy != 0) {
+      position['accuracy'] = records.getFloat64(offset + 48, Endian.little);
+    }
+    if (flags & _heading != 0) {
+      position['heading'] = records.getFloat64(offset + 56, Endian.little);
+    }
+    if (flags & _speed != 0) {
+      position['speed'] = records.getFloat64(offset + 64, Endian.little);
+    }
+    if (flags & _speedAccuracy != 0) {
+      position['speed_accuracy'] =
+          records.getFloat64(offset + 72, Endian.little);
+    }
+    if (flags & _hasIsMocked != 0) {
+      position['is_mocked'] = flags & _isMocked != 0;
+    }
+
+    return position;
+  }
+}
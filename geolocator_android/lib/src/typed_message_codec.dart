@@ -0,0 +1,126 @@
+import 'dart:convert';
+import 'dart:typed_data';
+
+import 'package:flutter/services.dart';
+import 'package:geolocator_platform_interface/geolocator_platform_interface.dart';
+
+import 'types/android_settings.dart';
+import 'types/position_field.dart';
+
+/// Encodes the requests sent over and decodes the replies received from the
+/// typed message channel of the Android plugin.
+///
+/// A request is a single byte method ID followed by the fixed layout
+/// arguments of that method. A reply starts with a status byte followed by
+/// either the result, or the index of the native error code and its UTF-8
+/// encoded description. All values are little-endian.
+class TypedMessageCodec {
+  /// Method ID of `checkPermission`.
+  static const checkPermission = 0;
+
+  /// Method ID of `isLocationServiceEnabled`.
+  static const isLocationServiceEnabled = 1;
+
+  /// Method ID of `getLastKnownPosition`.
+  static const getLastKnownPosition = 2;
+
+  /// Method ID of `getCurrentPosition`.
+  static const getCurrentPosition = 3;
+
+  static const _statusSuccess = 0;
+  static const _positionPresent = 1;
+  static const _positionHasTimestamp = 1 << 1;
+  static const _positionIsMocked = 1 << 2;
+
+  // In the order of the native `ErrorCodes` enum.
+  static const _errorCodes = [
+    'ACTIVITY_MISSING',
+    'ERROR_WHILE_ACQUIRING_POSITION',
+    'LOCATION_SERVICES_DISABLED',
+    'PERMISSION_DEFINITIONS_NOT_FOUND',
+    'PERMISSION_DENIED',
+    'PERMISSION_REQUEST_IN_PROGRESS',
+    'INVALID_ARGUMENTS',
+  ];
+
+  /// Encodes a request for a method without arguments.
+  static ByteData encodeCall(int method) => ByteData(1)..setUint8(0, method);
+
+  /// Encodes a `getLastKnownPosition` request.
+  static ByteData encodeGetLastKnownPosition(bool forceLocationManager) =>
+      ByteData(2)
+        ..setUint8(0, getLastKnownPosition)
+        ..setUint8(1, forceLocationManager ? 1 : 0);
+
+  /// Encodes a `getCurrentPosition` request using the fixed layout of the
+  /// native `LocationOptions`.
+  static ByteData encodeGetCurrentPosition(LocationSettings? settings) {
+    final androidSettings = settings is AndroidSettings ? settings : null;
+    final fields = androidSettings?.fields;
+
+    return ByteData(34)
+      ..setUint8(0, getCurrentPosition)
+      ..setUint8(1, androidSettings?.forceLocationManager == true ? 1 : 0)
+      ..setUint8(2, (settings?.accuracy ?? LocationAccuracy.best).index)
+      ..setUint8(3, androidSettings?.useMSLAltitude == true ? 1 : 0)
+      ..setUint8(4, androidSettings?.deliveryPolicy.index ?? 0)
+      ..setUint8(5, androidSettings?.encoding.index ?? 0)
+      ..setInt32(6, settings?.distanceFilter ?? 0, Endian.little)
+      ..setInt32(10, androidSettings?.intervalDuration?.inMilliseconds ?? -1,
+          Endian.little)
+      ..setInt32(14, androidSettings?.deliveryInterval?.inMilliseconds ?? 0,
+          Endian.little)
+      ..setInt32(18, androidSettings?.maxUpdateDelay?.inMilliseconds ?? 0,
+          Endian.little)
+      ..setInt32(22, fields != null ? positionFieldsToMask(fields) : -1,
+          Endian.little)
+      ..setFloat64(
+          26, androidSettings?.coordinatePrecision ?? 1e-7, Endian.little);
+  }
+
+  /// Returns the result of a successful [reply], starting at offset 0.
+  ///
+  /// Throws a [PlatformException] when the native side reported an error and
+  /// a [MissingPluginException] when the method is not supported.
+  static ByteData decodeReply(ByteData? reply) {
+    if (reply == null || reply.lengthInBytes == 0) {
+      throw MissingPluginException(
+          'No implementation found on the typed message channel');
+    }
+
+    if (reply.getUint8(0) == _statusSuccess) {
+      return ByteData.sublistView(reply, 1);
+    }
+
+    final index = reply.getUint8(1);
+    throw PlatformException(
+      code: index < _errorCodes.length ? _errorCodes[index] : 'UNKNOWN',
+      message: utf8.decode(Uint8List.sublistView(reply, 2)),
+    );
+  }
+
+  /// Decodes a position result, which is `null` when no position is
+  /// available.
+  static Position? decodePosition(ByteData result) {
+    final flags = result.getUint8(0);
+    if (flags & _positionPresent == 0) {
+      return null;
+    }
+
+    return Position(
+      latitude: result.getFloat64(1, Endian.little),
+      longitude: result.getFloat64(9, Endian.little),
+      timestamp: flags & _positionHasTimestamp != 0
+          ? DateTime.fromMillisecondsSinceEpoch(
+              result.getInt64(17, Endian.little),
+              isUtc: true)
+          : null,
+      altitude: result.getFloat64(25, Endian.little),
+      accuracy: result.getFloat64(33, Endian.little),
+      heading: result.getFloat64(41, Endian.little),
+      speed: result.getFloat64(49, Endian.little),
+      speedAccuracy: result.getFloat64(57, Endian.little),
+      isMocked: flags & _positionIsMocked != 0,
+    );
+  }
+}
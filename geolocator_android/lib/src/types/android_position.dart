@@ -0,0 +1,98 @@
+import 'package:geolocator_platform_interface/geolocator_platform_interface.dart';
+
+import 'position_tier.dart';
+
+/// A [Position] with Android specific details, received when
+/// [PositionField.source] is requested in `AndroidSettings.fields`, from a
+/// dual-rate stream (`AndroidSettings.preciseInterval`) or when the device
+/// became stationary (`ForegroundNotificationConfig.stationaryTimeout`).
+class AndroidPosition extends Position {
+  /// Creates a new [AndroidPosition] instance.
+  const AndroidPosition({
+    required double longitude,
+    required double latitude,
+    required DateTime? timestamp,
+    required double accuracy,
+    required double altitude,
+    required double heading,
+    required double speed,
+    required double speedAccuracy,
+    int? floor,
+    bool isMocked = false,
+    this.provider,
+    this.age,
+    this.tier,
+    this.isStationary = false,
+  }) : super(
+          longitude: longitude,
+          latitude: latitude,
+          timestamp: timestamp,
+          accuracy: accuracy,
+          altitude: altitude,
+          heading: heading,
+          speed: speed,
+          speedAccuracy: speedAccuracy,
+          floor: floor,
+          isMocked: isMocked,
+        );
+
+  /// The name of the provider which determined the position, for example
+  /// `gps`, `network` or `fused`.
+  ///
+  /// When the position was received passively ([LocationAccuracy.lowest])
+  /// this is the provider used by the app which requested it.
+  final String? provider;
+
+  /// The age of the position when it was sent by the native platform.
+  ///
+  /// Only available when [PositionField.source] is requested.
+  final Duration? age;
+
+  /// The tier of the position when received from a dual-rate stream.
+  final PositionTier? tier;
+
+  /// Whether this is the last position sent before positions stopped because
+  /// the device became stationary.
+  final bool isStationary;
+
+  /// Converts the supplied [Map] to an instance of the [AndroidPosition]
+  /// class.
+  static AndroidPosition fromMap(Map<dynamic, dynamic> map) {
+    final position = Position.fromMap(map);
+    return AndroidPosition(
+      longitude: position.longitude,
+      latitude: position.latitude,
+      timestamp: position.timestamp,
+      accuracy: position.accuracy,
+      altitude: position.altitude,
+      heading: position.heading,
+      speed: position.speed,
+      speedAccuracy: position.speedAccuracy,
+      floor: position.floor,
+      isMocked: position.isMocked,
+      provider: map['provider'],
+      age: map['age'] != null ? Duration(milliseconds: map['age']) : null,
+      tier: map['tier'] != null ? PositionTier.values[map['tier']] : null,
+      isStationary: map['stationary'] == true,
+    );
+  }
+
+  /// Converts the supplied [Map] to an [AndroidPosition] when it contains the
+  /// source, tier or stationary state of the position, or a [Position]
+  /// otherwise.
+  static Position positionFromMap(Map<dynamic, dynamic> map) =>
+      map.containsKey('age') ||
+              map.containsKey('tier') ||
+              map.containsKey('stationary')
+          ? fromMap(map)
+          : Position.fromMap(map);
+
+  @override
+  Map<String, dynamic> toJson() => {
+        ...super.toJson(),
+        'provider': provider,
+        'age': age?.inMilliseconds,
+        'tier': tier?.index,
+        'stationary': isStationary,
+      };
+}
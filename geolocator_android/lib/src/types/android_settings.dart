@@ -1,6 +1,10 @@
 import 'package:geolocator_platform_interface/geolocator_platform_interface.dart';
 
 import 'foreground_settings.dart';
+import 'position_delivery_policy.dart';
+import 'position_encoding.dart';
+import 'position_field.dart';
+import 'position_transport.dart';
 
 /// Represents different Android specific settings with which you can set a value
 /// other then the default value of the setting.
@@ -17,6 +21,16 @@ class AndroidSettings extends LocationSettings {
     Duration? timeLimit,
     this.foregroundNotificationConfig,
     this.useMSLAltitude = false,
+    this.deliveryPolicy = PositionDeliveryPolicy.all,
+    this.deliveryInterval,
+    this.maxUpdateDelay,
+    this.fields,
+    this.encoding = PositionEncoding.map,
+    this.coordinatePrecision = 1e-7,
+    this.transport = PositionTransport.channel,
+    this.significantChangeDistance,
+    this.preciseInterval,
+    this.preciseWindow,
   }) : super(
             accuracy: accuracy,
             distanceFilter: distanceFilter,
@@ -74,6 +88,124 @@ class AndroidSettings extends LocationSettings {
   /// Defaults to false
   final bool useMSLAltitude;
 
+  /// Determines how position updates are delivered to the position stream
+  /// when the Dart side is not able to keep up with the incoming updates.
+  ///
+  /// Using [PositionDeliveryPolicy.latestOnly] or
+  /// [PositionDeliveryPolicy.sampled] stale positions are dropped on the
+  /// native side instead of piling up in the platform channel.
+  ///
+  /// This property only applies to position stream updates.
+  ///
+  /// Defaults to [PositionDeliveryPolicy.all]
+  final PositionDeliveryPolicy deliveryPolicy;
+
+  /// The interval at which position updates are delivered when using the
+  /// [PositionDeliveryPolicy.sampled] delivery policy.
+  ///
+  /// If this value is `null` positions are delivered as soon as they arrive.
+  final Duration? deliveryInterval;
+
+  /// The maximum time position updates may be delayed so they can be
+  /// delivered in batches.
+  ///
+  /// Batching allows the device to keep the application processor asleep
+  /// while positions are collected. This is especially useful in combination
+  /// with `GeolocatorAndroid.startBackgroundPositionUpdates`.
+  ///
+  /// When the LocationManager is used instead of the
+  /// FusedLocationProviderClient, batching is only supported starting from
+  /// Android 12 (API 31).
+  ///
+  /// If this value is `null` positions are delivered as soon as they arrive.
+  final Duration? maxUpdateDelay;
+
+  /// The optional fields that should be included in the received positions.
+  ///
+  /// Limiting the fields to the ones actually used reduces the amount of data
+  /// that has to be computed and sent for every position, which is useful when
+  /// receiving positions at a high rate. The latitude and longitude are always
+  /// included.
+  ///
+  /// If this value is `null` all fields except [PositionField.source] are
+  /// included.
+  final Set<PositionField>? fields;
+
+  /// Determines how position updates are encoded when they are sent to the
+  /// position stream.
+  ///
+  /// This property only applies to position stream updates.
+  ///
+  /// Defaults to [PositionEncoding.map]
+  final PositionEncoding encoding;
+
+  /// The precision in degrees to which the latitude and longitude are
+  /// quantized when using [PositionEncoding.delta].
+  ///
+  /// Defaults to 1e-7 degrees, which is roughly one centimeter.
+  final double coordinatePrecision;
+
+  /// Determines how position updates are handed over to the position stream.
+  ///
+  /// Using [PositionTransport.ringBuffer] positions arriving while the Dart
+  /// side is busy are collected natively and delivered together, instead of
+  /// requiring a platform channel message each.
+  ///
+  /// This property only applies to position stream updates.
+  ///
+  /// Defaults to [PositionTransport.channel]
+  final PositionTransport transport;
+
+  /// Limits the positions to significant location changes: a position is only
+  /// delivered once the device moved at least this many meters since the
+  /// previously delivered position.
+  ///
+  /// The displacement is determined natively from low power positions and
+  /// positions requested by other apps, so the app is only woken up for
+  /// positions and the Dart side only receives an event after a significant
+  /// change. Positions less accurate than the distance are ignored.
+  ///
+  /// When set, the [accuracy] is limited to [LocationAccuracy.low] (or
+  /// [LocationAccuracy.lowest] to only use positions requested by other apps)
+  /// and the [intervalDuration] defaults to 5 minutes. Combine with
+  /// `GeolocatorAndroid.startBackgroundPositionUpdates` to receive
+  /// significant changes without a foreground notification. All other
+  /// settings, such as [deliveryPolicy], [encoding] and [transport], apply to
+  /// significant changes as usual.
+  ///
+  /// If this value is `null` all positions are delivered.
+  final int? significantChangeDistance;
+
+  /// Turns the stream into a dual-rate stream which, next to the frequent
+  /// positions requested by the other settings, delivers one precise position
+  /// per interval.
+  ///
+  /// The precise position is determined natively from the same provider
+  /// registration, which only requests high accuracy during a short window
+  /// once per interval, so GNSS is turned off for most of the time. Every
+  /// position is received as an `AndroidPosition` whose `tier` tells the
+  /// precise positions apart from the coarse ones.
+  ///
+  /// When set, the [accuracy] applies to the coarse positions and is limited
+  /// to [LocationAccuracy.medium]. The tier is only carried by positions
+  /// delivered using [PositionDeliveryPolicy.all], [PositionEncoding.map] and
+  /// [PositionTransport.channel]; a dual-rate stream using any other
+  /// [deliveryPolicy], [encoding] or [transport] fails with an
+  /// [ArgumentError].
+  ///
+  /// If this value is `null` only positions with the requested accuracy are
+  /// delivered.
+  final Duration? preciseInterval;
+
+  /// The maximum duration of the high accuracy window of a dual-rate stream.
+  ///
+  /// The window closes as soon as a position accurate to 20 meters is
+  /// received, otherwise the most accurate position received during the
+  /// window is delivered when it ends.
+  ///
+  /// If this value is `null` a window of 30 seconds is used.
+  final Duration? preciseWindow;
+
   @override
   Map<String, dynamic> toJson() {
     return super.toJson()
@@ -82,6 +214,16 @@ class AndroidSettings extends LocationSettings {
         'timeInterval': intervalDuration?.inMilliseconds,
         'foregroundNotificationConfig': foregroundNotificationConfig?.toJson(),
         'useMSLAltitude': useMSLAltitude,
+        'deliveryPolicy': deliveryPolicy.index,
+        'deliveryInterval': deliveryInterval?.inMilliseconds,
+        'maxUpdateDelay': maxUpdateDelay?.inMilliseconds,
+        'fields': fields != null ? positionFieldsToMask(fields!) : null,
+        'encoding': encoding.index,
+        'coordinatePrecision': coordinatePrecision,
+        'transport': transport.index,
+        'significantChangeDistance': significantChangeDistance,
+        'preciseInterval': preciseInterval?.inMilliseconds,
+        'preciseWindow': preciseWindow?.inMilliseconds,
       });
   }
 }
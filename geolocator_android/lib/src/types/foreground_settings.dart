@@ -47,6 +47,35 @@ class ForegroundNotificationConfig {
   /// library.
   final bool enableWakeLock;
 
+  /// When enabled together with [enableWakeLock], the Wakelock (and the
+  /// WifiLock when [enableWifiLock] is set) is only held shortly before a
+  /// position update is expected and while the update is processed and
+  /// delivered, instead of during the entire time background execution is
+  /// active.
+  ///
+  /// This allows the device to sleep in between position updates, which
+  /// greatly reduces the battery usage when position updates arrive
+  /// infrequently (e.g. every 30 seconds or more).
+  final bool dutyCycleWakeLock;
+
+  /// When set, GNSS is turned off once the device didn't move for this
+  /// duration, after which only positions determined passively (for example
+  /// requested by other apps) are received until the device moves again.
+  ///
+  /// Motion is detected natively using the significant motion sensor, the
+  /// step detector (only when the `ACTIVITY_RECOGNITION` permission is granted
+  /// on Android 10 and up) and the speed of the received positions. When the
+  /// device becomes stationary the last position is sent once more as an
+  /// `AndroidPosition` with `isStationary` set. Devices without a significant
+  /// motion sensor keep receiving positions as requested.
+  ///
+  /// The stationary marker is only carried by positions delivered using
+  /// `PositionEncoding.map` and `PositionTransport.channel`; a stream using
+  /// any other encoding or transport fails with an [ArgumentError].
+  ///
+  /// If this value is `null` positions are requested regardless of motion.
+  final Duration? stationaryTimeout;
+
   /// Creates an Android specific configuration for the [FlutterBackground] plugin.
   ///
   /// [notificationTitle] is the title used for the foreground service notification.
@@ -64,6 +93,8 @@ class ForegroundNotificationConfig {
         const AndroidResource(name: 'ic_launcher', defType: 'mipmap'),
     this.enableWifiLock = false,
     this.enableWakeLock = false,
+    this.dutyCycleWakeLock = false,
+    this.stationaryTimeout,
   });
 
   /// Returns a JSON representation of this class.
@@ -74,6 +105,8 @@ class ForegroundNotificationConfig {
       'notificationIcon': notificationIcon.toJson(),
       'enableWifiLock': enableWifiLock,
       'enableWakeLock': enableWakeLock,
+      'dutyCycleWakeLock': dutyCycleWakeLock,
+      'stationaryTimeout': stationaryTimeout?.inMilliseconds,
     };
   }
 }
@@ -0,0 +1,36 @@
+import 'package:geolocator_platform_interface/geolocator_platform_interface.dart';
+
+import 'position_source.dart';
+
+/// A last known position together with its source and age, as returned by
+/// `GeolocatorAndroid.getLastKnownPositionWithSource`.
+class LastKnownPosition {
+  /// Creates a new [LastKnownPosition] instance.
+  const LastKnownPosition({
+    required this.position,
+    required this.source,
+    required this.age,
+  });
+
+  /// The last known position.
+  final Position position;
+
+  /// Where the [position] came from.
+  final PositionSource source;
+
+  /// The time passed since the [position] was determined.
+  final Duration age;
+
+  /// Converts the supplied [Map] to an instance of the [LastKnownPosition]
+  /// class.
+  static LastKnownPosition fromMap(Map<dynamic, dynamic> map) =>
+      LastKnownPosition(
+        position: Position.fromMap(map),
+        source: PositionSource.values[map['source']],
+        age: Duration(milliseconds: map['age']),
+      );
+
+  @override
+  String toString() =>
+      'LastKnownPosition($position, source: $source, age: $age)';
+}
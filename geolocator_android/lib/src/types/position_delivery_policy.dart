@@ -0,0 +1,18 @@
+/// Describes how position updates are handed over from the native platform
+/// to the Dart side of a position stream.
+enum PositionDeliveryPolicy {
+  /// Every position update is delivered, regardless of whether the Dart side
+  /// keeps up with processing them.
+  all,
+
+  /// Only a single position update is in flight at any time.
+  ///
+  /// Position updates which arrive while the Dart side is still busy
+  /// processing the previous update replace each other, so only the most
+  /// recent position is delivered once the Dart side catches up.
+  latestOnly,
+
+  /// The most recent position update is delivered at most once every
+  /// [AndroidSettings.deliveryInterval].
+  sampled,
+}
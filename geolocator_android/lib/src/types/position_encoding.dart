@@ -0,0 +1,17 @@
+/// Describes how positions are encoded when they are sent from the native
+/// platform to the Dart side of a position stream.
+enum PositionEncoding {
+  /// Every position is sent as a map containing the absolute values of its
+  /// fields.
+  map,
+
+  /// Positions are sent as compact binary records containing the quantized
+  /// difference with the previously sent position.
+  ///
+  /// Coordinates are quantized to [AndroidSettings.coordinatePrecision], the
+  /// timestamp to milliseconds, altitude and accuracy to centimeters, the
+  /// heading to hundredths of a degree and speeds to centimeters per second.
+  /// This significantly reduces the size of every event for high frequency
+  /// position streams.
+  delta,
+}
@@ -0,0 +1,40 @@
+/// The optional fields of a [Position] which can be requested using
+/// [AndroidSettings.fields].
+///
+/// The latitude and longitude are always included. Fields which are not
+/// requested are set to their default value (`0` or `false`).
+enum PositionField {
+  /// The time at which the position was determined.
+  timestamp,
+
+  /// The altitude of the device.
+  altitude,
+
+  /// The estimated horizontal accuracy of the position.
+  accuracy,
+
+  /// The heading in which the device is traveling.
+  heading,
+
+  /// The speed at which the device is traveling.
+  speed,
+
+  /// The estimated speed accuracy.
+  speedAccuracy,
+
+  /// Whether the position has been reported by a mock provider.
+  isMocked,
+
+  /// The provider which determined the position and its age when it was
+  /// sent, received as an `AndroidPosition`.
+  ///
+  /// Contrary to the other fields, this field is only included when it is
+  /// requested explicitly. It is not supported by `PositionEncoding.delta`,
+  /// `PositionTransport.ringBuffer` and `GeolocatorAndroid.useTypedMessages`.
+  source,
+}
+
+/// Converts a set of [PositionField]s into the bit mask understood by the
+/// native platform.
+int positionFieldsToMask(Iterable<PositionField> fields) =>
+    fields.fold(0, (mask, field) => mask | (1 << field.index));
@@ -0,0 +1,12 @@
+/// Describes where a position returned by
+/// `GeolocatorAndroid.getLastKnownPositionWithSource` came from.
+enum PositionSource {
+  /// A position received by the plugin since the app process started.
+  memory,
+
+  /// A position stored on disk by the plugin before the app process started.
+  disk,
+
+  /// The last known position of the platform location provider.
+  platform,
+}
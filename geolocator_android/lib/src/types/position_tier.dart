@@ -0,0 +1,10 @@
+/// Describes the tier of a position received from a dual-rate position
+/// stream, see `AndroidSettings.preciseInterval`.
+enum PositionTier {
+  /// A frequent position determined with the requested accuracy.
+  coarse,
+
+  /// The most accurate position determined during a short high accuracy
+  /// window, which is opened once per `AndroidSettings.preciseInterval`.
+  precise,
+}
@@ -0,0 +1,19 @@
+/// Describes how positions are handed over from the native platform to the
+/// Dart side of a position stream.
+enum PositionTransport {
+  /// Every position is sent as a separate event, encoded using the requested
+  /// `PositionEncoding`.
+  channel,
+
+  /// Positions are written as fixed-size records into a native ring buffer.
+  ///
+  /// Only a single event is in flight at any time, which carries all records
+  /// written since the previous event. When the Dart side is busy, positions
+  /// are therefore collected natively and delivered together instead of
+  /// requiring a platform channel message each. If the Dart side falls more
+  /// than 256 positions behind, the oldest positions are dropped.
+  ///
+  /// The `AndroidSettings.deliveryPolicy` and `AndroidSettings.encoding` are
+  /// not used with this transport.
+  ringBuffer,
+}
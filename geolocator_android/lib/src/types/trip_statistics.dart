@@ -0,0 +1,64 @@
+/// The statistics of a trip aggregated natively from the received positions,
+/// as returned by `GeolocatorAndroid.getTripStatistics`.
+class TripStatistics {
+  /// Creates a new [TripStatistics] instance.
+  const TripStatistics({
+    required this.distance,
+    required this.movingTime,
+    required this.elapsedTime,
+    required this.maxSpeed,
+    required this.averageSpeed,
+    required this.elevationGain,
+    required this.positionCount,
+    required this.rejectedCount,
+    required this.isRunning,
+  });
+
+  /// The distance travelled in meters.
+  final double distance;
+
+  /// The time spent moving.
+  final Duration movingTime;
+
+  /// The time passed since the statistics were started, until they were
+  /// stopped.
+  final Duration elapsedTime;
+
+  /// The highest speed in meters per second.
+  final double maxSpeed;
+
+  /// The average speed while moving in meters per second.
+  final double averageSpeed;
+
+  /// The total climb in meters.
+  final double elevationGain;
+
+  /// The number of positions used for the statistics.
+  final int positionCount;
+
+  /// The number of positions ignored because they were not accurate enough.
+  final int rejectedCount;
+
+  /// Whether received positions are still being aggregated.
+  final bool isRunning;
+
+  /// Converts the supplied [Map] to an instance of the [TripStatistics]
+  /// class.
+  static TripStatistics fromMap(Map<dynamic, dynamic> map) => TripStatistics(
+        distance: (map['distance'] as num).toDouble(),
+        movingTime: Duration(milliseconds: map['movingTime']),
+        elapsedTime: Duration(milliseconds: map['elapsedTime']),
+        maxSpeed: (map['maxSpeed'] as num).toDouble(),
+        averageSpeed: (map['averageSpeed'] as num).toDouble(),
+        elevationGain: (map['elevationGain'] as num).toDouble(),
+        positionCount: map['positionCount'],
+        rejectedCount: map['rejectedCount'],
+        isRunning: map['isRunning'],
+      );
+
+  @override
+  String toString() => 'TripStatistics(distance: '
+      '${distance.toStringAsFixed(1)}m, moving: $movingTime, '
+      'elevationGain: ${elevationGain.toStringAsFixed(1)}m, '
+      'positions: $positionCount)';
+}
@@ -1,4 +1,5 @@
 import 'dart:async';
+import 'dart:typed_data';
 
 import 'package:async/async.dart';
 import 'package:flutter/services.dart';
@@ -8,6 +9,55 @@ import 'package:geolocator_android/geolocator_android.dart';
 import 'event_channel_mock.dart';
 import 'method_channel_mock.dart';
 
+List<int> _varint(int value) {
+  final bytes = <int>[];
+  while (value & ~0x7F != 0) {
+    bytes.add((value & 0x7F) | 0x80);
+    value >>>= 7;
+  }
+  bytes.add(value);
+  return bytes;
+}
+
+List<int> _zigzag(int value) => _varint((value << 1) ^ (value >> 63));
+
+const _typedMessageChannelName =
+    'flutter.baseflow.com/geolocator_android/typed';
+
+List<ByteData> _mockTypedMessages(ByteData? reply) {
+  final messages = <ByteData>[];
+  TestDefaultBinaryMessengerBinding.instance!.defaultBinaryMessenger
+      .setMockMessageHandler(_typedMessageChannelName, (message) async {
+    messages.add(message!);
+    return reply;
+  });
+  return messages;
+}
+
+ByteData _byteData(List<int> bytes) =>
+    Uint8List.fromList(bytes).buffer.asByteData();
+
+ByteData _typedPositionReply(Position position) => ByteData(67)
+  ..setUint8(0, 0)
+  ..setUint8(1, 0x3)
+  ..setFloat64(2, position.latitude, Endian.little)
+  ..setFloat64(10, position.longitude, Endian.little)
+  ..setInt64(18, position.timestamp!.millisecondsSinceEpoch, Endian.little)
+  ..setFloat64(26, position.altitude, Endian.little)
+  ..setFloat64(34, position.accuracy, Endian.little)
+  ..setFloat64(42, position.heading, Endian.little)
+  ..setFloat64(50, position.speed, Endian.little)
+  ..setFloat64(58, position.speedAccuracy, Endian.little);
+
+List<int> _ringRecord(int sequence, double latitude, double longitude,
+        {int? timestamp, int flags = 0}) =>
+    Uint8List.sublistView(ByteData(80)
+      ..setInt64(0, sequence, Endian.little)
+      ..setInt32(8, (timestamp != null ? 1 : 0) | flags, Endian.little)
+      ..setFloat64(16, latitude, Endian.little)
+      ..setFloat64(24, longitude, Endian.little)
+      ..setInt64(32, timestamp ?? 0, Endian.little));
+
 Position get mockPosition => Position(
     latitude: 52.561270,
     longitude: 5.639382,
@@ -511,6 +561,59 @@ void main() {
       });
     });
 
+    group(
+        'getLastKnownPositionWithSource: When requesting the last known '
+        'position', () {
+      test('Should receive the position with its source and age', () async {
+        // Arrange
+        final methodChannel = MethodChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_android',
+          method: 'getLastKnownPosition',
+          result: <String, dynamic>{
+            ...mockPosition.toJson(),
+            'source': PositionSource.disk.index,
+            'age': 90000,
+          },
+        );
+
+        // Act
+        final lastKnownPosition =
+            await GeolocatorAndroid().getLastKnownPositionWithSource(
+          maxAge: const Duration(minutes: 5),
+        );
+
+        // Assert
+        expect(lastKnownPosition!.position, mockPosition);
+        expect(lastKnownPosition.source, PositionSource.disk);
+        expect(lastKnownPosition.age, const Duration(seconds: 90));
+        expect(methodChannel.log, <Matcher>[
+          isMethodCall(
+            'getLastKnownPosition',
+            arguments: <String, dynamic>{
+              'forceLocationManager': false,
+              'maxAge': 300000,
+            },
+          ),
+        ]);
+      });
+
+      test('Should receive null when no position is available', () async {
+        // Arrange
+        MethodChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_android',
+          method: 'getLastKnownPosition',
+          result: null,
+        );
+
+        // Act
+        final lastKnownPosition =
+            await GeolocatorAndroid().getLastKnownPositionWithSource();
+
+        // Assert
+        expect(lastKnownPosition, isNull);
+      });
+    });
+
     group('getCurrentPosition: When requesting the current position', () {
       test('Should receive a position if permissions are granted', () async {
         // Arrange
@@ -536,6 +639,37 @@ void main() {
         ]);
       });
 
+      test('Should receive an AndroidPosition when requesting the source',
+          () async {
+        // Arrange
+        MethodChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_android',
+          method: 'getCurrentPosition',
+          result: <String, dynamic>{
+            ...mockPosition.toJson(),
+            'provider': 'gps',
+            'age': 1500,
+          },
+        );
+
+        // Act
+        final position = await GeolocatorAndroid().getCurrentPosition(
+          locationSettings: AndroidSettings(
+            accuracy: LocationAccuracy.lowest,
+            fields: const {PositionField.source},
+          ),
+        );
+
+        // Assert
+        expect(position, mockPosition);
+        expect(
+          position,
+          isA<AndroidPosition>()
+              .having((p) => p.provider, 'provider', 'gps')
+              .having((p) => p.age, 'age', const Duration(milliseconds: 1500)),
+        );
+      });
+
       test('Should receive a position for each call', () async {
         // Arrange
         final channel = MethodChannelMock(
@@ -654,6 +788,281 @@ void main() {
       });
     });
 
+    group(
+        'getPositionWithAccuracy: When requesting a position with a target '
+        'accuracy', () {
+      test('Should receive a position', () async {
+        // Arrange
+        final methodChannel = MethodChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_android',
+          method: 'getPositionWithAccuracy',
+          result: mockPosition.toJson(),
+        );
+
+        // Act
+        final position = await GeolocatorAndroid().getPositionWithAccuracy(
+          targetAccuracy: 50,
+          timeLimit: const Duration(seconds: 20),
+        );
+
+        // Assert
+        expect(position, mockPosition);
+        expect(methodChannel.log, <Matcher>[
+          isMethodCall(
+            'getPositionWithAccuracy',
+            arguments: <String, dynamic>{
+              'targetAccuracy': 50.0,
+              'timeLimit': 20000,
+              'forceLocationManager': false,
+            },
+          ),
+        ]);
+      });
+
+      test('Should throw a permission denied exception if permission is denied',
+          () async {
+        // Arrange
+        MethodChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_android',
+          method: 'getPositionWithAccuracy',
+          result: PlatformException(
+            code: 'PERMISSION_DENIED',
+            message: 'Permission denied',
+            details: null,
+          ),
+        );
+
+        // Act
+        final future = GeolocatorAndroid().getPositionWithAccuracy(
+          targetAccuracy: 50,
+          timeLimit: const Duration(seconds: 20),
+        );
+
+        // Assert
+        expect(
+          future,
+          throwsA(
+            isA<PermissionDeniedException>().having(
+              (e) => e.message,
+              'message',
+              'Permission denied',
+            ),
+          ),
+        );
+      });
+    });
+
+    group('getConsensusPosition: When requesting a combined position', () {
+      test('Should receive a position', () async {
+        // Arrange
+        final methodChannel = MethodChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_android',
+          method: 'getConsensusPosition',
+          result: mockPosition.toJson(),
+        );
+
+        // Act
+        final position = await GeolocatorAndroid().getConsensusPosition(
+          maxSamples: 5,
+          window: const Duration(seconds: 10),
+          locationSettings:
+              const LocationSettings(accuracy: LocationAccuracy.high),
+        );
+
+        // Assert
+        expect(position, mockPosition);
+        expect(methodChannel.log, <Matcher>[
+          isMethodCall(
+            'getConsensusPosition',
+            arguments: <String, dynamic>{
+              'accuracy': LocationAccuracy.high.index,
+              'distanceFilter': 0,
+              'maxSamples': 5,
+              'window': 10000,
+            },
+          ),
+        ]);
+      });
+
+      test('Should throw a permission denied exception if permission is denied',
+          () async {
+        // Arrange
+        MethodChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_android',
+          method: 'getConsensusPosition',
+          result: PlatformException(
+            code: 'PERMISSION_DENIED',
+            message: 'Permission denied',
+            details: null,
+          ),
+        );
+
+        // Act
+        final future = GeolocatorAndroid().getConsensusPosition(
+          maxSamples: 5,
+          window: const Duration(seconds: 10),
+        );
+
+        // Assert
+        expect(
+          future,
+          throwsA(
+            isA<PermissionDeniedException>().having(
+              (e) => e.message,
+              'message',
+              'Permission denied',
+            ),
+          ),
+        );
+      });
+
+      test('Should throw an argument error if the arguments are invalid',
+          () async {
+        // Arrange
+        MethodChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_android',
+          method: 'getConsensusPosition',
+          result: PlatformException(
+            code: 'INVALID_ARGUMENTS',
+            message: 'The supplied arguments are invalid.',
+            details: 'At least one sample and a time window are required.',
+          ),
+        );
+
+        // Act
+        final future = GeolocatorAndroid().getConsensusPosition(
+          maxSamples: 0,
+          window: const Duration(seconds: 10),
+        );
+
+        // Assert
+        expect(
+          future,
+          throwsA(
+            isA<ArgumentError>().having(
+              (e) => e.message,
+              'message',
+              'At least one sample and a time window are required.',
+            ),
+          ),
+        );
+      });
+    });
+
+    group('prewarm: When starting a location session ahead of need', () {
+      test('Should use balanced power by default', () async {
+        // Arrange
+        final methodChannel = MethodChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_android',
+          method: 'prewarm',
+          result: null,
+        );
+
+        // Act
+        await GeolocatorAndroid().prewarm(
+          duration: const Duration(seconds: 30),
+        );
+
+        // Assert
+        expect(methodChannel.log, <Matcher>[
+          isMethodCall(
+            'prewarm',
+            arguments: <String, dynamic>{
+              'accuracy': LocationAccuracy.medium.index,
+              'distanceFilter': 0,
+              'duration': 30000,
+            },
+          ),
+        ]);
+      });
+
+      test('Should throw a permission denied exception if permission is denied',
+          () async {
+        // Arrange
+        MethodChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_android',
+          method: 'prewarm',
+          result: PlatformException(
+            code: 'PERMISSION_DENIED',
+            message: 'Permission denied',
+            details: null,
+          ),
+        );
+
+        // Act
+        final future = GeolocatorAndroid().prewarm(
+          duration: const Duration(seconds: 30),
+        );
+
+        // Assert
+        expect(
+          future,
+          throwsA(
+            isA<PermissionDeniedException>().having(
+              (e) => e.message,
+              'message',
+              'Permission denied',
+            ),
+          ),
+        );
+      });
+    });
+
+    group('getTripStatistics: When requesting the trip statistics', () {
+      test('Should receive the aggregated statistics', () async {
+        // Arrange
+        final methodChannel = MethodChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_android',
+          method: 'getTripStatistics',
+          result: <String, dynamic>{
+            'distance': 1250.5,
+            'movingTime': 600000,
+            'elapsedTime': 720000,
+            'maxSpeed': 4.2,
+            'averageSpeed': 2.08,
+            'elevationGain': 12.0,
+            'positionCount': 600,
+            'rejectedCount': 3,
+            'isRunning': true,
+          },
+        );
+
+        // Act
+        final statistics = await GeolocatorAndroid().getTripStatistics();
+
+        // Assert
+        expect(statistics.distance, 1250.5);
+        expect(statistics.movingTime, const Duration(minutes: 10));
+        expect(statistics.elapsedTime, const Duration(minutes: 12));
+        expect(statistics.maxSpeed, 4.2);
+        expect(statistics.averageSpeed, 2.08);
+        expect(statistics.elevationGain, 12.0);
+        expect(statistics.positionCount, 600);
+        expect(statistics.rejectedCount, 3);
+        expect(statistics.isRunning, true);
+        expect(methodChannel.log, <Matcher>[
+          isMethodCall('getTripStatistics', arguments: null),
+        ]);
+      });
+
+      test('Should start aggregating when started', () async {
+        // Arrange
+        final methodChannel = MethodChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_android',
+          method: 'startTripStatistics',
+          result: null,
+        );
+
+        // Act
+        await GeolocatorAndroid().startTripStatistics();
+
+        // Assert
+        expect(methodChannel.log, <Matcher>[
+          isMethodCall('startTripStatistics', arguments: null),
+        ]);
+      });
+    });
+
     group('getPositionStream: When requesting a stream of position updates',
         () {
       group('And requesting for position update multiple times', () {
@@ -785,9 +1194,7 @@ void main() {
         await streamController.close();
       });
 
-      test(
-          // ignore: lines_longer_than_80_chars
-          'Should continue listening to the stream when exception is thrown ',
+      test('Should receive the tier of positions of a dual-rate stream',
           () async {
         // Arrange
         final streamController =
@@ -798,24 +1205,210 @@ void main() {
         );
 
         // Act
-        final positionStream = GeolocatorAndroid().getPositionStream();
+        final positionStream = GeolocatorAndroid().getPositionStream(
+            locationSettings: AndroidSettings(
+                preciseInterval: const Duration(minutes: 1)));
         final streamQueue = StreamQueue(positionStream);
 
         // Emit test events
-        streamController.add(mockPosition.toJson());
-        streamController.addError(PlatformException(
-            code: 'PERMISSION_DENIED',
-            message: 'Permission denied',
-            details: null));
-        streamController.add(mockPosition.toJson());
+        streamController.add({...mockPosition.toJson(), 'tier': 0});
+        streamController.add({...mockPosition.toJson(), 'tier': 1});
 
         // Assert
-        expect(await streamQueue.next, mockPosition);
         expect(
-            streamQueue.next,
-            throwsA(
-              isA<PermissionDeniedException>().having(
-                (e) => e.message,
+          await streamQueue.next,
+          isA<AndroidPosition>()
+              .having((p) => p.tier, 'tier', PositionTier.coarse),
+        );
+        expect(
+          await streamQueue.next,
+          isA<AndroidPosition>()
+              .having((p) => p.tier, 'tier', PositionTier.precise),
+        );
+
+        // Clean up
+        await streamQueue.cancel();
+        await streamController.close();
+      });
+
+      test('Should receive the last position when becoming stationary',
+          () async {
+        // Arrange
+        final streamController =
+            StreamController<Map<String, dynamic>>.broadcast();
+        EventChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_updates_android',
+          stream: streamController.stream,
+        );
+
+        // Act
+        final positionStream = GeolocatorAndroid().getPositionStream();
+        final streamQueue = StreamQueue(positionStream);
+
+        // Emit test events
+        streamController.add(mockPosition.toJson());
+        streamController.add({...mockPosition.toJson(), 'stationary': true});
+
+        // Assert
+        expect(await streamQueue.next, isNot(isA<AndroidPosition>()));
+        expect(
+          await streamQueue.next,
+          isA<AndroidPosition>()
+              .having((p) => p.isStationary, 'isStationary', true),
+        );
+
+        // Clean up
+        await streamQueue.cancel();
+        await streamController.close();
+      });
+
+      test('Should decode positions sent using the delta encoding', () async {
+        // Arrange
+        final streamController = StreamController<Uint8List>.broadcast();
+        EventChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_updates_android',
+          stream: streamController.stream,
+        );
+
+        // Act
+        final positionStream = GeolocatorAndroid().getPositionStream(
+            locationSettings: AndroidSettings(
+          encoding: PositionEncoding.delta,
+          fields: {PositionField.timestamp},
+        ));
+        final streamQueue = StreamQueue(positionStream);
+
+        // Emit a key frame (flags: key frame and timestamp, scale 1e7)
+        // followed by a delta record (flags: timestamp).
+        streamController.add(Uint8List.fromList([
+          ..._varint(3),
+          ..._varint(10000000),
+          ..._zigzag(525612700),
+          ..._zigzag(56393820),
+          ..._zigzag(500),
+        ]));
+        streamController.add(Uint8List.fromList([
+          ..._varint(2),
+          ..._zigzag(10),
+          ..._zigzag(-5),
+          ..._zigzag(100),
+        ]));
+
+        // Assert
+        final keyFrame = await streamQueue.next;
+        expect(keyFrame.latitude, closeTo(52.56127, 1e-9));
+        expect(keyFrame.longitude, closeTo(5.639382, 1e-9));
+        expect(keyFrame.timestamp,
+            DateTime.fromMillisecondsSinceEpoch(500, isUtc: true));
+
+        final delta = await streamQueue.next;
+        expect(delta.latitude, closeTo(52.561271, 1e-9));
+        expect(delta.longitude, closeTo(5.6393815, 1e-9));
+        expect(delta.timestamp,
+            DateTime.fromMillisecondsSinceEpoch(600, isUtc: true));
+
+        // Clean up
+        await streamQueue.cancel();
+        await streamController.close();
+      });
+
+      test('Should read all positions of a ring buffer event', () async {
+        // Arrange
+        final streamController = StreamController<Uint8List>.broadcast();
+        EventChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_updates_android',
+          stream: streamController.stream,
+        );
+
+        // Act
+        final positionStream = GeolocatorAndroid().getPositionStream(
+            locationSettings: AndroidSettings(
+          transport: PositionTransport.ringBuffer,
+        ));
+        final streamQueue = StreamQueue(positionStream);
+
+        // A single doorbell carrying two records, the second one after a gap.
+        streamController.add(Uint8List.fromList([
+          ..._ringRecord(0, 52.56127, 5.639382, timestamp: 500),
+          ..._ringRecord(3, 52.561271, 5.6393815),
+        ]));
+
+        // Assert
+        final first = await streamQueue.next;
+        expect(first.latitude, 52.56127);
+        expect(first.longitude, 5.639382);
+        expect(first.timestamp,
+            DateTime.fromMillisecondsSinceEpoch(500, isUtc: true));
+
+        final second = await streamQueue.next;
+        expect(second.latitude, 52.561271);
+        expect(second.longitude, 5.6393815);
+        expect(second.timestamp, isNull);
+
+        // Clean up
+        await streamQueue.cancel();
+        await streamController.close();
+      });
+
+      test('Should read the mocked flag of a ring buffer record', () async {
+        // Arrange
+        final streamController = StreamController<Uint8List>.broadcast();
+        EventChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_updates_android',
+          stream: streamController.stream,
+        );
+
+        // Act
+        final positionStream = GeolocatorAndroid().getPositionStream(
+            locationSettings: AndroidSettings(
+          transport: PositionTransport.ringBuffer,
+        ));
+        final streamQueue = StreamQueue(positionStream);
+
+        // Flags: isMocked requested (bit 6) and the mocked flag (bit 8).
+        streamController.add(Uint8List.fromList(
+            _ringRecord(0, 52.56127, 5.639382, flags: 1 << 6 | 1 << 8)));
+
+        // Assert
+        final position = await streamQueue.next;
+        expect(position.isMocked, isTrue);
+
+        // Clean up
+        await streamQueue.cancel();
+        await streamController.close();
+      });
+
+      test(
+          // ignore: lines_longer_than_80_chars
+          'Should continue listening to the stream when exception is thrown ',
+          () async {
+        // Arrange
+        final streamController =
+            StreamController<Map<String, dynamic>>.broadcast();
+        EventChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_updates_android',
+          stream: streamController.stream,
+        );
+
+        // Act
+        final positionStream = GeolocatorAndroid().getPositionStream();
+        final streamQueue = StreamQueue(positionStream);
+
+        // Emit test events
+        streamController.add(mockPosition.toJson());
+        streamController.addError(PlatformException(
+            code: 'PERMISSION_DENIED',
+            message: 'Permission denied',
+            details: null));
+        streamController.add(mockPosition.toJson());
+
+        // Assert
+        expect(await streamQueue.next, mockPosition);
+        expect(
+            streamQueue.next,
+            throwsA(
+              isA<PermissionDeniedException>().having(
+                (e) => e.message,
                 'message',
                 'Permission denied',
               ),
@@ -1076,6 +1669,96 @@ void main() {
       });
     });
 
+    group('createPositionStream: When creating an independent position stream',
+        () {
+      test('Should receive position updates on the event channel of the stream',
+          () async {
+        // Arrange
+        final methodChannel = MethodChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_android',
+          method: 'createPositionStream',
+          result: 1,
+        );
+        final streamController = StreamController<Map<String, dynamic>>();
+        EventChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_updates_android/1',
+          stream: streamController.stream,
+        );
+
+        // Act
+        final positionStream = GeolocatorAndroid().createPositionStream();
+        final streamQueue = StreamQueue(positionStream);
+
+        // Emit test events
+        streamController.add(mockPosition.toJson());
+
+        // Assert
+        expect(await streamQueue.next, mockPosition);
+        expect(methodChannel.log, <Matcher>[
+          isMethodCall('createPositionStream', arguments: null),
+        ]);
+
+        // Clean up
+        await streamQueue.cancel();
+        await streamController.close();
+      });
+
+      test('Should listen on a separate event channel for each stream',
+          () async {
+        // Arrange
+        const methodChannel =
+            MethodChannel('flutter.baseflow.com/geolocator_android');
+        final methodCalls = <MethodCall>[];
+        var nextStreamId = 1;
+        TestDefaultBinaryMessengerBinding.instance!.defaultBinaryMessenger
+            .setMockMethodCallHandler(methodChannel, (methodCall) async {
+          methodCalls.add(methodCall);
+          return nextStreamId++;
+        });
+        final firstController = StreamController<Map<String, dynamic>>();
+        final firstEventChannel = EventChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_updates_android/1',
+          stream: firstController.stream,
+        );
+        final secondController = StreamController<Map<String, dynamic>>();
+        final secondEventChannel = EventChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_updates_android/2',
+          stream: secondController.stream,
+        );
+        final secondPosition = Position.fromMap(<String, dynamic>{
+          ...mockPosition.toJson(),
+          'latitude': 51.0,
+        });
+
+        // Act
+        final plugin = GeolocatorAndroid();
+        final firstQueue = StreamQueue(plugin.createPositionStream());
+        final secondQueue = StreamQueue(plugin.createPositionStream());
+        firstController.add(mockPosition.toJson());
+        secondController.add(secondPosition.toJson());
+
+        // Assert
+        expect(await firstQueue.next, mockPosition);
+        expect(await secondQueue.next, secondPosition);
+        expect(methodCalls, <Matcher>[
+          isMethodCall('createPositionStream', arguments: null),
+          isMethodCall('createPositionStream', arguments: null),
+        ]);
+        expect(firstEventChannel.log, <Matcher>[
+          isMethodCall('listen', arguments: null),
+        ]);
+        expect(secondEventChannel.log, <Matcher>[
+          isMethodCall('listen', arguments: null),
+        ]);
+
+        // Clean up
+        await firstQueue.cancel();
+        await secondQueue.cancel();
+        await firstController.close();
+        await secondController.close();
+      });
+    });
+
     group(
         // ignore: lines_longer_than_80_chars
         'getServiceStream: When requesting a stream of location service status updates',
@@ -1163,6 +1846,276 @@ void main() {
       });
     });
 
+    group('getWakeLockHeldTime: When requesting the wake lock hold time', () {
+      test('Should receive the hold time reported by the location service',
+          () async {
+        // Arrange
+        MethodChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_android',
+          method: 'getWakeLockHeldTime',
+          result: 1500,
+        );
+
+        // Act
+        final heldTime = await GeolocatorAndroid().getWakeLockHeldTime();
+
+        // Assert
+        expect(
+          heldTime,
+          const Duration(milliseconds: 1500),
+        );
+      });
+    });
+
+    group(
+        // ignore: lines_longer_than_80_chars
+        'startBackgroundPositionUpdates: When starting background position updates',
+        () {
+      test('Should send the location settings to the platform', () async {
+        // Arrange
+        final methodChannel = MethodChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_android',
+          method: 'startBackgroundPositionUpdates',
+        );
+        final settings = AndroidSettings(
+          maxUpdateDelay: const Duration(minutes: 5),
+        );
+
+        // Act
+        await GeolocatorAndroid()
+            .startBackgroundPositionUpdates(locationSettings: settings);
+
+        // Assert
+        expect(methodChannel.log, <Matcher>[
+          isMethodCall(
+            'startBackgroundPositionUpdates',
+            arguments: settings.toJson(),
+          ),
+        ]);
+      });
+
+      test('Should receive an exception when permission is denied', () async {
+        // Arrange
+        MethodChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_android',
+          method: 'startBackgroundPositionUpdates',
+          result: PlatformException(
+            code: 'PERMISSION_DENIED',
+            message: 'Permission denied',
+            details: null,
+          ),
+        );
+
+        // Act
+        final future = GeolocatorAndroid().startBackgroundPositionUpdates();
+
+        // Assert
+        expect(
+          future,
+          throwsA(isA<PermissionDeniedException>()),
+        );
+      });
+    });
+
+    group('takeBackgroundPositions: When taking the buffered positions', () {
+      test('Should receive the buffered positions', () async {
+        // Arrange
+        MethodChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_android',
+          method: 'takeBackgroundPositions',
+          result: [mockPosition.toJson(), mockPosition.toJson()],
+        );
+
+        // Act
+        final positions = await GeolocatorAndroid().takeBackgroundPositions();
+
+        // Assert
+        expect(positions, [mockPosition, mockPosition]);
+      });
+    });
+
+    group(
+        // ignore: lines_longer_than_80_chars
+        'getBackgroundPositionStream: When listening to background position updates',
+        () {
+      test('Should receive a stream with position updates', () async {
+        // Arrange
+        final streamController =
+            StreamController<Map<String, dynamic>>.broadcast();
+        EventChannelMock(
+          channelName:
+              'flutter.baseflow.com/geolocator_background_updates_android',
+          stream: streamController.stream,
+        );
+
+        // Act
+        final positionStream =
+            GeolocatorAndroid().getBackgroundPositionStream();
+        final streamQueue = StreamQueue(positionStream);
+
+        // Emit test events
+        streamController.add(mockPosition.toJson());
+
+        // Assert
+        expect(await streamQueue.next, mockPosition);
+
+        // Clean up
+        await streamQueue.cancel();
+        await streamController.close();
+      });
+    });
+
+    group('setReplayTrace: When replaying a recorded trace', () {
+      test('Should send the replay options to the platform', () async {
+        // Arrange
+        final methodChannel = MethodChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_android',
+          method: 'setReplayTrace',
+        );
+
+        // Act
+        await GeolocatorAndroid().setReplayTrace(
+          '/data/trace.gpx',
+          speed: 100,
+          startOffset: const Duration(seconds: 30),
+          loop: true,
+        );
+
+        // Assert
+        expect(methodChannel.log, <Matcher>[
+          isMethodCall(
+            'setReplayTrace',
+            arguments: <String, dynamic>{
+              'path': '/data/trace.gpx',
+              'speed': 100.0,
+              'startOffset': 30000,
+              'loop': true,
+            },
+          ),
+        ]);
+      });
+
+      test('Should send null to restore the device providers', () async {
+        // Arrange
+        final methodChannel = MethodChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_android',
+          method: 'setReplayTrace',
+        );
+
+        // Act
+        await GeolocatorAndroid().setReplayTrace(null);
+
+        // Assert
+        expect(methodChannel.log, <Matcher>[
+          isMethodCall('setReplayTrace', arguments: null),
+        ]);
+      });
+    });
+
+    group('seekReplay: When seeking in a replayed trace', () {
+      test('Should send the offset to the platform', () async {
+        // Arrange
+        final methodChannel = MethodChannelMock(
+          channelName: 'flutter.baseflow.com/geolocator_android',
+          method: 'seekReplay',
+        );
+
+        // Act
+        await GeolocatorAndroid().seekReplay(const Duration(minutes: 2));
+
+        // Assert
+        expect(methodChannel.log, <Matcher>[
+          isMethodCall(
+            'seekReplay',
+            arguments: <String, dynamic>{'offset': 120000},
+          ),
+        ]);
+      });
+    });
+
+    group('useTypedMessages: When using the typed message channel', () {
+      tearDown(() => TestDefaultBinaryMessengerBinding
+          .instance!.defaultBinaryMessenger
+          .setMockMessageHandler(_typedMessageChannelName, null));
+
+      test('Should receive the permission status', () async {
+        // Arrange
+        final messages = _mockTypedMessages(_byteData([0, 2]));
+
+        // Act
+        final permission = await (GeolocatorAndroid()..useTypedMessages = true)
+            .checkPermission();
+
+        // Assert
+        expect(permission, LocationPermission.whileInUse);
+        expect(Uint8List.sublistView(messages.single), [0]);
+      });
+
+      test('Should receive the current position', () async {
+        // Arrange
+        final messages = _mockTypedMessages(_typedPositionReply(mockPosition));
+
+        // Act
+        final plugin = GeolocatorAndroid()..useTypedMessages = true;
+        final position = await plugin.getCurrentPosition(
+            locationSettings: AndroidSettings(
+          accuracy: LocationAccuracy.low,
+          distanceFilter: 10,
+          forceLocationManager: true,
+          fields: {PositionField.timestamp},
+        ));
+
+        // Assert
+        expect(position, mockPosition);
+        final message = messages.single;
+        expect(message.lengthInBytes, 34);
+        expect(message.getUint8(0), 3);
+        expect(message.getUint8(1), 1);
+        expect(message.getUint8(2), LocationAccuracy.low.index);
+        expect(message.getInt32(6, Endian.little), 10);
+        expect(message.getInt32(10, Endian.little), -1);
+        expect(message.getInt32(22, Endian.little), 1);
+        expect(message.getFloat64(26, Endian.little), 1e-7);
+      });
+
+      test('Should receive null if no last known position is available',
+          () async {
+        // Arrange
+        final messages = _mockTypedMessages(_byteData([0, 0]));
+
+        // Act
+        final position = await (GeolocatorAndroid()..useTypedMessages = true)
+            .getLastKnownPosition(forceLocationManager: true);
+
+        // Assert
+        expect(position, isNull);
+        expect(Uint8List.sublistView(messages.single), [2, 1]);
+      });
+
+      test('Should throw a permission denied exception if permission is denied',
+          () async {
+        // Arrange
+        _mockTypedMessages(
+            _byteData([1, 4, ...'Permission denied'.codeUnits]));
+
+        // Act
+        final future = (GeolocatorAndroid()..useTypedMessages = true)
+            .getCurrentPosition();
+
+        // Assert
+        expect(
+          future,
+          throwsA(
+            isA<PermissionDeniedException>().having(
+              (e) => e.message,
+              'message',
+              'Permission denied',
+            ),
+          ),
+        );
+      });
+    });
+
     group('openAppSettings: When opening the App settings', () {
       test('Should receive true if the page can be opened', () async {
         // Arrange
@@ -1288,6 +2241,170 @@ void main() {
         );
       });
 
+      test('Should serialize the duty cycle wake lock when calling toJson',
+          () {
+        // Arrange
+        const config = ForegroundNotificationConfig(
+          notificationText: 'text',
+          notificationTitle: 'title',
+          enableWakeLock: true,
+          dutyCycleWakeLock: true,
+        );
+
+        // Act
+        final jsonMap = config.toJson();
+
+        // Assert
+        expect(
+          jsonMap['dutyCycleWakeLock'],
+          true,
+        );
+      });
+
+      test('Should serialize the stationary timeout when calling toJson', () {
+        // Arrange
+        const config = ForegroundNotificationConfig(
+          notificationText: 'text',
+          notificationTitle: 'title',
+          stationaryTimeout: Duration(minutes: 5),
+        );
+
+        // Act
+        final jsonMap = config.toJson();
+
+        // Assert
+        expect(
+          jsonMap['stationaryTimeout'],
+          300000,
+        );
+      });
+
+      test('Should serialize the delivery policy when calling toJson', () {
+        // Arrange
+        final settings = AndroidSettings(
+          deliveryPolicy: PositionDeliveryPolicy.sampled,
+          deliveryInterval: const Duration(milliseconds: 250),
+        );
+
+        // Act
+        final jsonMap = settings.toJson();
+
+        // Assert
+        expect(
+          jsonMap['deliveryPolicy'],
+          PositionDeliveryPolicy.sampled.index,
+        );
+        expect(
+          jsonMap['deliveryInterval'],
+          250,
+        );
+      });
+
+      test('Should serialize the position fields when calling toJson', () {
+        // Arrange
+        final settings = AndroidSettings(
+          fields: {PositionField.timestamp, PositionField.accuracy},
+        );
+
+        // Act
+        final jsonMap = settings.toJson();
+
+        // Assert
+        expect(
+          jsonMap['fields'],
+          (1 << PositionField.timestamp.index) |
+              (1 << PositionField.accuracy.index),
+        );
+        expect(
+          AndroidSettings().toJson()['fields'],
+          isNull,
+        );
+      });
+
+      test('Should serialize the position encoding when calling toJson', () {
+        // Arrange
+        final settings = AndroidSettings(
+          encoding: PositionEncoding.delta,
+          coordinatePrecision: 1e-6,
+        );
+
+        // Act
+        final jsonMap = settings.toJson();
+
+        // Assert
+        expect(
+          jsonMap['encoding'],
+          PositionEncoding.delta.index,
+        );
+        expect(
+          jsonMap['coordinatePrecision'],
+          1e-6,
+        );
+      });
+
+      test('Should serialize the position transport when calling toJson', () {
+        // Arrange
+        final settings = AndroidSettings(
+          transport: PositionTransport.ringBuffer,
+        );
+
+        // Act
+        final jsonMap = settings.toJson();
+
+        // Assert
+        expect(
+          jsonMap['transport'],
+          PositionTransport.ringBuffer.index,
+        );
+      });
+
+      test('Should serialize the significant change distance', () {
+        // Arrange
+        final settings = AndroidSettings(
+          significantChangeDistance: 500,
+        );
+
+        // Act
+        final jsonMap = settings.toJson();
+
+        // Assert
+        expect(
+          jsonMap['significantChangeDistance'],
+          500,
+        );
+      });
+
+      test('Should serialize the precise interval and window', () {
+        // Arrange
+        final settings = AndroidSettings(
+          preciseInterval: const Duration(minutes: 1),
+          preciseWindow: const Duration(seconds: 20),
+        );
+
+        // Act
+        final jsonMap = settings.toJson();
+
+        // Assert
+        expect(jsonMap['preciseInterval'], 60000);
+        expect(jsonMap['preciseWindow'], 20000);
+      });
+
+      test('Should serialize the max update delay when calling toJson', () {
+        // Arrange
+        final settings = AndroidSettings(
+          maxUpdateDelay: const Duration(minutes: 1),
+        );
+
+        // Act
+        final jsonMap = settings.toJson();
+
+        // Assert
+        expect(
+          jsonMap['maxUpdateDelay'],
+          60000,
+        );
+      });
+
       test('Should receive false if an error occurred', () async {
         // Arrange
         MethodChannelMock(